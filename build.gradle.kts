@@ -67,6 +67,25 @@ protobuf {
     }
 }
 
+// Opt-in SIMD force solver built on the incubating Vector API. Enable with `-PvectorApi`.
+// https://openjdk.org/jeps/460
+if (project.hasProperty("vectorApi")) {
+    val addVectorModule = listOf("--add-modules", "jdk.incubator.vector")
+
+    sourceSets.main {
+        java.srcDir("src/vector/java")
+    }
+    tasks.withType<JavaCompile>().configureEach {
+        options.compilerArgs.addAll(addVectorModule)
+    }
+    tasks.withType<Test>().configureEach {
+        jvmArgs(addVectorModule)
+    }
+    application {
+        applicationDefaultJvmArgs = addVectorModule
+    }
+}
+
 tasks {
     test {
         useJUnitPlatform()
@@ -4,23 +4,35 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import dev.cgj.nbody2d.config.Config;
+import dev.cgj.nbody2d.config.RecordingConfig;
 import dev.cgj.nbody2d.config.SimulationConfig;
 import dev.cgj.nbody2d.config.ViewerConfig;
-import dev.cgj.nbody2d.data.SimulationHistory;
-import dev.cgj.nbody2d.protobuf.Definition.SimulationHistoryProto;
+import dev.cgj.nbody2d.data.Checkpoint;
+import dev.cgj.nbody2d.io.CheckpointFile;
+import dev.cgj.nbody2d.io.CheckpointWriter;
+import dev.cgj.nbody2d.io.FrameSink;
+import dev.cgj.nbody2d.io.FrameSource;
+import dev.cgj.nbody2d.io.LevelOfDetailSink;
+import dev.cgj.nbody2d.io.PipelineStats;
+import dev.cgj.nbody2d.io.PipelinedRecordingWriter;
+import dev.cgj.nbody2d.io.RecordingWriter;
 import dev.cgj.nbody2d.simulation.ReplaySimulation;
 import dev.cgj.nbody2d.simulation.Simulation;
 import dev.cgj.nbody2d.simulation.RealTimeSimulation;
+import dev.cgj.nbody2d.simulation.TrailStore;
 import dev.cgj.nbody2d.viewer.Viewer;
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 import static picocli.CommandLine.Command;
 import static picocli.CommandLine.Option;
@@ -29,6 +41,17 @@ import static picocli.CommandLine.Option;
 @Command(name = "NBody2D", mixinStandardHelpOptions = true)
 public class NBody2dLauncher implements Runnable {
 
+    /**
+     * Number of recent frames kept in memory for the viewer. Trails are kept separately, by
+     * {@link TrailStore}.
+     */
+    private static final int VIEWER_HISTORY_LENGTH = 1;
+
+    /**
+     * Number of frames decoded ahead of the playhead when replaying a recording.
+     */
+    private static final int REPLAY_PREFETCH_FRAMES = 64;
+
     @Option(names = {"-c", "--config"},
             description = "Path to the YAML configuration file. Defaults to 'uniform.yml'.")
     String configurationPath = "examples/uniform.yml";
@@ -49,6 +72,28 @@ public class NBody2dLauncher implements Runnable {
             description = "Number of simulation steps to run in headless mode. Ignored if not in headless mode.")
     int steps = 1000;
 
+    @Option(names = {"-t", "--threads"},
+            description = "Number of threads used to step the simulation, or 0 for one per processor. Overrides the configuration file.")
+    Integer threads;
+
+    @Option(names = {"--checkpoint"},
+            description = "Path of the checkpoint written periodically in headless mode, and read by --resume.")
+    String checkpointPath;
+
+    @Option(names = {"--checkpoint-interval"},
+            description = "Number of steps between checkpoints in headless mode. Defaults to 1000.")
+    int checkpointInterval = 1000;
+
+    @Option(names = {"--resume"},
+            description = "Continue from the checkpoint given by --checkpoint instead of the initial state. In headless mode, steps until --steps steps have been taken in total, and continues the recording at --output from the checkpoint.")
+    boolean resume = false;
+
+    /**
+     * Wraps the sink which headless runs record to. Only replaced by tests, to stop a run as if the
+     * process had died before the recording was closed.
+     */
+    UnaryOperator<FrameSink> outputWrapper = UnaryOperator.identity();
+
     @Override
     public void run() {
         log.info("Reading configuration from {}", configurationPath);
@@ -56,16 +101,47 @@ public class NBody2dLauncher implements Runnable {
 
         if (inputPath == null) {
             SimulationConfig simulationConfig = config.getSimulation();
-            RealTimeSimulation sim = new RealTimeSimulation(simulationConfig, headless ? steps: 20);
+            if (threads != null) {
+                simulationConfig = simulationConfig.withThreads(threads);
+            }
+            // Headless frames are streamed to the output file, so only the latest is kept
+            RealTimeSimulation sim = createSimulation(simulationConfig, headless ? 1 : VIEWER_HISTORY_LENGTH);
             if (headless) {
-                runHeadless(sim);
+                try (sim) {
+                    runHeadless(sim, config.getRecording());
+                }
             } else {
+                // The viewer steps the simulation until the program exits, so it is never closed
                 runViewer(config.getViewer(), sim);
             }
         } else {
             log.info("Replaying simulation from {}", inputPath);
-            runViewer(config.getViewer(), new ReplaySimulation(readRecordedSimulation(inputPath)));
+            Path path = Paths.get(inputPath);
+            runViewer(config.getViewer(), new ReplaySimulation(openRecording(path), openLevelsOfDetail(path),
+                VIEWER_HISTORY_LENGTH, REPLAY_PREFETCH_FRAMES));
+        }
+    }
+
+    private RealTimeSimulation createSimulation(SimulationConfig config, int historyLength) {
+        if (!resume) {
+            return new RealTimeSimulation(config, historyLength);
+        }
+        if (checkpointPath == null) {
+            throw new IllegalArgumentException("--resume requires --checkpoint");
         }
+
+        log.info("Resuming from checkpoint {}", checkpointPath);
+        Checkpoint checkpoint;
+        try {
+            checkpoint = CheckpointFile.read(Paths.get(checkpointPath));
+        } catch (IOException e) {
+            log.error("Failed to read checkpoint", e);
+            throw new UncheckedIOException(e);
+        }
+        if (threads != null) {
+            checkpoint = checkpoint.withConfig(checkpoint.config().withThreads(threads));
+        }
+        return new RealTimeSimulation(checkpoint, historyLength);
     }
 
     private void runViewer(ViewerConfig config, Simulation simulation) {
@@ -73,23 +149,155 @@ public class NBody2dLauncher implements Runnable {
         viewer.run();
     }
 
-    private void runHeadless(RealTimeSimulation sim) {
-        log.info("Running simulation headless for {} steps", steps);
-
-        for (int i = 0; i < steps; i++) {
-            sim.step();
+    private void runHeadless(RealTimeSimulation sim, RecordingConfig recording) {
+        long firstStep = sim.getSteps();
+        log.info("Running simulation headless from step {} to {}", firstStep, steps);
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("--checkpoint-interval must be at least 1");
         }
 
-        SimulationHistory record = new SimulationHistory(sim.getFrames().asList(), sim.getConfig());
+        Path earlierFrames;
+        FrameSink sink;
+        try {
+            earlierFrames = resume ? keepEarlierFrames(Paths.get(outputPath), firstStep) : null;
+            sink = outputWrapper.apply(openOutput(sim.getConfig(), recording));
+        } catch (IOException e) {
+            log.error("Failed to create output file", e);
+            return;
+        }
+        CheckpointWriter checkpoints = checkpointPath == null ? null : new CheckpointWriter(Paths.get(checkpointPath));
 
-        try (OutputStream stream = Files.newOutputStream(Paths.get(outputPath))) {
-            record.toProto().writeTo(stream);
-            log.info("Simulation results written to {}", outputPath);
+        long startTime = System.nanoTime();
+        try (sink; checkpoints) {
+            if (earlierFrames != null) {
+                copyFrames(earlierFrames, firstStep, sink);
+            }
+            sink.write(sim.currentFrame());
+            while (sim.getSteps() < steps) {
+                sim.step();
+                sink.write(sim.currentFrame());
+                if (checkpoints != null && sim.getSteps() % checkpointInterval == 0) {
+                    writeCheckpoint(sim, sink, checkpoints);
+                }
+            }
+            if (checkpoints != null) {
+                writeCheckpoint(sim, sink, checkpoints);
+            }
         } catch (IOException e) {
             log.error("Failed to write simulation results to file", e);
+            return;
+        }
+        log.info("Simulation results written to {}", outputPath);
+        if (earlierFrames != null) {
+            try {
+                Files.delete(earlierFrames);
+            } catch (IOException e) {
+                log.warn("Failed to delete {}", earlierFrames, e);
+            }
+        }
+
+        long stepsTaken = sim.getSteps() - firstStep;
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        log.info("Completed {} steps in {} seconds ({} steps per second)",
+            stepsTaken, String.format("%.3f", seconds), String.format("%.1f", stepsTaken / seconds));
+
+        FrameSink frames = sink instanceof LevelOfDetailSink levels ? levels.getFrames() : sink;
+        if (frames instanceof PipelinedRecordingWriter pipeline) {
+            PipelineStats stats = pipeline.getStats();
+            log.info("Recording pipeline: simulation blocked for {} ms, frame queue depth mean {} max {} of {}, "
+                    + "encoded queue depth mean {} max {}, encoding {} ms, writing {} ms",
+                stats.getBlockedNanos() / 1_000_000, String.format("%.1f", stats.getMeanFrameQueueDepth()),
+                stats.getMaxFrameQueueDepth(), stats.getQueueCapacity(),
+                String.format("%.1f", stats.getMeanEncodedQueueDepth()), stats.getMaxEncodedQueueDepth(),
+                stats.getEncodeNanos() / 1_000_000, stats.getWriteNanos() / 1_000_000);
         }
     }
 
+    /**
+     * Queues a checkpoint once every frame up to it is in the recording, so that resuming from the
+     * checkpoint never needs frames which were lost when the process stopped.
+     */
+    private static void writeCheckpoint(RealTimeSimulation sim, FrameSink sink, CheckpointWriter checkpoints)
+            throws IOException {
+        sink.flush();
+        checkpoints.write(sim.checkpoint());
+    }
+
+    /**
+     * Moves the recording being resumed aside, so that the frames recorded before the checkpoint
+     * can be copied into the new recording instead of being lost when it replaces the old one.
+     * Frame {@code i} of a recording is the state after step {@code i}, so a checkpoint at step
+     * {@code n} needs the first {@code n} frames. If an earlier resume stopped before the new
+     * recording held those frames, the recording it moved aside is used again.
+     *
+     * @return the recording to copy frames from, or null if there is no recording to continue
+     * @throws IOException if neither recording holds every frame before the checkpoint
+     */
+    private static Path keepEarlierFrames(Path output, long frames) throws IOException {
+        Path earlier = output.resolveSibling(output.getFileName() + ".resumed");
+        if (Files.exists(output) && countFrames(output) >= frames) {
+            Files.move(output, earlier, StandardCopyOption.REPLACE_EXISTING);
+            return earlier;
+        }
+        if (Files.exists(earlier) && countFrames(earlier) >= frames) {
+            return earlier;
+        }
+        if (Files.exists(output) || Files.exists(earlier)) {
+            throw new IOException(output + " has fewer than the " + frames + " frames recorded before the checkpoint");
+        }
+        log.info("No recording found at {}, so it will start from step {}", output, frames);
+        return null;
+    }
+
+    private static int countFrames(Path recording) throws IOException {
+        try (FrameSource source = FrameSource.open(recording)) {
+            return source.getFrameCount();
+        }
+    }
+
+    private static void copyFrames(Path recording, long frames, FrameSink sink) throws IOException {
+        log.info("Copying {} frames recorded before the checkpoint from {}", frames, recording);
+        try (FrameSource source = FrameSource.open(recording)) {
+            for (int i = 0; i < frames; i++) {
+                sink.write(source.getFrame(i));
+            }
+        }
+    }
+
+    private FrameSink openOutput(SimulationConfig config, RecordingConfig recording) throws IOException {
+        recording.validate();
+        Path path = Paths.get(outputPath);
+        FrameSink frames = openRecording(path, config, recording, 0);
+        if (recording.getLevelsOfDetail() == 0) {
+            return frames;
+        }
+
+        List<FrameSink> levels = new ArrayList<>();
+        try {
+            for (int level = 1; level <= recording.getLevelsOfDetail(); level++) {
+                double cellSize = LevelOfDetailSink.cellSize(config.getBoundary(), recording.getLevelOfDetailCells(), level);
+                levels.add(openRecording(LevelOfDetailSink.levelPath(path, level), config, recording, cellSize));
+            }
+        } catch (IOException | RuntimeException e) {
+            frames.close();
+            for (FrameSink level : levels) {
+                level.close();
+            }
+            throw e;
+        }
+        return new LevelOfDetailSink(frames, levels, config.getBoundary(), recording.getLevelOfDetailCells(),
+            recording.getQueueCapacity());
+    }
+
+    private static FrameSink openRecording(Path path, SimulationConfig config, RecordingConfig recording,
+                                           double cellSize) throws IOException {
+        RecordingWriter writer = new RecordingWriter(path, config, recording, cellSize);
+        if (!recording.isPipelined()) {
+            return writer;
+        }
+        return new PipelinedRecordingWriter(writer, recording.getQueueCapacity());
+    }
+
     /**
      * Main method which creates and configures a {@link RealTimeSimulation} simulation.
      *
@@ -146,13 +354,29 @@ public class NBody2dLauncher implements Runnable {
         }
     }
 
-    private static SimulationHistory readRecordedSimulation(String inputPath) {
+    private static FrameSource openRecording(Path inputPath) {
         try {
-            byte[] data = Files.readAllBytes(Paths.get(inputPath));
-            return SimulationHistory.fromProto(SimulationHistoryProto.parseFrom(data));
+            return FrameSource.open(inputPath);
         } catch (Exception e) {
             log.error("Failed to read recorded simulation", e);
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Opens any levels of detail recorded alongside a recording. Replay falls back to the full
+     * frames if they cannot be read.
+     */
+    private static List<FrameSource> openLevelsOfDetail(Path inputPath) {
+        try {
+            List<FrameSource> levels = FrameSource.openLevelsOfDetail(inputPath);
+            if (!levels.isEmpty()) {
+                log.info("Found {} levels of detail for {}", levels.size(), inputPath);
+            }
+            return levels;
+        } catch (Exception e) {
+            log.warn("Failed to read levels of detail, showing every body", e);
+            return List.of();
+        }
+    }
 }
@@ -10,4 +10,7 @@ import lombok.extern.jackson.Jacksonized;
 public class Config {
     ViewerConfig viewer;
     SimulationConfig simulation;
+
+    @Builder.Default
+    RecordingConfig recording = RecordingConfig.builder().build();
 }
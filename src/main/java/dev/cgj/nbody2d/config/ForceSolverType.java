@@ -0,0 +1,27 @@
+package dev.cgj.nbody2d.config;
+
+public enum ForceSolverType {
+
+    /**
+     * Exact O(n²) sum over every pair of bodies.
+     */
+    DIRECT,
+
+    /**
+     * Exact sum which visits each unordered pair of bodies once, applying equal and opposite
+     * forces to both. Roughly twice as fast as {@link #DIRECT}.
+     */
+    DIRECT_SYMMETRIC,
+
+    /**
+     * Exact sum which uses SIMD instructions via the incubating Java Vector API. Requires a build
+     * with {@code -PvectorApi} and a JVM started with {@code --add-modules jdk.incubator.vector},
+     * otherwise falls back to {@link #DIRECT}.
+     */
+    DIRECT_VECTOR,
+
+    /**
+     * Approximate O(n log n) Barnes-Hut quadtree, controlled by {@link SimulationConfig#getTheta()}.
+     */
+    BARNES_HUT
+}
@@ -0,0 +1,37 @@
+package dev.cgj.nbody2d.config;
+
+public enum IntegratorType {
+
+    /**
+     * First-order semi-implicit Euler: update velocity from the current forces, then position from
+     * the new velocity. One force calculation per step.
+     */
+    EULER,
+
+    /**
+     * Second-order symplectic kick-drift-kick leapfrog. Forces at the end of one step are reused
+     * at the start of the next, so this also needs one force calculation per step.
+     */
+    LEAPFROG,
+
+    /**
+     * Second-order velocity Verlet. Produces the same trajectory as {@link #LEAPFROG}, written in
+     * terms of whole-step positions and velocities.
+     */
+    VELOCITY_VERLET,
+
+    /**
+     * Fourth-order symplectic scheme composed of three leapfrog sub-steps with Yoshida's
+     * coefficients (equivalent to Forest-Ruth). Three force calculations per step, but usually
+     * allows a much larger time step for the same accuracy.
+     */
+    YOSHIDA4,
+
+    /**
+     * Leapfrog with individual time steps: each body steps by {@code dt / 2^k} for a level
+     * {@code k} chosen from its acceleration, and forces are only recalculated for the bodies
+     * which are due to be updated. See {@link SimulationConfig#getTimeStepAccuracy()} and
+     * {@link SimulationConfig#getMaxTimeStepLevel()}.
+     */
+    BLOCK_LEAPFROG
+}
@@ -0,0 +1,20 @@
+package dev.cgj.nbody2d.config;
+
+public enum RecordingCompression {
+
+    /**
+     * Frames are written directly to the file.
+     */
+    NONE,
+
+    /**
+     * Blocks of frames are compressed with raw DEFLATE.
+     */
+    DEFLATE,
+
+    /**
+     * Blocks of frames are compressed as GZIP members, which can also be extracted with standard
+     * tools.
+     */
+    GZIP
+}
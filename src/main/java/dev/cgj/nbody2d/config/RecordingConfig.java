@@ -0,0 +1,112 @@
+package dev.cgj.nbody2d.config;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Controls how headless runs write their recording.
+ */
+@Value
+@Builder
+@With
+@Jacksonized
+public class RecordingConfig {
+
+    /**
+     * Should frames be encoded and written on background threads? When false, the simulation
+     * waits for each frame to reach the file before taking the next step.
+     */
+    @Builder.Default
+    boolean pipelined = true;
+
+    /**
+     * Maximum number of frames waiting at each stage of the pipeline. Larger values absorb longer
+     * stalls in disk writes at the cost of memory.
+     */
+    @Builder.Default
+    int queueCapacity = 64;
+
+    /**
+     * How frames are stored in the recording.
+     */
+    @Builder.Default
+    RecordingEncoding encoding = RecordingEncoding.COLUMNAR;
+
+    /**
+     * Positions are rounded to a multiple of this many meters by {@link RecordingEncoding#DELTA}.
+     * Zero stores positions exactly.
+     */
+    double positionPrecision;
+
+    /**
+     * Velocities are rounded to a multiple of this many meters per second by
+     * {@link RecordingEncoding#DELTA}. Zero stores velocities exactly.
+     */
+    double velocityPrecision;
+
+    /**
+     * Number of frames from one full keyframe to the next with {@link RecordingEncoding#DELTA}.
+     * Reading can only start at a keyframe, while longer intervals give smaller files.
+     */
+    @Builder.Default
+    int keyframeInterval = 100;
+
+    /**
+     * Compression applied to blocks of frames.
+     */
+    @Builder.Default
+    RecordingCompression compression = RecordingCompression.NONE;
+
+    /**
+     * Number of frames in each compressed block. Blocks are compressed independently, so larger
+     * blocks compress better but must be read in full to reach any frame inside them. Delta
+     * encoding restarts with a keyframe at the start of every block.
+     */
+    @Builder.Default
+    int framesPerBlock = 64;
+
+    /**
+     * Number of threads used to compress blocks, or 0 for one per processor.
+     */
+    int compressionThreads;
+
+    /**
+     * Number of coarse levels of detail to record alongside the full frames, each in its own file.
+     * Each level merges the bodies in every cell of a grid into one body, so a viewer zoomed out
+     * far enough can read and draw far fewer bodies with little visible difference.
+     */
+    int levelsOfDetail;
+
+    /**
+     * Number of grid cells along each edge of the simulation boundary in the finest level of
+     * detail. Each further level has half as many cells along each edge, so this must be a power of
+     * two, and there can be at most one level more than the number of times it can be halved.
+     */
+    @Builder.Default
+    int levelOfDetailCells = 512;
+
+    /**
+     * Checks the settings which cannot be checked when a single recording is opened.
+     *
+     * @throws IllegalArgumentException if {@link #levelsOfDetail} is negative, or the levels cannot
+     *                                  each have half as many cells along each edge as the last
+     */
+    public void validate() {
+        if (levelsOfDetail < 0) {
+            throw new IllegalArgumentException("Levels of detail must not be negative: " + levelsOfDetail);
+        }
+        if (levelsOfDetail == 0) {
+            return;
+        }
+        if (levelOfDetailCells < 1 || Integer.bitCount(levelOfDetailCells) != 1) {
+            throw new IllegalArgumentException("Level of detail cells must be a power of two: " + levelOfDetailCells);
+        }
+        int maxLevels = Integer.numberOfTrailingZeros(levelOfDetailCells) + 1;
+        if (levelsOfDetail > maxLevels) {
+            throw new IllegalArgumentException("At most " + maxLevels + " levels of detail can be made from "
+                + levelOfDetailCells + " cells: " + levelsOfDetail);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package dev.cgj.nbody2d.config;
+
+public enum RecordingEncoding {
+
+    /**
+     * Every frame stores each body's properties in full, as packed columns of doubles.
+     */
+    COLUMNAR,
+
+    /**
+     * Frames store each body's properties as the difference from a prediction based on the
+     * previous frame, with a full keyframe at a fixed interval. Lossless unless a precision is
+     * configured, in which case positions and velocities are rounded to that precision.
+     */
+    DELTA
+}
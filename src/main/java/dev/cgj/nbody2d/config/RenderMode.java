@@ -0,0 +1,30 @@
+package dev.cgj.nbody2d.config;
+
+public enum RenderMode {
+
+    /**
+     * Every body is drawn as a circle outline.
+     */
+    VECTOR,
+
+    /**
+     * Bodies no more than a pixel across are added to an image one pixel at a time, which is much
+     * faster for very large numbers of bodies. Overlapping bodies add their colors together, so
+     * dense regions are brighter. Larger bodies are still drawn as circles.
+     */
+    RASTER,
+
+    /**
+     * A heat map of the total mass in each pixel, for an overview of how bodies are clustered.
+     * Bodies larger than a pixel are drawn as circles on top.
+     */
+    DENSITY;
+
+    /**
+     * Gets the mode after this one, wrapping around to the first.
+     */
+    public RenderMode next() {
+        RenderMode[] modes = values();
+        return modes[(ordinal() + 1) % modes.length];
+    }
+}
@@ -2,12 +2,14 @@ package dev.cgj.nbody2d.config;
 
 import lombok.Builder;
 import lombok.Value;
+import lombok.With;
 import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 @Value
 @Builder
+@With
 @Jacksonized
 public class SimulationConfig {
 
@@ -24,5 +26,53 @@ public class SimulationConfig {
      */
     double dt;
 
+    /**
+     * Algorithm used to calculate the gravitational forces acting on each body.
+     */
+    @Builder.Default
+    ForceSolverType forceSolver = ForceSolverType.DIRECT;
+
+    /**
+     * Scheme used to advance positions and velocities by one time step.
+     */
+    @Builder.Default
+    IntegratorType integrator = IntegratorType.EULER;
+
+    /**
+     * Accuracy parameter (eta) for {@link IntegratorType#BLOCK_LEAPFROG}. Each body's ideal time
+     * step is {@code sqrt(2 * eta * radius / acceleration)}, since forces between bodies are
+     * limited once they are closer than their radii, so smaller values give smaller steps.
+     */
+    @Builder.Default
+    double timeStepAccuracy = 0.025;
+
+    /**
+     * Deepest level of time step subdivision for {@link IntegratorType#BLOCK_LEAPFROG}. The
+     * smallest step any body can take is {@code dt / 2^maxTimeStepLevel}.
+     */
+    @Builder.Default
+    int maxTimeStepLevel = 6;
+
+    /**
+     * Barnes-Hut opening angle. A quadtree node is treated as a single point mass when its width
+     * divided by its distance from a body is less than theta. Zero reproduces the direct sum, while
+     * larger values trade accuracy for speed. Ignored by other solvers.
+     */
+    @Builder.Default
+    double theta = 0.5;
+
+    /**
+     * Number of threads used to step the simulation. 1 (the default) steps on a single thread,
+     * which is fastest for small simulations, and 0 uses one thread per available processor.
+     */
+    @Builder.Default
+    int threads = 1;
+
+    /**
+     * Seed for the random jitter applied to the initial state, so that a run can be repeated
+     * exactly. A random seed is chosen if not set.
+     */
+    Long seed;
+
     List<InitialBodyConfig> initialState;
 }
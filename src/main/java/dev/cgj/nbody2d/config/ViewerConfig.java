@@ -11,15 +11,31 @@ import lombok.extern.jackson.Jacksonized;
 @Jacksonized
 public class ViewerConfig {
 
+    /**
+     * Shortest time between frames, in milliseconds. Frames are never drawn more often than the
+     * display refreshes, so 0 draws a frame every refresh.
+     */
     long repaintInterval;
 
     long autoStepInterval;
 
+    /**
+     * How bodies are drawn.
+     */
+    @Builder.Default
+    RenderMode renderMode = RenderMode.VECTOR;
+
     /**
      * Should trails be drawn?
      */
     boolean showTrails;
 
+    /**
+     * Number of recent positions in each trail.
+     */
+    @Builder.Default
+    int trailLength = 50;
+
     /**
      * Should trails be colored?
      */
@@ -14,9 +14,10 @@ public class Body {
 
     /**
      * ID for this body. This must be unique within a {@link SimulationFrame}, but should match for
-     * the same body across successive frames.
+     * the same body across successive frames. IDs are small non-negative integers assigned densely
+     * from 0 when a simulation is created, so they can be used to index arrays and bit sets.
      */
-    String id;
+    int id;
 
     /**
      * Distance from the origin in meters.
@@ -97,9 +98,13 @@ public class Body {
             .build();
     }
 
-    public static Body fromProto(BodyProto proto) {
+    /**
+     * @param registry assigns IDs to bodies read from files which still use string IDs
+     */
+    public static Body fromProto(BodyProto proto, BodyRegistry registry) {
+        int id = proto.getLegacyId().isEmpty() ? proto.getId() : registry.idFor(proto.getLegacyId());
         return Body.builder()
-                .id(proto.getId())
+                .id(id)
                 .position(Vec2.fromProto(proto.getPosition()))
                 .velocity(Vec2.fromProto(proto.getVelocity()))
                 .force(Vec2.fromProto(proto.getForce()))
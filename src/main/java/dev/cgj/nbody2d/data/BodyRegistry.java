@@ -0,0 +1,42 @@
+package dev.cgj.nbody2d.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps external string IDs, such as those in files recorded before bodies had integer IDs, to
+ * dense integer {@link Body#getId() body IDs}. Each distinct string is given the next unused ID,
+ * starting from 0.
+ */
+public class BodyRegistry {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> externalIds = new ArrayList<>();
+
+    /**
+     * Gets the ID assigned to the given external ID, assigning a new one if it has not been seen.
+     */
+    public int idFor(String externalId) {
+        Integer id = ids.get(externalId);
+        if (id == null) {
+            id = externalIds.size();
+            ids.put(externalId, id);
+            externalIds.add(externalId);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the external ID which was assigned the given ID.
+     *
+     * @throws IndexOutOfBoundsException if no external ID was assigned {@code id}
+     */
+    public String getExternalId(int id) {
+        return externalIds.get(id);
+    }
+
+    public int size() {
+        return externalIds.size();
+    }
+}
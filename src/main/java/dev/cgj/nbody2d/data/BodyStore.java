@@ -0,0 +1,142 @@
+package dev.cgj.nbody2d.data;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Mutable structure-of-arrays storage for the bodies in a simulation.
+ *
+ * <p>
+ *   Each property of a body is held in its own primitive array, indexed from {@code 0} to
+ *   {@code size - 1}, so that the step pipeline can update bodies in place without allocating a new
+ *   {@link Body} and several {@link Vec2} instances per body per step. Immutable {@link Body}
+ *   objects are only created when a {@link SimulationFrame} is published with {@link #toFrame()}.
+ * </p>
+ *
+ * <p>
+ *   The number of bodies in a simulation never grows after it is created (bodies are only removed
+ *   by merging or leaving the boundary), so the arrays are allocated once with a fixed capacity.
+ * </p>
+ */
+@Getter
+public class BodyStore {
+    private final int[] id;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] fx;
+    private final double[] fy;
+    private final double[] mass;
+    private final double[] radius;
+
+    /**
+     * The number of bodies currently stored.
+     */
+    private int size;
+
+    public BodyStore(int capacity) {
+        id = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+    }
+
+    public static BodyStore fromFrame(SimulationFrame frame) {
+        BodyStore store = new BodyStore(frame.bodies().size());
+        frame.bodies().forEach(store::add);
+        return store;
+    }
+
+    public int capacity() {
+        return id.length;
+    }
+
+    /**
+     * Appends a body to the end of this store.
+     *
+     * @throws IllegalStateException if the store is already at capacity
+     */
+    public void add(Body body) {
+        if (size == capacity()) {
+            throw new IllegalStateException("BodyStore is full");
+        }
+
+        int i = size++;
+        id[i] = body.getId();
+        x[i] = body.getPosition().x();
+        y[i] = body.getPosition().y();
+        vx[i] = body.getVelocity().x();
+        vy[i] = body.getVelocity().y();
+        fx[i] = body.getForce().x();
+        fy[i] = body.getForce().y();
+        mass[i] = body.getMass();
+        radius[i] = body.getRadius();
+    }
+
+    /**
+     * Creates an immutable copy of the body at the given index.
+     */
+    public Body get(int i) {
+        return Body.builder()
+            .id(id[i])
+            .position(new Vec2(x[i], y[i]))
+            .velocity(new Vec2(vx[i], vy[i]))
+            .force(new Vec2(fx[i], fy[i]))
+            .radius(radius[i])
+            .mass(mass[i])
+            .build();
+    }
+
+    /**
+     * Creates an immutable snapshot of all bodies currently stored.
+     */
+    public SimulationFrame toFrame() {
+        Body[] bodies = new Body[size];
+        for (int i = 0; i < size; i++) {
+            bodies[i] = get(i);
+        }
+        return new SimulationFrame(List.of(bodies));
+    }
+
+    /**
+     * Removes every body whose index is flagged, preserving the order of the remaining bodies.
+     *
+     * @param flags bodies to remove, indexed the same as this store. Must have at least
+     *              {@link #getSize()} elements.
+     * @return the number of bodies removed
+     */
+    public int removeFlagged(boolean[] flags) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!flags[i]) {
+                if (kept != i) {
+                    move(i, kept);
+                }
+                kept++;
+            }
+        }
+
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    private void move(int from, int to) {
+        id[to] = id[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        fx[to] = fx[from];
+        fy[to] = fy[from];
+        mass[to] = mass[from];
+        radius[to] = radius[from];
+    }
+}
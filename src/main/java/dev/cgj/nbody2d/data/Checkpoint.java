@@ -0,0 +1,66 @@
+package dev.cgj.nbody2d.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.protobuf.Definition.CheckpointProto;
+
+import java.util.List;
+
+/**
+ * Everything needed to continue a simulation exactly where it left off.
+ *
+ * @param config      configuration of the simulation
+ * @param seed        seed used to generate the initial state, so that it can be reset to the same
+ *                    state it started from
+ * @param steps       number of steps taken
+ * @param timeElapsed simulated time passed, in seconds
+ * @param capacity    number of bodies the simulation started with
+ * @param forcesValid true if the forces in {@code frame} were calculated at its positions, and
+ *                    will be reused by the next step
+ * @param frame       the current state of every body, including forces
+ * @param inactive    IDs of bodies waiting to be removed at the start of the next step
+ */
+public record Checkpoint(SimulationConfig config,
+                         long seed,
+                         long steps,
+                         long timeElapsed,
+                         int capacity,
+                         boolean forcesValid,
+                         SimulationFrame frame,
+                         List<Integer> inactive) {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static Checkpoint fromProto(CheckpointProto proto) throws JsonProcessingException {
+        return new Checkpoint(
+            MAPPER.readValue(proto.getConfigYaml(), SimulationConfig.class),
+            proto.getSeed(),
+            proto.getSteps(),
+            proto.getTimeElapsed(),
+            proto.getCapacity(),
+            proto.getForcesValid(),
+            SimulationFrame.fromColumnarProto(proto.getBodies()),
+            List.copyOf(proto.getInactiveList()));
+    }
+
+    /**
+     * Gets a copy of this checkpoint with a different configuration, such as to resume with a
+     * different number of threads.
+     */
+    public Checkpoint withConfig(SimulationConfig config) {
+        return new Checkpoint(config, seed, steps, timeElapsed, capacity, forcesValid, frame, inactive);
+    }
+
+    public CheckpointProto toProto() throws JsonProcessingException {
+        return CheckpointProto.newBuilder()
+            .setConfigYaml(MAPPER.writeValueAsString(config))
+            .setSeed(seed)
+            .setSteps(steps)
+            .setTimeElapsed(timeElapsed)
+            .setCapacity(capacity)
+            .setForcesValid(forcesValid)
+            .setBodies(frame.toColumnarProto())
+            .addAllInactive(inactive)
+            .build();
+    }
+}
@@ -0,0 +1,257 @@
+package dev.cgj.nbody2d.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lookup structures over the bodies in a {@link SimulationFrame}, for finding bodies by ID, by
+ * region and by distance without scanning every body.
+ *
+ * <p>
+ *   Bodies are bucketed into a uniform grid covering their bounding box, with about
+ *   {@link #BODIES_PER_CELL} bodies per cell, and stored cell by cell in one array. Bodies with a
+ *   radius larger than a cell are also kept in a separate list, so that a region query does not
+ *   have to widen its search by the radius of the largest body. IDs are looked up by binary search
+ *   over the bodies' IDs in sorted order.
+ * </p>
+ *
+ * <p>
+ *   Building an index takes time proportional to the number of bodies. Indexes never change once
+ *   built, so may be shared between threads.
+ * </p>
+ */
+public final class FrameIndex {
+
+    /**
+     * Average number of bodies in each grid cell.
+     */
+    static final int BODIES_PER_CELL = 2;
+
+    private final List<Body> bodies;
+
+    /**
+     * Each body's ID in the upper 32 bits and its index in the lower 32 bits, sorted.
+     */
+    private final long[] ids;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * The bodies in cell {@code c} are {@code cellBodies[cellStart[c]]} to
+     * {@code cellBodies[cellStart[c + 1] - 1]}.
+     */
+    private final int[] cellStart;
+    private final int[] cellBodies;
+
+    /**
+     * Largest radius of any body not in {@link #large}.
+     */
+    private final double maxCellRadius;
+
+    /**
+     * Indices of bodies whose radius is larger than a cell.
+     */
+    private final int[] large;
+
+    FrameIndex(List<Body> bodies) {
+        this.bodies = bodies;
+        int n = bodies.size();
+
+        ids = new long[n];
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Body body = bodies.get(i);
+            ids[i] = (long) body.getId() << 32 | i;
+            double x = body.getPosition().x();
+            double y = body.getPosition().y();
+            if (Double.isFinite(x) && Double.isFinite(y)) {
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        Arrays.sort(ids);
+        if (minX > maxX) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        double width = maxX - minX;
+        double height = maxY - minY;
+        int cells = Math.max(1, n / BODIES_PER_CELL);
+        double size = Math.max(Math.sqrt(width * height / cells), Math.max(width, height) / cells);
+        cellSize = size > 0 ? size : 1;
+        columns = Math.max(1, (int) Math.min(cells, Math.ceil(width / cellSize)));
+        rows = Math.max(1, (int) Math.min(cells, Math.ceil(height / cellSize)));
+
+        // Counting sort of the bodies by cell
+        int[] cellOf = new int[n];
+        cellStart = new int[columns * rows + 1];
+        int largeCount = 0;
+        double maxCellRadius = 0;
+        for (int i = 0; i < n; i++) {
+            Body body = bodies.get(i);
+            cellOf[i] = cell(column(body.getPosition().x()), row(body.getPosition().y()));
+            cellStart[cellOf[i] + 1]++;
+            if (body.getRadius() > cellSize) {
+                largeCount++;
+            } else {
+                maxCellRadius = Math.max(maxCellRadius, body.getRadius());
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellBodies = new int[n];
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        large = new int[largeCount];
+        largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            cellBodies[next[cellOf[i]]++] = i;
+            if (bodies.get(i).getRadius() > cellSize) {
+                large[largeCount++] = i;
+            }
+        }
+        this.maxCellRadius = maxCellRadius;
+    }
+
+    /**
+     * Gets the index in the frame of the body with the given ID, or -1 if there is none.
+     */
+    public int indexOf(int id) {
+        int i = Arrays.binarySearch(ids, (long) id << 32);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i < ids.length && (int) (ids[i] >> 32) == id) {
+            return (int) ids[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the index in the frame of the body whose centre is closest to a point, or -1 if the
+     * frame has no bodies.
+     */
+    public int nearest(double x, double y) {
+        if (bodies.isEmpty()) {
+            return -1;
+        }
+
+        int column = column(x);
+        int row = row(y);
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int rings = Math.max(columns, rows);
+        for (int ring = 0; ring <= rings; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Only the first and last rows of the ring are visited in full
+                boolean edge = r == row - ring || r == row + ring;
+                for (int c = column - ring; c <= column + ring; c += edge ? 1 : 2 * Math.max(ring, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = cell(c, r);
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = cellBodies[k];
+                        Vec2 position = bodies.get(i).getPosition();
+                        double dx = position.x() - x;
+                        double dy = position.y() - y;
+                        double distance = dx * dx + dy * dy;
+                        if (distance < bestDistance || best < 0) {
+                            best = i;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+
+            // Every cell outside this ring is at least this far from the point
+            double reach = ring * cellSize;
+            if (best >= 0 && bestDistance <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds every body which may overlap a rectangle, counting a body's radius as well as its
+     * position.
+     *
+     * @param into receives the indices in the frame of the bodies found, so must have room for
+     *             every body in the frame
+     * @return the number of bodies found
+     */
+    public int collect(double minX, double minY, double maxX, double maxY, int[] into) {
+        int count = 0;
+        double reach = maxCellRadius;
+        if (maxX + reach >= this.minX && minX - reach <= this.maxX
+            && maxY + reach >= this.minY && minY - reach <= this.maxY) {
+            int fromColumn = column(minX - reach);
+            int toColumn = column(maxX + reach);
+            int fromRow = row(minY - reach);
+            int toRow = row(maxY + reach);
+            for (int r = fromRow; r <= toRow; r++) {
+                for (int c = fromColumn; c <= toColumn; c++) {
+                    int cell = cell(c, r);
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = cellBodies[k];
+                        Body body = bodies.get(i);
+                        if (body.getRadius() <= cellSize && overlaps(body, minX, minY, maxX, maxY)) {
+                            into[count++] = i;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i : large) {
+            if (overlaps(bodies.get(i), minX, minY, maxX, maxY)) {
+                into[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    private static boolean overlaps(Body body, double minX, double minY, double maxX, double maxY) {
+        double x = body.getPosition().x();
+        double y = body.getPosition().y();
+        double r = body.getRadius();
+        return x + r >= minX && x - r <= maxX && y + r >= minY && y - r <= maxY;
+    }
+
+    private int column(double x) {
+        return clamp((x - minX) / cellSize, columns);
+    }
+
+    private int row(double y) {
+        return clamp((y - minY) / cellSize, rows);
+    }
+
+    private int cell(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static int clamp(double cell, int cells) {
+        if (!(cell >= 0)) {
+            return 0;
+        }
+        return (int) Math.min(cells - 1, Math.floor(cell));
+    }
+}
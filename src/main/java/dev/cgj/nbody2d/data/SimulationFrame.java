@@ -1,15 +1,58 @@
 package dev.cgj.nbody2d.data;
 
+import dev.cgj.nbody2d.protobuf.Definition.ColumnarFrameProto;
 import dev.cgj.nbody2d.protobuf.Definition.SimulationFrameProto;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 
-public record SimulationFrame(List<Body> bodies) {
+/**
+ * The state of every body at one point in time.
+ *
+ * <p>
+ *   A {@link FrameIndex} over the bodies is built the first time it is needed, such as to look up
+ *   a body by ID or find the bodies in view, and reused after that. The list of bodies must not be
+ *   modified once the frame has been created.
+ * </p>
+ */
+public final class SimulationFrame {
+    private final List<Body> bodies;
+    private volatile FrameIndex index;
+
+    public SimulationFrame(List<Body> bodies) {
+        this.bodies = bodies;
+    }
+
+    public List<Body> bodies() {
+        return bodies;
+    }
+
+    /**
+     * Gets the index over this frame's bodies, building it if this is the first time it has been
+     * needed.
+     */
+    public FrameIndex index() {
+        FrameIndex built = index;
+        if (built == null) {
+            // Frames are immutable, so two threads building the index at once build the same one
+            built = new FrameIndex(bodies);
+            index = built;
+        }
+        return built;
+    }
+
     public static SimulationFrame fromProto(SimulationFrameProto proto) {
+        return fromProto(proto, new BodyRegistry());
+    }
+
+    /**
+     * @param registry shared by every frame read from the same file, so that bodies with legacy
+     *                 string IDs keep the same ID from one frame to the next
+     */
+    public static SimulationFrame fromProto(SimulationFrameProto proto, BodyRegistry registry) {
         List<Body> bodies = proto.getBodiesList().stream()
-                .map(Body::fromProto)
+                .map(body -> Body.fromProto(body, registry))
                 .toList();
         return new SimulationFrame(bodies);
     }
@@ -20,6 +63,53 @@ public record SimulationFrame(List<Body> bodies) {
         return builder.build();
     }
 
+    /**
+     * Reads a frame stored as one array per body property.
+     *
+     * @throws IllegalArgumentException if the arrays are not all the same length
+     */
+    public static SimulationFrame fromColumnarProto(ColumnarFrameProto proto) {
+        int n = proto.getIdCount();
+        if (proto.getXCount() != n || proto.getYCount() != n || proto.getVxCount() != n
+            || proto.getVyCount() != n || proto.getFxCount() != n || proto.getFyCount() != n
+            || proto.getRadiusCount() != n || proto.getMassCount() != n) {
+            throw new IllegalArgumentException("Columnar frame has columns of different lengths");
+        }
+
+        Body[] bodies = new Body[n];
+        for (int i = 0; i < n; i++) {
+            bodies[i] = Body.builder()
+                .id(proto.getId(i))
+                .position(new Vec2(proto.getX(i), proto.getY(i)))
+                .velocity(new Vec2(proto.getVx(i), proto.getVy(i)))
+                .force(new Vec2(proto.getFx(i), proto.getFy(i)))
+                .radius(proto.getRadius(i))
+                .mass(proto.getMass(i))
+                .build();
+        }
+        return new SimulationFrame(List.of(bodies));
+    }
+
+    /**
+     * Converts this frame to one array per body property, which is smaller and faster to encode
+     * and decode than {@link #toProto()}.
+     */
+    public ColumnarFrameProto toColumnarProto() {
+        ColumnarFrameProto.Builder builder = ColumnarFrameProto.newBuilder();
+        for (Body body : bodies) {
+            builder.addId(body.getId())
+                .addX(body.getPosition().x())
+                .addY(body.getPosition().y())
+                .addVx(body.getVelocity().x())
+                .addVy(body.getVelocity().y())
+                .addFx(body.getForce().x())
+                .addFy(body.getForce().y())
+                .addRadius(body.getRadius())
+                .addMass(body.getMass());
+        }
+        return builder.build();
+    }
+
     /**
      * Get the maximum force acting on any {@link Body} in this frame.
      *
@@ -48,9 +138,133 @@ public record SimulationFrame(List<Body> bodies) {
         return maxVelocity;
     }
 
-    public Optional<Body> getById(String id) {
-        return bodies.stream()
-            .filter(body -> Objects.equals(body.getId(), id))
-            .findFirst();
+    /**
+     * Merges the bodies in each cell of a square grid centred on the origin into a single body,
+     * giving a coarse version of this frame which is cheaper to store and draw.
+     *
+     * <p>
+     *   Each merged body has the total mass and force of the bodies in its cell, their mass-weighted
+     *   mean position and velocity, and a radius giving the same total area. Its ID is the index of
+     *   the cell, so a cell keeps the same ID from one frame to the next. Bodies outside the grid are
+     *   merged into the nearest edge cell. Aggregating an aggregated frame into a grid with half as
+     *   many cells along each edge gives the same result, up to rounding, as aggregating the
+     *   original frame.
+     * </p>
+     *
+     * @param boundary distance from the origin to each edge of the grid
+     * @param cells    number of cells along each edge of the grid
+     */
+    public SimulationFrame aggregate(double boundary, int cells) {
+        if (cells < 1) {
+            throw new IllegalArgumentException("Grid must have at least one cell: " + cells);
+        }
+        int[] slots = new int[cells * cells];
+        Arrays.fill(slots, -1);
+        return aggregate(boundary, cells, slots);
+    }
+
+    /**
+     * Same as {@link #aggregate(double, int)}, but reuses a table from each cell to the merged
+     * body it is gathered into, so that aggregating every frame does not allocate one.
+     *
+     * @param slots one entry per cell, every one of them -1, which they are again when this returns
+     */
+    public SimulationFrame aggregate(double boundary, int cells, int[] slots) {
+        if (cells < 1) {
+            throw new IllegalArgumentException("Grid must have at least one cell: " + cells);
+        }
+        if (slots.length != cells * cells) {
+            throw new IllegalArgumentException("Table has " + slots.length + " entries for " + cells * cells + " cells");
+        }
+        double cellSize = 2 * boundary / cells;
+        int n = bodies.size();
+        int[] ids = new int[n];
+        double[] mass = new double[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] vx = new double[n];
+        double[] vy = new double[n];
+        double[] fx = new double[n];
+        double[] fy = new double[n];
+        double[] area = new double[n];
+
+        int count = 0;
+        for (Body body : bodies) {
+            int cellX = cellOf(body.getPosition().x(), boundary, cellSize, cells);
+            int cellY = cellOf(body.getPosition().y(), boundary, cellSize, cells);
+            int id = cellY * cells + cellX;
+            int slot = slots[id];
+            if (slot < 0) {
+                slot = count++;
+                slots[id] = slot;
+                ids[slot] = id;
+            }
+
+            double m = body.getMass();
+            mass[slot] += m;
+            x[slot] += m * body.getPosition().x();
+            y[slot] += m * body.getPosition().y();
+            vx[slot] += m * body.getVelocity().x();
+            vy[slot] += m * body.getVelocity().y();
+            fx[slot] += body.getForce().x();
+            fy[slot] += body.getForce().y();
+            area[slot] += body.getRadius() * body.getRadius();
+        }
+
+        // Order cells by ID so that the result does not depend on the order of the bodies
+        long[] order = new long[count];
+        for (int slot = 0; slot < count; slot++) {
+            order[slot] = (long) ids[slot] << 32 | slot;
+            slots[ids[slot]] = -1;
+        }
+        Arrays.sort(order);
+
+        Body[] merged = new Body[count];
+        for (int i = 0; i < count; i++) {
+            int slot = (int) order[i];
+            double m = mass[slot];
+            merged[i] = Body.builder()
+                .id(ids[slot])
+                .position(new Vec2(x[slot] / m, y[slot] / m))
+                .velocity(new Vec2(vx[slot] / m, vy[slot] / m))
+                .force(new Vec2(fx[slot], fy[slot]))
+                .radius(Math.sqrt(area[slot]))
+                .mass(m)
+                .build();
+        }
+        return new SimulationFrame(List.of(merged));
+    }
+
+    private static int cellOf(double position, double boundary, double cellSize, int cells) {
+        int cell = (int) Math.floor((position + boundary) / cellSize);
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    public Optional<Body> getById(int id) {
+        int i = index().indexOf(id);
+        return i < 0 ? Optional.empty() : Optional.of(bodies.get(i));
+    }
+
+    /**
+     * Gets the body whose centre is closest to a position, or nothing if there are no bodies.
+     */
+    public Optional<Body> nearest(Vec2 position) {
+        int i = index().nearest(position.x(), position.y());
+        return i < 0 ? Optional.empty() : Optional.of(bodies.get(i));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SimulationFrame other && bodies.equals(other.bodies);
+    }
+
+    @Override
+    public int hashCode() {
+        return bodies.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationFrame[bodies=" + bodies + "]";
     }
 }
@@ -11,8 +11,9 @@ public record SimulationHistory(List<SimulationFrame> frames, SimulationConfig c
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     public static SimulationHistory fromProto(SimulationHistoryProto proto) throws JsonProcessingException {
+        BodyRegistry registry = new BodyRegistry();
         List<SimulationFrame> frames = proto.getFramesList().stream()
-            .map(SimulationFrame::fromProto)
+            .map(frame -> SimulationFrame.fromProto(frame, registry))
             .toList();
         return new SimulationHistory(frames, MAPPER.readValue(proto.getConfigYaml(), SimulationConfig.class));
     }
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.With;
 import lombok.extern.jackson.Jacksonized;
 
+import java.util.Random;
+
 @Builder
 @With
 @Jacksonized
@@ -36,7 +38,7 @@ public record Vec2(double x, double y) {
         return new Vec2(x / c, y / c);
     }
 
-    public Vec2 randomOffset(double limit) {
+    public Vec2 randomOffset(double limit, Random random) {
         if (limit < 0) {
             throw new IllegalArgumentException("limit must be greater than or equal to 0");
         }
@@ -46,8 +48,8 @@ public record Vec2(double x, double y) {
         }
 
         // pick a random angle in [0, 2pi) and a random distance in [0, limit)
-        double angle = Math.random() * (2 * Math.PI);
-        double distance = Math.pow(Math.random(), 0.5) * limit;
+        double angle = random.nextDouble() * (2 * Math.PI);
+        double distance = Math.pow(random.nextDouble(), 0.5) * limit;
 
         // calculate (x,y) coordinate of this point and assign to current body
         return new Vec2(
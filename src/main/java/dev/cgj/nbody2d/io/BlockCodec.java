@@ -0,0 +1,56 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.RecordingCompression;
+import dev.cgj.nbody2d.protobuf.Definition.BlockCompressionProto;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses blocks of encoded frames. Implementations must be safe to use from
+ * several threads at once.
+ */
+public interface BlockCodec {
+
+    /**
+     * Compresses the first {@code length} bytes of {@code data}.
+     */
+    byte[] compress(byte[] data, int length) throws IOException;
+
+    /**
+     * @param uncompressedSize the length of the data passed to {@link #compress(byte[], int)}
+     * @throws IOException if the data is corrupt or does not decompress to the expected size
+     */
+    byte[] decompress(byte[] data, int uncompressedSize) throws IOException;
+
+    /**
+     * The value stored in the recording header for this codec.
+     */
+    BlockCompressionProto getType();
+
+    /**
+     * @return the codec for the given compression, or null for {@link RecordingCompression#NONE}
+     */
+    static BlockCodec forCompression(RecordingCompression compression) {
+        return switch (compression) {
+            case NONE -> null;
+            case DEFLATE -> new DeflateBlockCodec();
+            case GZIP -> new GzipBlockCodec();
+        };
+    }
+
+    /**
+     * @return the codec which reads blocks written with the given compression, or null for
+     *         {@link BlockCompressionProto#BLOCK_COMPRESSION_NONE}
+     * @throws IOException if the compression is not supported
+     */
+    static BlockCodec forType(BlockCompressionProto type) throws IOException {
+        if (type == BlockCompressionProto.BLOCK_COMPRESSION_NONE) {
+            return null;
+        } else if (type == BlockCompressionProto.BLOCK_COMPRESSION_DEFLATE) {
+            return new DeflateBlockCodec();
+        } else if (type == BlockCompressionProto.BLOCK_COMPRESSION_GZIP) {
+            return new GzipBlockCodec();
+        }
+        throw new IOException("Unsupported block compression " + type);
+    }
+}
@@ -0,0 +1,158 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.protobuf.Definition.BlockHeaderProto;
+import dev.cgj.nbody2d.protobuf.Definition.BlockIndexProto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Groups encoded frames into blocks, compresses the blocks on a thread pool, and writes them to a
+ * recording in order, followed by a block index. See {@link RecordingFormat} for the layout.
+ *
+ * <p>
+ *   Each block is compressed independently, so a reader can decompress blocks in parallel, or
+ *   start from any block using the index. A limited number of blocks may be waiting for
+ *   compression at once, after which {@link #append(byte[])} waits for the oldest to finish.
+ * </p>
+ */
+final class BlockOutput {
+    private static final int PENDING_BLOCKS_PER_THREAD = 2;
+
+    private record PendingBlock(long firstFrame, int frameCount, int uncompressedSize, Future<byte[]> data) {
+    }
+
+    private final OutputStream stream;
+    private final BlockCodec codec;
+    private final int framesPerBlock;
+    private final ExecutorService pool;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<PendingBlock> pending = new ArrayDeque<>();
+    private final BlockIndexProto.Builder index = BlockIndexProto.newBuilder();
+
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private int blockFrames;
+    private long framesSubmitted;
+
+    /**
+     * Number of bytes in the file so far.
+     */
+    private long position;
+
+    /**
+     * @param stream         receives the blocks
+     * @param position       number of bytes already written to {@code stream}
+     * @param framesPerBlock number of frames in every block but the last, and those written by
+     *                       {@link #flush()}
+     * @param threads        number of threads used to compress blocks, or 0 for one per processor
+     */
+    BlockOutput(OutputStream stream, long position, BlockCodec codec, int framesPerBlock, int threads) {
+        if (framesPerBlock < 1) {
+            throw new IllegalArgumentException("Frames per block must be at least 1: " + framesPerBlock);
+        }
+        int poolSize = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        this.stream = stream;
+        this.position = position;
+        this.codec = codec;
+        this.framesPerBlock = framesPerBlock;
+        this.maxPendingBlocks = poolSize * PENDING_BLOCKS_PER_THREAD;
+        this.pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "recording-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds an encoded frame to the current block, submitting the block for compression once full.
+     */
+    void append(byte[] frame) throws IOException {
+        block.write(frame);
+        if (++blockFrames == framesPerBlock) {
+            submitBlock();
+        }
+    }
+
+    /**
+     * Submits the current block even if it is not full, then waits for every block to be
+     * compressed and written to the stream. Does not flush the stream.
+     */
+    void flush() throws IOException {
+        if (blockFrames > 0) {
+            submitBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeBlock(pending.removeFirst());
+        }
+    }
+
+    /**
+     * Writes the last, possibly partial, block, then the end of the blocks and the index. Does not
+     * close the stream.
+     */
+    void finish() throws IOException {
+        flush();
+
+        write(RecordingFormat.toDelimitedBytes(BlockHeaderProto.getDefaultInstance()));
+        long indexPosition = position;
+        write(RecordingFormat.toDelimitedBytes(index.build()));
+        write(ByteBuffer.allocate(RecordingFormat.FOOTER_SIZE)
+            .putLong(indexPosition)
+            .put(RecordingFormat.INDEX_MAGIC)
+            .array());
+    }
+
+    /**
+     * Stops the compression threads, abandoning any blocks which have not been written.
+     */
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block.toByteArray();
+        pending.addLast(new PendingBlock(framesSubmitted, blockFrames, data.length,
+            pool.submit(() -> codec.compress(data, data.length))));
+        framesSubmitted += blockFrames;
+        block.reset();
+        blockFrames = 0;
+
+        // Blocks must be written in order, so only the oldest is ever waited for
+        while (!pending.isEmpty() && (pending.peekFirst().data().isDone() || pending.size() > maxPendingBlocks)) {
+            writeBlock(pending.removeFirst());
+        }
+    }
+
+    private void writeBlock(PendingBlock pendingBlock) throws IOException {
+        byte[] compressed;
+        try {
+            compressed = pendingBlock.data().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing a block");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress block", e.getCause());
+        }
+
+        index.addOffset(position).addFirstFrame(pendingBlock.firstFrame());
+        write(RecordingFormat.toDelimitedBytes(BlockHeaderProto.newBuilder()
+            .setFrameCount(pendingBlock.frameCount())
+            .setUncompressedSize(pendingBlock.uncompressedSize())
+            .setCompressedSize(compressed.length)
+            .build()));
+        write(compressed);
+    }
+
+    private void write(byte[] data) throws IOException {
+        stream.write(data);
+        position += data.length;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.Checkpoint;
+import dev.cgj.nbody2d.protobuf.Definition.CheckpointProto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads and writes {@link Checkpoint} files: {@link #MAGIC} followed by a {@code CheckpointProto}.
+ */
+public final class CheckpointFile {
+
+    static final byte[] MAGIC = "NBCP".getBytes(StandardCharsets.US_ASCII);
+
+    private CheckpointFile() {
+    }
+
+    /**
+     * @throws IOException if the file cannot be read, or is not a checkpoint
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        if (data.length < MAGIC.length || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException(path + " is not a checkpoint");
+        }
+        CheckpointProto proto = CheckpointProto.parseFrom(ByteBuffer.wrap(data, MAGIC.length, data.length - MAGIC.length));
+        return Checkpoint.fromProto(proto);
+    }
+
+    /**
+     * Replaces the checkpoint at {@code path} so that, even if the process stops part way
+     * through, the file holds either the previous checkpoint or the new one in full. The
+     * checkpoint is written to a temporary file in the same directory, flushed to the disk, and
+     * then moved over the old file.
+     */
+    public static void write(Path path, Checkpoint checkpoint) throws IOException {
+        byte[] data = checkpoint.toProto().toByteArray();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + data.length).put(MAGIC).put(data).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
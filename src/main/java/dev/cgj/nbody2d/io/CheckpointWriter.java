@@ -0,0 +1,90 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.Checkpoint;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes checkpoints with {@link CheckpointFile#write} on a background thread, so that the
+ * simulation does not wait for the disk.
+ *
+ * <p>
+ *   At most one checkpoint waits to be written while another is being written. If the simulation
+ *   takes checkpoints faster than they can be written, the waiting checkpoint is replaced by the
+ *   newer one, so a slow disk makes checkpoints less frequent instead of stalling the simulation.
+ * </p>
+ */
+@Slf4j
+public class CheckpointWriter implements Closeable {
+    private final Path path;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+    private volatile IOException failure;
+
+    public CheckpointWriter(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Queues a checkpoint to be written, replacing any checkpoint which is still waiting.
+     *
+     * @throws IOException if an earlier checkpoint could not be written
+     */
+    public void write(Checkpoint checkpoint) throws IOException {
+        throwIfFailed();
+        if (pending.getAndSet(checkpoint) == null) {
+            executor.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint to be written.
+     *
+     * @throws IOException if any checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Waiting for checkpoint to be written to {}", path);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing checkpoint", e);
+        }
+        throwIfFailed();
+    }
+
+    private void writePending() {
+        Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            CheckpointFile.write(path, checkpoint);
+            log.debug("Checkpoint at step {} written to {}", checkpoint.steps(), path);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Failed to write checkpoint to " + path, e);
+        }
+    }
+}
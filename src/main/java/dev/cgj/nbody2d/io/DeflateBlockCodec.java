@@ -0,0 +1,64 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.protobuf.Definition.BlockCompressionProto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw DEFLATE, without the zlib or GZIP wrapper, since the block header already records sizes.
+ */
+public class DeflateBlockCodec implements BlockCodec {
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    @Override
+    public byte[] compress(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                out.write(chunk, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] out = new byte[uncompressedSize];
+            int size = 0;
+            while (size < uncompressedSize && !inflater.finished()) {
+                int count = inflater.inflate(out, size, uncompressedSize - size);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += count;
+            }
+            if (size != uncompressedSize) {
+                throw new IOException("Block decompressed to " + size + " bytes, expected " + uncompressedSize);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public BlockCompressionProto getType() {
+        return BlockCompressionProto.BLOCK_COMPRESSION_DEFLATE;
+    }
+}
@@ -0,0 +1,234 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.protobuf.Definition.DeltaFrameProto;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes and decodes frames as {@link DeltaFrameProto}, storing each value as the difference from
+ * a prediction based on the previous frame.
+ *
+ * <p>
+ *   A body's position is predicted to be its previous position plus its previous velocity times
+ *   {@code dt}, and every other property is predicted to be unchanged. Values and predictions are
+ *   both mapped to integer codes, and the difference between the codes is stored as a zigzag
+ *   varint, so values which are predicted well take only a byte or two. Bodies which were not in
+ *   the previous frame, and every body in a keyframe, are predicted to be zero.
+ * </p>
+ *
+ * <p>
+ *   With a precision of zero the code is the value's bit pattern, reordered so that nearby
+ *   doubles have nearby codes, and values are reproduced exactly. With a positive precision the
+ *   code is the value divided by the precision and rounded, so values are reproduced to within
+ *   half the precision. The encoder predicts from the values the decoder will reconstruct, so
+ *   rounding errors do not accumulate from one frame to the next.
+ * </p>
+ *
+ * <p>
+ *   A codec holds the state of the previous frame, so each instance must only be used in one
+ *   direction, by one thread, with frames in order.
+ * </p>
+ */
+final class DeltaFrameCodec {
+    private final double dt;
+    private final double positionPrecision;
+    private final double velocityPrecision;
+    private final int keyframeInterval;
+
+    /**
+     * Values reconstructed for each body in the previous frame, indexed by body ID.
+     */
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] vx = new double[0];
+    private double[] vy = new double[0];
+    private double[] fx = new double[0];
+    private double[] fy = new double[0];
+    private double[] radius = new double[0];
+    private double[] mass = new double[0];
+
+    /**
+     * The number of the last frame containing each body ID, or -1 if it has not been seen.
+     */
+    private long[] lastFrame = new long[0];
+    private long frameNumber;
+
+    /**
+     * @param dt                time between frames, used to predict positions
+     * @param positionPrecision positions are rounded to a multiple of this, or stored exactly if 0
+     * @param velocityPrecision velocities are rounded to a multiple of this, or stored exactly if 0
+     * @param keyframeInterval  number of frames from one keyframe to the next when encoding
+     */
+    DeltaFrameCodec(double dt, double positionPrecision, double velocityPrecision, int keyframeInterval) {
+        if (!(positionPrecision >= 0) || !(velocityPrecision >= 0)) {
+            throw new IllegalArgumentException("Precision must not be negative");
+        }
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+        }
+        this.dt = dt;
+        this.positionPrecision = positionPrecision;
+        this.velocityPrecision = velocityPrecision;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Forgets the previous frame, so the next frame is encoded as, or must be, a keyframe.
+     */
+    void reset() {
+        Arrays.fill(lastFrame, -1);
+        frameNumber = 0;
+    }
+
+    DeltaFrameProto encode(SimulationFrame frame) {
+        boolean keyframe = frameNumber % keyframeInterval == 0;
+        DeltaFrameProto.Builder builder = DeltaFrameProto.newBuilder().setKeyframe(keyframe);
+
+        for (Body body : frame.bodies()) {
+            int id = body.getId();
+            ensureCapacity(id + 1);
+            boolean predicted = !keyframe && lastFrame[id] == frameNumber - 1;
+
+            double px = predicted ? x[id] + vx[id] * dt : 0;
+            double py = predicted ? y[id] + vy[id] * dt : 0;
+            double pvx = predicted ? vx[id] : 0;
+            double pvy = predicted ? vy[id] : 0;
+            double pfx = predicted ? fx[id] : 0;
+            double pfy = predicted ? fy[id] : 0;
+            double pRadius = predicted ? radius[id] : 0;
+            double pMass = predicted ? mass[id] : 0;
+
+            builder.addId(id)
+                .addX(residual(body.getPosition().x(), px, positionPrecision))
+                .addY(residual(body.getPosition().y(), py, positionPrecision))
+                .addVx(residual(body.getVelocity().x(), pvx, velocityPrecision))
+                .addVy(residual(body.getVelocity().y(), pvy, velocityPrecision))
+                .addFx(residual(body.getForce().x(), pfx, 0))
+                .addFy(residual(body.getForce().y(), pfy, 0))
+                .addRadius(residual(body.getRadius(), pRadius, 0))
+                .addMass(residual(body.getMass(), pMass, 0));
+
+            x[id] = round(body.getPosition().x(), positionPrecision);
+            y[id] = round(body.getPosition().y(), positionPrecision);
+            vx[id] = round(body.getVelocity().x(), velocityPrecision);
+            vy[id] = round(body.getVelocity().y(), velocityPrecision);
+            fx[id] = body.getForce().x();
+            fy[id] = body.getForce().y();
+            radius[id] = body.getRadius();
+            mass[id] = body.getMass();
+            lastFrame[id] = frameNumber;
+        }
+
+        frameNumber++;
+        return builder.build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame's columns are not all the same length, or it
+     *                                  is not a keyframe and no frame has been decoded before it
+     */
+    SimulationFrame decode(DeltaFrameProto proto) {
+        int n = proto.getIdCount();
+        if (proto.getXCount() != n || proto.getYCount() != n || proto.getVxCount() != n
+            || proto.getVyCount() != n || proto.getFxCount() != n || proto.getFyCount() != n
+            || proto.getRadiusCount() != n || proto.getMassCount() != n) {
+            throw new IllegalArgumentException("Delta frame has columns of different lengths");
+        }
+        boolean keyframe = proto.getKeyframe();
+        if (!keyframe && frameNumber == 0) {
+            throw new IllegalArgumentException("Delta frame must follow another frame");
+        }
+
+        Body[] bodies = new Body[n];
+        for (int i = 0; i < n; i++) {
+            int id = proto.getId(i);
+            ensureCapacity(id + 1);
+            boolean predicted = !keyframe && lastFrame[id] == frameNumber - 1;
+
+            double px = predicted ? x[id] + vx[id] * dt : 0;
+            double py = predicted ? y[id] + vy[id] * dt : 0;
+            double pvx = predicted ? vx[id] : 0;
+            double pvy = predicted ? vy[id] : 0;
+            double pfx = predicted ? fx[id] : 0;
+            double pfy = predicted ? fy[id] : 0;
+            double pRadius = predicted ? radius[id] : 0;
+            double pMass = predicted ? mass[id] : 0;
+
+            x[id] = reconstruct(proto.getX(i), px, positionPrecision);
+            y[id] = reconstruct(proto.getY(i), py, positionPrecision);
+            vx[id] = reconstruct(proto.getVx(i), pvx, velocityPrecision);
+            vy[id] = reconstruct(proto.getVy(i), pvy, velocityPrecision);
+            fx[id] = reconstruct(proto.getFx(i), pfx, 0);
+            fy[id] = reconstruct(proto.getFy(i), pfy, 0);
+            radius[id] = reconstruct(proto.getRadius(i), pRadius, 0);
+            mass[id] = reconstruct(proto.getMass(i), pMass, 0);
+            lastFrame[id] = frameNumber;
+
+            bodies[i] = Body.builder()
+                .id(id)
+                .position(new Vec2(x[id], y[id]))
+                .velocity(new Vec2(vx[id], vy[id]))
+                .force(new Vec2(fx[id], fy[id]))
+                .radius(radius[id])
+                .mass(mass[id])
+                .build();
+        }
+
+        frameNumber++;
+        return new SimulationFrame(List.of(bodies));
+    }
+
+    private static long residual(double value, double predicted, double precision) {
+        return code(value, precision) - code(predicted, precision);
+    }
+
+    private static double reconstruct(long residual, double predicted, double precision) {
+        return value(residual + code(predicted, precision), precision);
+    }
+
+    private static double round(double value, double precision) {
+        return value(code(value, precision), precision);
+    }
+
+    /**
+     * Maps a value to an integer such that nearby values have nearby codes. Differences between
+     * codes may overflow, which is harmless since decoding adds them back with the same wraparound.
+     */
+    private static long code(double value, double precision) {
+        if (precision > 0) {
+            return Math.round(value / precision);
+        }
+        // Flip the magnitude bits of negative values so that codes increase with the value
+        long bits = Double.doubleToRawLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static double value(long code, double precision) {
+        if (precision > 0) {
+            return code * precision;
+        }
+        return Double.longBitsToDouble(code ^ ((code >> 63) & Long.MAX_VALUE));
+    }
+
+    private void ensureCapacity(int size) {
+        if (lastFrame.length >= size) {
+            return;
+        }
+        int capacity = Math.max(size, lastFrame.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        fx = Arrays.copyOf(fx, capacity);
+        fy = Arrays.copyOf(fy, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        int previous = lastFrame.length;
+        lastFrame = Arrays.copyOf(lastFrame, capacity);
+        Arrays.fill(lastFrame, previous, capacity, -1);
+    }
+}
@@ -0,0 +1,29 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.SimulationFrame;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for frames recorded from a running simulation, written in order.
+ */
+public interface FrameSink extends Closeable {
+
+    /**
+     * Appends a frame to the recording. The frame must not be modified afterwards.
+     */
+    void write(SimulationFrame frame) throws IOException;
+
+    /**
+     * Waits for every frame passed to {@link #write(SimulationFrame)} so far to be written to the
+     * recording's files, so that they can be read even if the process stops before the sink is
+     * closed.
+     */
+    void flush() throws IOException;
+
+    /**
+     * @return the number of frames passed to {@link #write(SimulationFrame)} so far
+     */
+    long getFramesWritten();
+}
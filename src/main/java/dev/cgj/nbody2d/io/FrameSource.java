@@ -0,0 +1,76 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.SimulationHistory;
+import dev.cgj.nbody2d.protobuf.Definition.SimulationHistoryProto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded frames, which may be read in any order.
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * The configuration of the simulation which was recorded.
+     */
+    SimulationConfig getConfig();
+
+    int getFrameCount();
+
+    /**
+     * Gets the width of the grid cells which bodies in this recording's frames were merged into,
+     * or 0 if its frames hold every body.
+     */
+    default double getCellSize() {
+        return 0;
+    }
+
+    /**
+     * Reads a frame. Implementations may be faster when frames are read in order.
+     *
+     * @throws IndexOutOfBoundsException if {@code index} is not less than {@link #getFrameCount()}
+     */
+    SimulationFrame getFrame(int index) throws IOException;
+
+    /**
+     * Opens the recording at the given path. Streamed recordings are memory mapped and frames are
+     * decoded as they are read, while legacy recordings (a single {@link SimulationHistoryProto})
+     * are read into memory.
+     */
+    static FrameSource open(Path path) throws IOException {
+        if (RecordingFormat.hasMagic(path)) {
+            return new RecordingReader(path);
+        }
+
+        SimulationHistoryProto proto = SimulationHistoryProto.parseFrom(Files.readAllBytes(path));
+        return new HistoryFrameSource(SimulationHistory.fromProto(proto));
+    }
+
+    /**
+     * Opens the levels of detail recorded alongside the recording at the given path by a
+     * {@link LevelOfDetailSink}, finest first.
+     *
+     * @return an empty list if the recording has no levels of detail
+     */
+    static List<FrameSource> openLevelsOfDetail(Path path) throws IOException {
+        List<FrameSource> levels = new ArrayList<>();
+        try {
+            for (int level = 1; Files.exists(LevelOfDetailSink.levelPath(path, level)); level++) {
+                levels.add(new RecordingReader(LevelOfDetailSink.levelPath(path, level)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FrameSource level : levels) {
+                level.close();
+            }
+            throw e;
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,42 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.protobuf.Definition.BlockCompressionProto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Each block is a complete GZIP member, including a CRC of the uncompressed data.
+ */
+public class GzipBlockCodec implements BlockCodec {
+
+    @Override
+    public byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedSize) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] out = gzip.readNBytes(uncompressedSize);
+            if (out.length != uncompressedSize || gzip.read() != -1) {
+                throw new IOException("Block did not decompress to " + uncompressedSize + " bytes");
+            }
+            return out;
+        }
+    }
+
+    @Override
+    public BlockCompressionProto getType() {
+        return BlockCompressionProto.BLOCK_COMPRESSION_GZIP;
+    }
+}
@@ -0,0 +1,35 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.SimulationHistory;
+
+/**
+ * Reads frames from a {@link SimulationHistory} which is already in memory.
+ */
+public class HistoryFrameSource implements FrameSource {
+    private final SimulationHistory history;
+
+    public HistoryFrameSource(SimulationHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public SimulationConfig getConfig() {
+        return history.config();
+    }
+
+    @Override
+    public int getFrameCount() {
+        return history.frames().size();
+    }
+
+    @Override
+    public SimulationFrame getFrame(int index) {
+        return history.frames().get(index);
+    }
+
+    @Override
+    public void close() {
+    }
+}
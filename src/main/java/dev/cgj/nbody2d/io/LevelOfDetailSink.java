@@ -0,0 +1,272 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.SimulationFrame;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Records coarse levels of detail alongside the full frames, so that a replay zoomed out far
+ * enough can read and draw far fewer bodies.
+ *
+ * <p>
+ *   Level {@code k} merges the bodies in each cell of a grid covering the simulation boundary into
+ *   one body using {@link SimulationFrame#aggregate}, with half as many cells along each edge as
+ *   level {@code k - 1}. Each level is aggregated from the level before it rather than the full
+ *   frame, so only the finest level takes time proportional to the number of bodies. Levels are
+ *   stored as separate recordings named by {@link #levelPath}.
+ * </p>
+ *
+ * <p>
+ *   Full frames are passed straight to their sink, while levels are aggregated and written on a
+ *   background thread which takes frames from a bounded queue, in the same way as
+ *   {@link PipelinedRecordingWriter}. {@link #write(SimulationFrame)} must only be called from one
+ *   thread. If aggregating or writing a level fails, the error is thrown from the next call to
+ *   {@link #write(SimulationFrame)}, {@link #flush()} or {@link #close()}.
+ * </p>
+ */
+@Slf4j
+public class LevelOfDetailSink implements FrameSink {
+
+    /**
+     * Queue entry marking the end of the recording, compared by identity.
+     */
+    private static final SimulationFrame END_OF_FRAMES = new SimulationFrame(List.of());
+
+    /**
+     * Queue entry asking for the levels before it to be flushed, compared by identity.
+     */
+    private static final SimulationFrame FLUSH_FRAMES = new SimulationFrame(List.of());
+
+    /**
+     * Sink for the full frames.
+     */
+    @Getter
+    private final FrameSink frames;
+
+    private final List<FrameSink> levels;
+    private final double boundary;
+    private final int cells;
+    private final BlockingQueue<SimulationFrame> queue;
+    private final Thread levelThread;
+
+    /**
+     * Released by the level thread each time it reaches {@link #FLUSH_FRAMES}.
+     */
+    private final Semaphore flushed = new Semaphore(0);
+
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * @param frames        sink for the full frames
+     * @param levels        sinks for each level of detail, finest first, which are written to on
+     *                      a background thread
+     * @param boundary      distance from the origin to each edge of the grids
+     * @param cells         number of cells along each edge of the finest level's grid, a power of
+     *                      two which can be halved once for every level after the first
+     * @param queueCapacity maximum number of frames waiting for their levels to be written
+     */
+    public LevelOfDetailSink(FrameSink frames, List<FrameSink> levels, double boundary, int cells,
+                             int queueCapacity) {
+        if (cells < 1 || Integer.bitCount(cells) != 1) {
+            throw new IllegalArgumentException("Grid must have a power of two cells: " + cells);
+        }
+        if (levels.size() > Integer.numberOfTrailingZeros(cells) + 1) {
+            throw new IllegalArgumentException("Too many levels for " + cells + " cells: " + levels.size());
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+        }
+        this.frames = frames;
+        this.levels = List.copyOf(levels);
+        this.boundary = boundary;
+        this.cells = cells;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.levelThread = new Thread(this::writeLevels, "recording-levels");
+        levelThread.start();
+    }
+
+    /**
+     * Gets the path of a level of detail of the recording at {@code recording}.
+     *
+     * @param level 1 for the finest level
+     */
+    public static Path levelPath(Path recording, int level) {
+        return recording.resolveSibling(recording.getFileName() + ".lod" + level);
+    }
+
+    /**
+     * Gets the width of the grid cells in a level of detail.
+     *
+     * @param cells number of cells along each edge of the finest level's grid
+     * @param level 1 for the finest level
+     */
+    public static double cellSize(double boundary, int cells, int level) {
+        return 2 * boundary / cellCount(cells, level);
+    }
+
+    @Override
+    public void write(SimulationFrame frame) throws IOException {
+        if (closed) {
+            throw new IOException("Recording writer is closed");
+        }
+        throwIfFailed();
+
+        frames.write(frame);
+        try {
+            queue.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to record a frame");
+        }
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return frames.getFramesWritten();
+    }
+
+    /**
+     * Flushes the full frames, then waits for the level thread to reach every frame written so
+     * far and flushes every level.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IOException("Recording writer is closed");
+        }
+        throwIfFailed();
+
+        frames.flush();
+        try {
+            queue.put(FLUSH_FRAMES);
+            flushed.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the levels of detail");
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Waits for every level to be written, then closes the full recording and every level, even
+     * if closing one of them fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            queue.put(END_OF_FRAMES);
+            levelThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            levelThread.interrupt();
+            fail(new InterruptedIOException("Interrupted while finishing the levels of detail"));
+        }
+        for (FrameSink sink : levels) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        try {
+            frames.close();
+        } catch (IOException e) {
+            IOException levelFailure = failure;
+            if (levelFailure != null) {
+                e.addSuppressed(levelFailure);
+            }
+            throw e;
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Level thread. Each level is aggregated from the one before it, reusing one cell table per
+     * level. Keeps taking frames after a failure so that the simulation thread is never left
+     * waiting on a full queue.
+     */
+    private void writeLevels() {
+        int[][] slots = new int[levels.size()][];
+        for (int i = 0; i < levels.size(); i++) {
+            int count = cellCount(cells, i + 1);
+            slots[i] = new int[count * count];
+            Arrays.fill(slots[i], -1);
+        }
+
+        try {
+            for (SimulationFrame frame = queue.take(); frame != END_OF_FRAMES; frame = queue.take()) {
+                if (frame == FLUSH_FRAMES) {
+                    flushLevels();
+                    flushed.release();
+                    continue;
+                }
+                if (failure != null) {
+                    continue;
+                }
+
+                SimulationFrame coarse = frame;
+                try {
+                    for (int i = 0; i < levels.size(); i++) {
+                        coarse = coarse.aggregate(boundary, cellCount(cells, i + 1), slots[i]);
+                        levels.get(i).write(coarse);
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                } catch (RuntimeException e) {
+                    fail(new IOException("Failed to aggregate level of detail", e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLevels() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            for (FrameSink level : levels) {
+                level.flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records the first failure from any thread.
+     */
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            log.error("Recording levels of detail failed, further frames will be discarded", e);
+            failure = e;
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Recording levels of detail failed", e);
+        }
+    }
+
+    private static int cellCount(int cells, int level) {
+        return cells >> (level - 1);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.cgj.nbody2d.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a whole file. A single {@link MappedByteBuffer} is limited to 2 GiB,
+ * so larger files are mapped as several consecutive segments.
+ */
+final class MappedFile implements Closeable {
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    MappedFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    /**
+     * Reads a big-endian long.
+     */
+    long getLong(long position) {
+        return slice(position, Long.BYTES).getLong(0);
+    }
+
+    /**
+     * Gets {@code length} bytes starting at {@code position}. The result shares memory with the
+     * mapping unless the range crosses from one segment to the next, in which case it is a copy.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the file
+     */
+    ByteBuffer slice(long position, int length) {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("Range " + position + "+" + length + " outside file of " + size + " bytes");
+        }
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        if (offset + length <= segments[segment].limit()) {
+            return segments[segment].slice(offset, length);
+        }
+
+        byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = get(position + i);
+        }
+        return ByteBuffer.wrap(copy);
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once it is no longer referenced.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,48 @@
+package dev.cgj.nbody2d.io;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Measurements from a {@link PipelinedRecordingWriter}, used to tell whether recording is holding
+ * back the simulation.
+ */
+@Value
+@Builder
+public class PipelineStats {
+
+    long frames;
+
+    /**
+     * Capacity of each queue between pipeline stages.
+     */
+    int queueCapacity;
+
+    /**
+     * Frames waiting to be encoded, sampled each time a frame is written.
+     */
+    int maxFrameQueueDepth;
+    double meanFrameQueueDepth;
+
+    /**
+     * Encoded frames waiting to be written to disk, sampled each time a frame is encoded.
+     */
+    int maxEncodedQueueDepth;
+    double meanEncodedQueueDepth;
+
+    /**
+     * Time the simulation thread spent waiting for space in a full queue. Zero means recording
+     * never slowed down the simulation.
+     */
+    long blockedNanos;
+
+    /**
+     * Time spent by the encoder thread converting frames to protobuf.
+     */
+    long encodeNanos;
+
+    /**
+     * Time spent by the writer thread writing encoded frames to the file.
+     */
+    long writeNanos;
+}
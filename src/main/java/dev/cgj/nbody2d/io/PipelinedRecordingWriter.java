@@ -0,0 +1,278 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.SimulationFrame;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Records frames without encoding them or writing them to disk on the simulation thread.
+ *
+ * <p>
+ *   Frames pass through two bounded queues: an encoder thread converts each frame to protobuf, and
+ *   a writer thread appends the encoded bytes to a {@link RecordingWriter}. Writing a frame only
+ *   blocks when the first queue is full, which means frames are being produced faster than they
+ *   can be stored. This backpressure keeps memory use bounded, and the time spent blocked is
+ *   reported by {@link #getStats()}.
+ * </p>
+ *
+ * <p>
+ *   {@link #write(SimulationFrame)} must only be called from one thread. If encoding or writing
+ *   fails, the error is thrown from the next call to {@link #write(SimulationFrame)},
+ *   {@link #flush()} or {@link #close()}.
+ * </p>
+ */
+@Slf4j
+public class PipelinedRecordingWriter implements FrameSink {
+
+    /**
+     * Queue entries marking the end of the recording, compared by identity.
+     */
+    private static final SimulationFrame END_OF_FRAMES = new SimulationFrame(List.of());
+    private static final byte[] END_OF_DATA = new byte[0];
+
+    /**
+     * Queue entries asking for the frames before them to be flushed, compared by identity.
+     */
+    private static final SimulationFrame FLUSH_FRAMES = new SimulationFrame(List.of());
+    private static final byte[] FLUSH_DATA = new byte[0];
+
+    private final RecordingWriter writer;
+    private final int queueCapacity;
+    private final BlockingQueue<SimulationFrame> frames;
+    private final BlockingQueue<byte[]> encoded;
+    private final Thread encoderThread;
+    private final Thread writerThread;
+
+    /**
+     * Released by the writer thread each time it reaches {@link #FLUSH_DATA}.
+     */
+    private final Semaphore flushed = new Semaphore(0);
+
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Updated by the simulation thread.
+     */
+    @Getter
+    private long framesWritten;
+    private long frameDepthTotal;
+    private int maxFrameDepth;
+    private long blockedNanos;
+
+    /**
+     * Updated by the encoder and writer threads respectively.
+     */
+    private volatile long framesEncoded;
+    private volatile long encodedDepthTotal;
+    private volatile int maxEncodedDepth;
+    private volatile long encodeNanos;
+    private volatile long writeNanos;
+
+    /**
+     * @param writer        receives encoded frames on the writer thread, and is closed with this
+     * @param queueCapacity maximum number of frames waiting in each stage of the pipeline
+     */
+    public PipelinedRecordingWriter(RecordingWriter writer, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+        }
+        this.writer = writer;
+        this.queueCapacity = queueCapacity;
+        this.frames = new ArrayBlockingQueue<>(queueCapacity);
+        this.encoded = new ArrayBlockingQueue<>(queueCapacity);
+        this.encoderThread = new Thread(this::encodeFrames, "recording-encoder");
+        this.writerThread = new Thread(this::writeFrames, "recording-writer");
+        encoderThread.start();
+        writerThread.start();
+    }
+
+    @Override
+    public void write(SimulationFrame frame) throws IOException {
+        if (closed) {
+            throw new IOException("Recording writer is closed");
+        }
+        throwIfFailed();
+
+        int depth = frames.size();
+        frameDepthTotal += depth;
+        maxFrameDepth = Math.max(maxFrameDepth, depth);
+
+        if (!frames.offer(frame)) {
+            long start = System.nanoTime();
+            try {
+                frames.put(frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to record a frame");
+            } finally {
+                blockedNanos += System.nanoTime() - start;
+            }
+        }
+        framesWritten++;
+    }
+
+    /**
+     * Waits for the encoder and writer threads to reach every frame written so far, then flushes
+     * the underlying {@link RecordingWriter}.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IOException("Recording writer is closed");
+        }
+        throwIfFailed();
+
+        try {
+            frames.put(FLUSH_FRAMES);
+            flushed.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the recording");
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Waits for every frame to be written, then closes the underlying {@link RecordingWriter}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            frames.put(END_OF_FRAMES);
+            encoderThread.join();
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            encoderThread.interrupt();
+            writerThread.interrupt();
+            fail(new InterruptedIOException("Interrupted while finishing the recording"));
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Gets measurements of the pipeline so far. Encoder and writer figures may lag behind until
+     * the writer is closed.
+     */
+    public PipelineStats getStats() {
+        return PipelineStats.builder()
+            .frames(framesWritten)
+            .queueCapacity(queueCapacity)
+            .maxFrameQueueDepth(maxFrameDepth)
+            .meanFrameQueueDepth((double) frameDepthTotal / Math.max(1, framesWritten))
+            .maxEncodedQueueDepth(maxEncodedDepth)
+            .meanEncodedQueueDepth((double) encodedDepthTotal / Math.max(1, framesEncoded))
+            .blockedNanos(blockedNanos)
+            .encodeNanos(encodeNanos)
+            .writeNanos(writeNanos)
+            .build();
+    }
+
+    /**
+     * Encoder thread. Keeps taking frames after a failure so that the simulation thread is never
+     * left waiting on a full queue.
+     */
+    private void encodeFrames() {
+        try {
+            for (SimulationFrame frame = frames.take(); frame != END_OF_FRAMES; frame = frames.take()) {
+                if (frame == FLUSH_FRAMES) {
+                    writer.endBlock();
+                    encoded.put(FLUSH_DATA);
+                    continue;
+                }
+                if (failure != null) {
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                byte[] data;
+                try {
+                    data = writer.encode(frame);
+                } catch (RuntimeException e) {
+                    fail(new IOException("Failed to encode frame", e));
+                    continue;
+                }
+                encodeNanos += System.nanoTime() - start;
+
+                int depth = encoded.size();
+                encodedDepthTotal += depth;
+                maxEncodedDepth = Math.max(maxEncodedDepth, depth);
+                framesEncoded++;
+                encoded.put(data);
+            }
+            encoded.put(END_OF_DATA);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer thread. Like the encoder, drains its queue after a failure, still answering flushes
+     * so that {@link #flush()} can report the failure.
+     */
+    private void writeFrames() {
+        try {
+            for (byte[] data = encoded.take(); data != END_OF_DATA; data = encoded.take()) {
+                if (failure != null) {
+                    if (data == FLUSH_DATA) {
+                        flushed.release();
+                    }
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    if (data == FLUSH_DATA) {
+                        writer.writeBuffered();
+                    } else {
+                        writer.writeEncoded(data);
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+                writeNanos += System.nanoTime() - start;
+                if (data == FLUSH_DATA) {
+                    flushed.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the first failure from any thread.
+     */
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            log.error("Recording failed, further frames will be discarded", e);
+            failure = e;
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Recording failed", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package dev.cgj.nbody2d.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.MessageLite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Constants shared by the recording reader and writer.
+ *
+ * <p>
+ *   A recording starts with {@link #MAGIC}, followed by a length-delimited
+ *   {@code RecordingHeaderProto} and then one length-delimited frame message per frame. The header
+ *   records which message is used for frames. Files without the magic number are legacy
+ *   recordings, which hold a single {@code SimulationHistoryProto}.
+ * </p>
+ *
+ * <p>
+ *   Compressed recordings instead follow the header with blocks, each a length-delimited
+ *   {@code BlockHeaderProto} and the compressed frames it describes. An empty block header ends the
+ *   blocks.
+ * </p>
+ *
+ * <p>
+ *   When the writer is closed, an index follows the frames: a table of big-endian 64-bit frame
+ *   positions for uncompressed recordings, or a length-delimited {@code BlockIndexProto} for
+ *   compressed recordings. The last {@link #FOOTER_SIZE} bytes hold the position of the index and
+ *   {@link #INDEX_MAGIC}. A recording without the footer, because the writer was not closed, can
+ *   still be read by scanning it from the start.
+ * </p>
+ */
+final class RecordingFormat {
+
+    static final byte[] MAGIC = "NB2D".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Version 1 recordings store frames as {@code SimulationFrameProto}. From version 2, the header
+     * names the frame encoding. Version 3 adds optional block compression, and version 4 adds the
+     * index to uncompressed recordings.
+     */
+    static final int VERSION = 4;
+
+    /**
+     * Last bytes of a recording which was closed properly, and so has an index.
+     */
+    static final byte[] INDEX_MAGIC = "NBIX".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Size of the index position and {@link #INDEX_MAGIC} at the end of a recording.
+     */
+    static final int FOOTER_SIZE = Long.BYTES + 4;
+
+    /**
+     * Used to store the simulation config in the header, in the same way as legacy recordings.
+     */
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private RecordingFormat() {
+    }
+
+    /**
+     * Encodes a message with its length prefixed, as written by {@code writeDelimitedTo}.
+     */
+    static byte[] toDelimitedBytes(MessageLite message) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            message.writeDelimitedTo(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return true if the file at the given path starts with {@link #MAGIC}
+     */
+    static boolean hasMagic(Path path) throws IOException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return Arrays.equals(stream.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+}
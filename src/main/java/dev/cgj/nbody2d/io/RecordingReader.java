@@ -0,0 +1,394 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.BodyRegistry;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.protobuf.Definition.BlockHeaderProto;
+import dev.cgj.nbody2d.protobuf.Definition.BlockIndexProto;
+import dev.cgj.nbody2d.protobuf.Definition.ColumnarFrameProto;
+import dev.cgj.nbody2d.protobuf.Definition.DeltaFrameProto;
+import dev.cgj.nbody2d.protobuf.Definition.FrameEncodingProto;
+import dev.cgj.nbody2d.protobuf.Definition.RecordingHeaderProto;
+import dev.cgj.nbody2d.protobuf.Definition.SimulationFrameProto;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads any frame of a recording written by {@link RecordingWriter}, using a memory mapping of the
+ * file so that only the frames which are read are decoded.
+ *
+ * <p>
+ *   Opening a recording with an index takes the same time regardless of its length: the frame
+ *   table of an uncompressed recording is read from the mapping as needed, and only the much
+ *   smaller block index of a compressed recording is loaded. A recording without an index, because
+ *   its writer was not closed or it predates the index, is scanned once when opened, and ends at
+ *   the last complete frame or block.
+ * </p>
+ *
+ * <p>
+ *   Reading frames in order is cheapest. A delta-encoded frame is decoded from the keyframe before
+ *   it unless the previous frame was the last one read, and a frame in a compressed block needs the
+ *   block to be decompressed unless it is the block last read from.
+ * </p>
+ */
+@Slf4j
+public class RecordingReader implements FrameSource {
+
+    /**
+     * Location of a length-delimited message in the file or a block, excluding the length.
+     */
+    private record Delimited(long start, int length) {
+        long end() {
+            return start + length;
+        }
+    }
+
+    private final Path path;
+    private final MappedFile file;
+    private final BodyRegistry registry = new BodyRegistry();
+
+    @Getter
+    private final SimulationConfig config;
+
+    @Getter
+    private final int frameCount;
+
+    @Getter
+    private final double cellSize;
+
+    private final FrameEncodingProto encoding;
+
+    /**
+     * Only set for {@link FrameEncodingProto#FRAME_ENCODING_DELTA}.
+     */
+    private final DeltaFrameCodec deltaCodec;
+    private final int keyframeInterval;
+
+    /**
+     * Only set for compressed recordings.
+     */
+    private final BlockCodec blockCodec;
+
+    /**
+     * Position of the fixed-width frame table in an uncompressed recording, or -1 if the recording
+     * had no index and {@link #offsets} was filled by scanning it instead.
+     */
+    private long frameTable = -1;
+
+    /**
+     * Frame positions when {@link #frameTable} is not used, or block positions when compressed.
+     */
+    private long[] offsets = new long[0];
+    private long[] blockFirstFrames = new long[0];
+
+    /**
+     * The most recently decompressed block, and the location of each frame within it.
+     */
+    private int loadedBlock = -1;
+    private ByteBuffer blockData;
+    private int[] blockFrameStarts;
+    private int[] blockFrameLengths;
+
+    /**
+     * The frame most recently decoded by {@link #deltaCodec}, or -1.
+     */
+    private int decodedFrame = -1;
+
+    /**
+     * @throws IOException if the file cannot be read, or is not a recording
+     */
+    public RecordingReader(Path path) throws IOException {
+        this.path = path;
+        this.file = new MappedFile(path);
+        try {
+            byte[] magic = new byte[RecordingFormat.MAGIC.length];
+            if (file.size() >= magic.length) {
+                file.slice(0, magic.length).get(magic);
+            }
+            if (!Arrays.equals(magic, RecordingFormat.MAGIC)) {
+                throw new IOException(path + " is not a recording");
+            }
+
+            Delimited headerMessage = readDelimited(magic.length, file.size());
+            if (headerMessage == null) {
+                throw new IOException("Recording has no header");
+            }
+            RecordingHeaderProto header = RecordingHeaderProto.parseFrom(
+                file.slice(headerMessage.start(), headerMessage.length()));
+            if (header.getVersion() > RecordingFormat.VERSION) {
+                throw new IOException("Unsupported recording version " + header.getVersion());
+            }
+            encoding = header.getEncoding();
+            if (encoding != FrameEncodingProto.FRAME_ENCODING_BODIES
+                && encoding != FrameEncodingProto.FRAME_ENCODING_COLUMNAR
+                && encoding != FrameEncodingProto.FRAME_ENCODING_DELTA) {
+                throw new IOException("Unsupported frame encoding " + header.getEncodingValue());
+            }
+            config = RecordingFormat.MAPPER.readValue(header.getConfigYaml(), SimulationConfig.class);
+            cellSize = header.getCellSize();
+            keyframeInterval = Math.max(1, header.getKeyframeInterval());
+            deltaCodec = encoding != FrameEncodingProto.FRAME_ENCODING_DELTA ? null
+                : new DeltaFrameCodec(config.getDt(), header.getPositionPrecision(),
+                    header.getVelocityPrecision(), keyframeInterval);
+            blockCodec = BlockCodec.forType(header.getCompression());
+
+            long indexPosition = readIndexPosition();
+            if (blockCodec != null) {
+                frameCount = indexPosition >= 0 ? readBlockIndex(indexPosition) : scanBlocks(headerMessage.end());
+            } else if (indexPosition >= 0) {
+                frameTable = indexPosition;
+                frameCount = (int) ((file.size() - RecordingFormat.FOOTER_SIZE - indexPosition) / Long.BYTES);
+            } else {
+                frameCount = scanFrames(headerMessage.end());
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized SimulationFrame getFrame(int index) throws IOException {
+        Objects.checkIndex(index, frameCount);
+        if (deltaCodec == null) {
+            return decode(frameData(index));
+        }
+
+        // Continue from the last frame decoded if possible, otherwise start again at a keyframe
+        int keyframe = keyframeBefore(index);
+        int from = decodedFrame >= keyframe && decodedFrame < index ? decodedFrame + 1 : keyframe;
+        if (from == keyframe) {
+            deltaCodec.reset();
+        }
+        decodedFrame = -1;
+
+        SimulationFrame frame = null;
+        for (int i = from; i <= index; i++) {
+            frame = deltaCodec.decode(DeltaFrameProto.parseFrom(frameData(i)));
+            decodedFrame = i;
+        }
+        return frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private SimulationFrame decode(ByteBuffer data) throws IOException {
+        if (encoding == FrameEncodingProto.FRAME_ENCODING_COLUMNAR) {
+            return SimulationFrame.fromColumnarProto(ColumnarFrameProto.parseFrom(data));
+        }
+        return SimulationFrame.fromProto(SimulationFrameProto.parseFrom(data), registry);
+    }
+
+    /**
+     * Gets the encoded message for a frame, without its length.
+     */
+    private ByteBuffer frameData(int index) throws IOException {
+        if (blockCodec == null) {
+            long offset = frameTable >= 0 ? file.getLong(frameTable + (long) index * Long.BYTES) : offsets[index];
+            Delimited frame = readDelimited(offset, file.size());
+            if (frame == null) {
+                throw new IOException("Frame " + index + " extends past the end of " + path);
+            }
+            return file.slice(frame.start(), frame.length());
+        }
+
+        int block = blockOf(index);
+        loadBlock(block);
+        int frame = (int) (index - blockFirstFrames[block]);
+        return blockData.slice(blockFrameStarts[frame], blockFrameLengths[frame]);
+    }
+
+    /**
+     * Gets the keyframe which a delta-encoded frame must be decoded from. The writer starts a new
+     * keyframe interval at the start of every block.
+     */
+    private int keyframeBefore(int index) {
+        long first = blockCodec == null ? 0 : blockFirstFrames[blockOf(index)];
+        return (int) (index - (index - first) % keyframeInterval);
+    }
+
+    private int blockOf(int index) {
+        int block = Arrays.binarySearch(blockFirstFrames, index);
+        return block >= 0 ? block : -block - 2;
+    }
+
+    private void loadBlock(int block) throws IOException {
+        if (block == loadedBlock) {
+            return;
+        }
+        Delimited headerMessage = readDelimited(offsets[block], file.size());
+        if (headerMessage == null) {
+            throw new IOException("Block " + block + " extends past the end of " + path);
+        }
+        BlockHeaderProto header = BlockHeaderProto.parseFrom(file.slice(headerMessage.start(), headerMessage.length()));
+        byte[] compressed = new byte[header.getCompressedSize()];
+        file.slice(headerMessage.end(), compressed.length).get(compressed);
+        byte[] data = blockCodec.decompress(compressed, header.getUncompressedSize());
+
+        int count = header.getFrameCount();
+        int[] starts = new int[count];
+        int[] lengths = new int[count];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                length |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            starts[i] = position;
+            lengths[i] = length;
+            position += length;
+        }
+
+        loadedBlock = block;
+        blockData = buffer;
+        blockFrameStarts = starts;
+        blockFrameLengths = lengths;
+    }
+
+    private BlockHeaderProto readLastBlockHeader() throws IOException {
+        int block = offsets.length - 1;
+        Delimited headerMessage = readDelimited(offsets[block], file.size());
+        if (headerMessage == null) {
+            throw new IOException("Block " + block + " extends past the end of " + path);
+        }
+        return BlockHeaderProto.parseFrom(file.slice(headerMessage.start(), headerMessage.length()));
+    }
+
+    /**
+     * @return the position of the index, or -1 if the recording does not end with a footer
+     */
+    private long readIndexPosition() {
+        long footer = file.size() - RecordingFormat.FOOTER_SIZE;
+        if (footer < RecordingFormat.MAGIC.length) {
+            return -1;
+        }
+        byte[] magic = new byte[RecordingFormat.INDEX_MAGIC.length];
+        file.slice(footer + Long.BYTES, magic.length).get(magic);
+        if (!Arrays.equals(magic, RecordingFormat.INDEX_MAGIC)) {
+            return -1;
+        }
+        long position = file.getLong(footer);
+        return position >= 0 && position <= footer ? position : -1;
+    }
+
+    /**
+     * Loads the block index of a compressed recording.
+     *
+     * @return the number of frames
+     */
+    private int readBlockIndex(long indexPosition) throws IOException {
+        Delimited indexMessage = readDelimited(indexPosition, file.size());
+        if (indexMessage == null) {
+            throw new IOException("Recording has a corrupt block index");
+        }
+        BlockIndexProto index = BlockIndexProto.parseFrom(file.slice(indexMessage.start(), indexMessage.length()));
+        offsets = index.getOffsetList().stream().mapToLong(Long::longValue).toArray();
+        blockFirstFrames = index.getFirstFrameList().stream().mapToLong(Long::longValue).toArray();
+        if (offsets.length == 0) {
+            return 0;
+        }
+
+        return Math.toIntExact(blockFirstFrames[offsets.length - 1] + readLastBlockHeader().getFrameCount());
+    }
+
+    /**
+     * Finds every complete block in a compressed recording without an index.
+     *
+     * @return the number of frames
+     */
+    private int scanBlocks(long position) throws IOException {
+        long[] blockOffsets = new long[16];
+        long[] firstFrames = new long[16];
+        int blocks = 0;
+        long frames = 0;
+
+        while (true) {
+            Delimited headerMessage = readDelimited(position, file.size());
+            if (headerMessage == null) {
+                break;
+            }
+            BlockHeaderProto header = BlockHeaderProto.parseFrom(file.slice(headerMessage.start(), headerMessage.length()));
+            if (header.getFrameCount() == 0) {
+                break;
+            }
+            if (headerMessage.end() + header.getCompressedSize() > file.size()) {
+                log.warn("Recording {} ends with an incomplete block", path);
+                break;
+            }
+
+            if (blocks == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+                firstFrames = Arrays.copyOf(firstFrames, blocks * 2);
+            }
+            blockOffsets[blocks] = position;
+            firstFrames[blocks] = frames;
+            blocks++;
+            frames += header.getFrameCount();
+            position = headerMessage.end() + header.getCompressedSize();
+        }
+
+        offsets = Arrays.copyOf(blockOffsets, blocks);
+        blockFirstFrames = Arrays.copyOf(firstFrames, blocks);
+        return Math.toIntExact(frames);
+    }
+
+    /**
+     * Finds every complete frame in an uncompressed recording without an index.
+     *
+     * @return the number of frames
+     */
+    private int scanFrames(long position) {
+        long[] frameOffsets = new long[1024];
+        int frames = 0;
+
+        while (position < file.size()) {
+            Delimited frame = readDelimited(position, file.size());
+            if (frame == null) {
+                log.warn("Recording {} ends with an incomplete frame", path);
+                break;
+            }
+            if (frames == frameOffsets.length) {
+                frameOffsets = Arrays.copyOf(frameOffsets, frames * 2);
+            }
+            frameOffsets[frames++] = position;
+            position = frame.end();
+        }
+
+        offsets = Arrays.copyOf(frameOffsets, frames);
+        return frames;
+    }
+
+    /**
+     * Reads the length prefix of a message starting at {@code position}.
+     *
+     * @return null if the message does not end before {@code limit}
+     */
+    private Delimited readDelimited(long position, long limit) {
+        int length = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= limit) {
+                return null;
+            }
+            byte b = file.get(position++);
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return length >= 0 && position + length <= limit ? new Delimited(position, length) : null;
+            }
+        }
+        return null;
+    }
+}
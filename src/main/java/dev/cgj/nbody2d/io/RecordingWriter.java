@@ -0,0 +1,228 @@
+package dev.cgj.nbody2d.io;
+
+import com.google.protobuf.MessageLite;
+import dev.cgj.nbody2d.config.RecordingConfig;
+import dev.cgj.nbody2d.config.RecordingEncoding;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.protobuf.Definition.FrameEncodingProto;
+import dev.cgj.nbody2d.protobuf.Definition.RecordingHeaderProto;
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes a recording one frame at a time as the simulation runs, so memory use does not depend on
+ * the number of frames. If the process stops before the writer is closed, every frame which
+ * reached the file can still be read, and {@link #flush()} makes sure the frames so far have. See
+ * {@link RecordingFormat} for the file layout.
+ */
+public class RecordingWriter implements FrameSink {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream stream;
+
+    /**
+     * Only set for {@link RecordingEncoding#DELTA}.
+     */
+    private final DeltaFrameCodec deltaCodec;
+
+    /**
+     * Only set for compressed recordings.
+     */
+    private final BlockOutput blocks;
+    private final int framesPerBlock;
+
+    /**
+     * Only used for uncompressed recordings: the position of each frame, written as the index when
+     * the writer is closed.
+     */
+    private long[] frameOffsets = new long[1024];
+    private long position;
+
+    /**
+     * Number of frames encoded since the start of the current compressed block.
+     */
+    private int blockFramesEncoded;
+    private boolean closed;
+
+    @Getter
+    private long framesWritten;
+
+    /**
+     * Creates or replaces the file at {@code path} and writes the header. Frames are stored with
+     * the default {@link RecordingConfig}.
+     */
+    public RecordingWriter(Path path, SimulationConfig config) throws IOException {
+        this(path, config, RecordingConfig.builder().build());
+    }
+
+    /**
+     * Creates or replaces the file at {@code path} and writes the header.
+     *
+     * @param recording chooses how frames are encoded and compressed
+     */
+    public RecordingWriter(Path path, SimulationConfig config, RecordingConfig recording) throws IOException {
+        this(path, config, recording, 0);
+    }
+
+    /**
+     * Creates or replaces the file at {@code path} and writes the header of a level of detail
+     * recording, whose frames hold bodies merged by {@link SimulationFrame#aggregate}.
+     *
+     * @param cellSize width of the grid cells which bodies are merged into, or 0 if frames hold
+     *                 every body
+     */
+    public RecordingWriter(Path path, SimulationConfig config, RecordingConfig recording, double cellSize) throws IOException {
+        RecordingHeaderProto.Builder header = RecordingHeaderProto.newBuilder()
+            .setVersion(RecordingFormat.VERSION)
+            .setConfigYaml(RecordingFormat.MAPPER.writeValueAsString(config))
+            .setCellSize(cellSize);
+
+        if (recording.getEncoding() == RecordingEncoding.DELTA) {
+            deltaCodec = new DeltaFrameCodec(config.getDt(), recording.getPositionPrecision(),
+                recording.getVelocityPrecision(), recording.getKeyframeInterval());
+            header.setEncoding(FrameEncodingProto.FRAME_ENCODING_DELTA)
+                .setPositionPrecision(recording.getPositionPrecision())
+                .setVelocityPrecision(recording.getVelocityPrecision())
+                .setKeyframeInterval(recording.getKeyframeInterval());
+        } else {
+            deltaCodec = null;
+            header.setEncoding(FrameEncodingProto.FRAME_ENCODING_COLUMNAR);
+        }
+
+        BlockCodec codec = BlockCodec.forCompression(recording.getCompression());
+        framesPerBlock = recording.getFramesPerBlock();
+        if (codec != null) {
+            header.setCompression(codec.getType()).setFramesPerBlock(framesPerBlock);
+        }
+        byte[] headerBytes = RecordingFormat.toDelimitedBytes(header.build());
+
+        stream = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+        try {
+            stream.write(RecordingFormat.MAGIC);
+            stream.write(headerBytes);
+            position = RecordingFormat.MAGIC.length + headerBytes.length;
+            blocks = codec == null ? null : new BlockOutput(stream, position, codec, framesPerBlock,
+                recording.getCompressionThreads());
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(SimulationFrame frame) throws IOException {
+        writeEncoded(encode(frame));
+    }
+
+    /**
+     * Appends a frame which was already encoded by {@link #encode(SimulationFrame)}.
+     */
+    void writeEncoded(byte[] frame) throws IOException {
+        if (blocks != null) {
+            blocks.append(frame);
+        } else {
+            if (framesWritten == frameOffsets.length) {
+                frameOffsets = Arrays.copyOf(frameOffsets, frameOffsets.length * 2);
+            }
+            frameOffsets[(int) framesWritten] = position;
+            stream.write(frame);
+            position += frame.length;
+        }
+        framesWritten++;
+    }
+
+    /**
+     * Encodes a frame exactly as {@link #write(SimulationFrame)} would write it, so that encoding
+     * can happen on a different thread to writing. Frames must be encoded in order, one at a time,
+     * since the delta encoding depends on the previous frame.
+     */
+    byte[] encode(SimulationFrame frame) {
+        // Blocks must be readable on their own, so each one starts with a keyframe
+        if (deltaCodec != null && blocks != null && blockFramesEncoded == 0) {
+            deltaCodec.reset();
+        }
+        blockFramesEncoded = (blockFramesEncoded + 1) % framesPerBlock;
+        return RecordingFormat.toDelimitedBytes(toMessage(frame));
+    }
+
+    /**
+     * Writes every frame so far to the file, so that they can be read even if the process stops
+     * before the writer is closed. A partial compressed block is written as it is, and the next
+     * frame starts a new block.
+     */
+    @Override
+    public void flush() throws IOException {
+        endBlock();
+        writeBuffered();
+    }
+
+    /**
+     * Makes the next frame passed to {@link #encode(SimulationFrame)} the first of a new block. The
+     * frames encoded so far must be passed to {@link #writeBuffered()} before any later ones are
+     * written, so that the block ends where the encoding expects.
+     */
+    void endBlock() {
+        blockFramesEncoded = 0;
+    }
+
+    /**
+     * Writes every frame passed to {@link #writeEncoded(byte[])} so far to the file, ending the
+     * current compressed block early.
+     */
+    void writeBuffered() throws IOException {
+        if (blocks != null) {
+            blocks.flush();
+        }
+        stream.flush();
+    }
+
+    /**
+     * Writes any remaining frames and the index, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try (stream) {
+            if (blocks != null) {
+                blocks.finish();
+            } else {
+                writeFrameIndex();
+            }
+        } finally {
+            if (blocks != null) {
+                blocks.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes the position of every frame as a fixed-width table, so that a reader can find any
+     * frame without loading the whole table, followed by the footer.
+     */
+    private void writeFrameIndex() throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        for (int i = 0; i < framesWritten; i++) {
+            stream.write(entry.clear().putLong(frameOffsets[i]).array());
+        }
+        stream.write(ByteBuffer.allocate(RecordingFormat.FOOTER_SIZE)
+            .putLong(position)
+            .put(RecordingFormat.INDEX_MAGIC)
+            .array());
+    }
+
+    private MessageLite toMessage(SimulationFrame frame) {
+        return deltaCodec != null ? deltaCodec.encode(frame) : frame.toColumnarProto();
+    }
+}
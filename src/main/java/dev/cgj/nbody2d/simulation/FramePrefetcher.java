@@ -0,0 +1,144 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.io.FrameSource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decodes the frames just ahead of a replay's playhead on a background thread, so that they are
+ * usually ready before they are needed.
+ *
+ * <p>
+ *   The frames read ahead are those the replay will reach next at its current speed and direction:
+ *   the frame at the playhead, then every {@code stride} frames after it, wrapping around at either
+ *   end of the recording, up to {@code capacity} frames. Frames outside this window are discarded
+ *   when the playhead moves, so memory use is bounded regardless of the recording's length.
+ * </p>
+ */
+final class FramePrefetcher implements Closeable {
+    private final FrameSource source;
+    private final int frameCount;
+
+    /**
+     * Frames decoded or waiting to be decoded, all guarded by this object's lock.
+     */
+    private final Map<Integer, CompletableFuture<SimulationFrame>> frames = new HashMap<>();
+    private final int[] window;
+    private boolean closed;
+
+    /**
+     * @param capacity maximum number of frames to decode ahead of the playhead, including the frame
+     *                 at the playhead
+     */
+    FramePrefetcher(FrameSource source, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Prefetch capacity must be at least 1: " + capacity);
+        }
+        this.source = source;
+        this.frameCount = source.getFrameCount();
+        this.window = new int[Math.min(capacity, frameCount)];
+        moveTo(0, 1);
+
+        Thread thread = new Thread(this::run, "replay-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Moves the window of frames to read ahead, discarding any decoded frames outside it.
+     *
+     * @param playhead the frame to start reading from
+     * @param stride   the number of frames from one frame to the next, negative when the replay is
+     *                 playing in reverse
+     */
+    synchronized void moveTo(int playhead, int stride) {
+        for (int k = 0; k < window.length; k++) {
+            window[k] = Math.floorMod(playhead + (long) k * stride, frameCount);
+        }
+        frames.entrySet().removeIf(entry -> entry.getValue().isDone() && !inWindow(entry.getKey()));
+        notifyAll();
+    }
+
+    /**
+     * Gets a frame, which completes once it has been decoded. The frame is decoded next if it is
+     * the first in the window and otherwise in window order, or after every frame in the window if
+     * it is outside it.
+     */
+    synchronized CompletableFuture<SimulationFrame> get(int index) {
+        CompletableFuture<SimulationFrame> frame = frames.computeIfAbsent(index, i -> new CompletableFuture<>());
+        notifyAll();
+        return frame;
+    }
+
+    /**
+     * Stops reading ahead, cancelling any frames which have not yet been decoded.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        frames.values().forEach(frame -> frame.cancel(false));
+        notifyAll();
+    }
+
+    private void run() {
+        while (true) {
+            int index;
+            CompletableFuture<SimulationFrame> frame;
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        return;
+                    }
+                    index = nextFrame();
+                    if (index >= 0) {
+                        break;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                frame = frames.computeIfAbsent(index, i -> new CompletableFuture<>());
+            }
+
+            // Decode without holding the lock so that the playhead can move in the meantime
+            try {
+                frame.complete(source.getFrame(index));
+            } catch (Exception e) {
+                frame.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * @return the next frame to decode, or -1 if every frame needed has been decoded
+     */
+    private int nextFrame() {
+        for (int index : window) {
+            CompletableFuture<SimulationFrame> frame = frames.get(index);
+            if (frame == null || !frame.isDone()) {
+                return index;
+            }
+        }
+        for (Map.Entry<Integer, CompletableFuture<SimulationFrame>> entry : frames.entrySet()) {
+            if (!entry.getValue().isDone()) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    private boolean inWindow(int index) {
+        for (int k : window) {
+            if (k == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,40 @@
+package dev.cgj.nbody2d.simulation;
+
+/**
+ * Controls for a simulation which plays back a fixed sequence of frames, such as a recording.
+ */
+public interface PlaybackControls {
+
+    int getFrameCount();
+
+    /**
+     * Gets the index of the frame currently shown by {@link Simulation#currentFrame()}.
+     */
+    int getFrameIndex();
+
+    /**
+     * Moves playback to the given frame. The current frame may not change immediately if the
+     * frame has not been read yet.
+     *
+     * @param frameIndex index of the frame to show, which wraps around at either end of the
+     *                   recording
+     */
+    void seek(int frameIndex);
+
+    /**
+     * Gets the number of frames advanced by each step.
+     */
+    int getSpeed();
+
+    /**
+     * @param speed number of frames to advance by each step, at least 1
+     */
+    void setSpeed(int speed);
+
+    boolean isReversed();
+
+    /**
+     * @param reversed true to step backwards through the frames
+     */
+    void setReversed(boolean reversed);
+}
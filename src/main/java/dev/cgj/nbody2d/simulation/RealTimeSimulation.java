@@ -4,35 +4,82 @@ import dev.cgj.nbody2d.config.BoundaryType;
 import dev.cgj.nbody2d.config.InitialBodyConfig;
 import dev.cgj.nbody2d.config.SimulationConfig;
 import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.Checkpoint;
 import dev.cgj.nbody2d.data.SimulationFrame;
 import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.simulation.collision.OverlapMerger;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.simulation.integrator.Integrator;
 import dev.cgj.nbody2d.util.BoundedQueue;
+import dev.cgj.nbody2d.util.ConcurrentBitSet;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.Random;
 
 /**
- * Brute-force 2-dimensional Newtonian Gravity n-body simulation.
+ * 2-dimensional Newtonian Gravity n-body simulation. Forces are calculated by the
+ * {@link ForceSolver} selected in the {@link SimulationConfig}.
+ *
+ * <p>
+ *   A simulation stepping on more than one thread owns a thread pool, which is stopped by
+ *   {@link #close()}.
+ * </p>
  */
 @Slf4j
 @Getter
-public class RealTimeSimulation implements Simulation {
+public class RealTimeSimulation implements Simulation, AutoCloseable {
 
     private final SimulationConfig config;
     private final int historyLength;
+    private final ParallelExecutor executor;
+    private final ForceSolver forceSolver;
+    private final Integrator integrator;
+    private final OverlapMerger merger;
 
-    private BoundedQueue<SimulationFrame> frames;
-    private Set<String> inactiveBodiesIds;
+    /**
+     * Applies the boundary to a range of bodies. Created once so that stepping does not allocate
+     * a new task each time.
+     */
+    @Getter(AccessLevel.NONE)
+    private final ParallelExecutor.RangeTask boundaryTask = this::applyBoundaries;
+
+    /**
+     * Set during a step if any body was moved or stopped by the boundary.
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile boolean boundaryApplied;
+
+    /**
+     * Frames from the most recent steps, which the viewer reads without blocking stepping. Cleared
+     * rather than replaced on reset, so that readers never see a stale queue.
+     */
+    private final BoundedQueue<SimulationFrame> frames;
+
+    private final TrailStore trails = new TrailStore();
+
+    /**
+     * IDs of bodies which have become inactive since the last step, and should be removed.
+     */
+    private ConcurrentBitSet inactiveBodies;
+
+    /**
+     * Current state of every body, updated in place by {@link #step()}.
+     */
+    private BodyStore bodies;
+
+    /**
+     * Scratch space used to flag inactive bodies for removal, indexed the same as {@link #bodies}.
+     */
+    @Getter(AccessLevel.NONE)
+    private boolean[] removed;
 
     /**
      * The amount of simulated time that has passed so far (seconds).
@@ -40,29 +87,72 @@ public class RealTimeSimulation implements Simulation {
     @Setter
     private long timeElapsed;
 
+    /**
+     * The number of steps taken since the initial state.
+     */
+    private long steps;
+
+    /**
+     * Seed for {@link #random}, which is only used to generate the initial state.
+     */
+    private final long seed;
+
+    @Getter(AccessLevel.NONE)
+    private Random random;
+
     public RealTimeSimulation(SimulationConfig config, int historyLength) {
+        this(config, historyLength, config.getSeed() != null ? config.getSeed() : new Random().nextLong());
+        reset();
+    }
+
+    /**
+     * Continues a simulation from a checkpoint taken by {@link #checkpoint()}. Stepping from here
+     * gives the same results as the original simulation would have.
+     */
+    public RealTimeSimulation(Checkpoint checkpoint, int historyLength) {
+        this(checkpoint.config(), historyLength, checkpoint.seed());
+        restore(checkpoint);
+    }
+
+    private RealTimeSimulation(SimulationConfig config, int historyLength, long seed) {
         this.config = config;
         this.historyLength = historyLength;
-        reset();
+        this.seed = seed;
+        this.frames = new BoundedQueue<>(historyLength);
+        this.executor = new ParallelExecutor(config.getThreads());
+        this.forceSolver = ForceSolver.forConfig(config, executor);
+        this.integrator = Integrator.forConfig(config, forceSolver, executor);
+        this.merger = new OverlapMerger(executor);
+        log.info("Stepping with {} thread(s)", executor.getParallelism());
     }
 
+    /**
+     * Regenerates the initial state. The same seed is used each time, so the initial state is
+     * always the same.
+     */
     public void reset() {
         int n = config.getInitialState().stream()
             .mapToInt(InitialBodyConfig::getN)
             .sum();
 
-        log.info("Creating real time simulation with n={} bodies", n);
-        inactiveBodiesIds = new HashSet<>(n);
-        List<Body> bodies = new ArrayList<>(n);
+        log.info("Creating real time simulation with n={} bodies and seed {}", n, seed);
+        inactiveBodies = new ConcurrentBitSet(n);
+        bodies = new BodyStore(n);
+        removed = new boolean[n];
+        random = new Random(seed);
+        timeElapsed = 0;
+        steps = 0;
+        integrator.invalidateForces();
 
+        int nextId = 0;
         for (InitialBodyConfig init : config.getInitialState()) {
             for (int j = 0; j < init.getN(); j++) {
                 Body body = Body.builder()
-                    .id(UUID.randomUUID().toString())
+                    .id(nextId++)
                     .position(new Vec2(init.getX(), init.getY())
-                        .randomOffset(init.getPositionJitter()))
+                        .randomOffset(init.getPositionJitter(), random))
                     .velocity(new Vec2(init.getVx(), init.getVy())
-                        .randomOffset(init.getVelocityJitter()))
+                        .randomOffset(init.getVelocityJitter(), random))
                     .force(Vec2.ZERO)
                     .radius(applyJitter(init.getR(), init.getRadiusJitter()))
                     .mass(applyJitter(init.getMass(), init.getMassJitter()))
@@ -71,8 +161,9 @@ public class RealTimeSimulation implements Simulation {
             }
         }
 
-        frames = new BoundedQueue<>(historyLength);
-        frames.add(new SimulationFrame(bodies));
+        frames.replaceAll(bodies.toFrame());
+        trails.clear();
+        trails.record(bodies);
     }
 
     public double applyJitter(double value, double jitter) {
@@ -84,64 +175,103 @@ public class RealTimeSimulation implements Simulation {
             throw new IllegalArgumentException("Jitter must be less than value.");
         }
 
-        return value + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return value + random.nextDouble(-jitter, jitter);
     }
 
     /**
-     * Advances the simulation by one time step.
+     * Takes a copy of the current state which can be used to continue the simulation later. The
+     * copy is independent of the simulation, so it can be written to disk while stepping continues.
+     */
+    public Checkpoint checkpoint() {
+        List<Integer> inactive = new ArrayList<>();
+        for (int id = 0; id < inactiveBodies.size(); id++) {
+            if (inactiveBodies.get(id)) {
+                inactive.add(id);
+            }
+        }
+        return new Checkpoint(config, seed, steps, timeElapsed, bodies.capacity(),
+            integrator.hasValidForces(), bodies.toFrame(), inactive);
+    }
+
+    private void restore(Checkpoint checkpoint) {
+        int n = checkpoint.capacity();
+        log.info("Resuming real time simulation at step {} with {} of n={} bodies", checkpoint.steps(),
+            checkpoint.frame().bodies().size(), n);
+        inactiveBodies = new ConcurrentBitSet(n);
+        checkpoint.inactive().forEach(inactiveBodies::set);
+        bodies = new BodyStore(n);
+        checkpoint.frame().bodies().forEach(bodies::add);
+        removed = new boolean[n];
+        random = new Random(seed);
+        timeElapsed = checkpoint.timeElapsed();
+        steps = checkpoint.steps();
+        if (checkpoint.forcesValid()) {
+            integrator.acceptForces();
+        } else {
+            integrator.invalidateForces();
+        }
+
+        frames.replaceAll(bodies.toFrame());
+        trails.clear();
+        trails.record(bodies);
+    }
+
+    /**
+     * Advances the simulation by one time step. Bodies are updated in place, and a new
+     * {@link SimulationFrame} is only created once the step is complete.
      */
     @Override
     public void step() {
         double dt = config.getDt();
-        List<Body> updatedBodies = currentFrame().bodies().stream()
-            .filter(body -> !inactiveBodiesIds.contains(body.getId()))
-            .map(body -> updateForces(body, currentFrame().bodies()))
-            .map(body -> body.updateVelocity(dt).updatePosition(dt))
-            .map(body -> applyBoundary(body, config.getBoundaryType(), config.getBoundary()))
-            .toList();
-        List<Body> mergedBodies = mergeOverlappingBodies(updatedBodies);
-        frames.add(new SimulationFrame(mergedBodies));
+        removeInactiveBodies();
+        integrator.step(bodies, dt);
+
+        boundaryApplied = false;
+        executor.forRange(bodies.getSize(), boundaryTask);
+        boolean merged = merger.merge(bodies) > 0;
+
+        // Forces kept by the integrator are stale if anything moved the bodies after it finished
+        if (boundaryApplied || merged) {
+            integrator.invalidateForces();
+        }
+        frames.add(bodies.toFrame());
+        trails.record(bodies);
         timeElapsed += (long) dt;
+        steps++;
     }
 
-    private List<Body> mergeOverlappingBodies(List<Body> bodies) {
-        List<Body> result = new ArrayList<>();
-        Set<String> mergedIds = new HashSet<>();
-
-        for (int i = 0; i < bodies.size(); i++) {
-            Body body = bodies.get(i);
+    private void removeInactiveBodies() {
+        if (inactiveBodies.isEmpty()) {
+            return;
+        }
 
-            if (mergedIds.contains(body.getId())) {
-                continue;
-            }
+        int[] ids = bodies.getId();
+        for (int i = 0; i < bodies.getSize(); i++) {
+            removed[i] = inactiveBodies.get(ids[i]);
+        }
+        bodies.removeFlagged(removed);
+        inactiveBodies.clear();
+        integrator.invalidateForces();
+    }
 
-            double totalMass = body.getMass();
-            double totalArea = body.area();
-            Vec2 weightedPosition = body.getPosition().multiply(body.getMass());
-            Vec2 weightedVelocity = body.getVelocity().multiply(body.getMass());
-
-            for (int j = i + 1; j < bodies.size(); j++) {
-                Body other = bodies.get(j);
-
-                if (body.overlapsWith(other)) {
-                    totalMass += other.getMass();
-                    totalArea += other.area();
-                    weightedPosition = weightedPosition.add(other.getPosition().multiply(other.getMass()));
-                    weightedVelocity = weightedVelocity.add(other.getVelocity().multiply(other.getMass()));
-                    mergedIds.add(other.getId());
-                }
-            }
+    private void applyBoundaries(int from, int to) {
+        boolean applied = false;
+        for (int i = from; i < to; i++) {
+            applied |= applyBoundary(i, config.getBoundaryType(), config.getBoundary());
+        }
 
-            result.add(body
-                .withPosition(weightedPosition.divide(totalMass))
-                .withVelocity(weightedVelocity.divide(totalMass))
-                .withMass(totalMass)
-                .withRadius(Math.sqrt(totalArea / Math.PI))
-            );
-            mergedIds.add(body.getId());
+        // Written at most once per range to avoid contention on the flag
+        if (applied) {
+            boundaryApplied = true;
         }
+    }
 
-        return result;
+    /**
+     * Stops the threads used to step this simulation. It can no longer be stepped afterwards.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
     }
 
     @Override
@@ -150,11 +280,8 @@ public class RealTimeSimulation implements Simulation {
     }
 
     @Override
-    public Map<String, List<Body>> getHistory(int n) {
-        return frames.asList(n)
-            .stream()
-            .flatMap(frame -> frame.bodies().stream())
-            .collect(Collectors.groupingBy(Body::getId));
+    public long getFrameVersion() {
+        return frames.getVersion();
     }
 
     @Override
@@ -162,80 +289,39 @@ public class RealTimeSimulation implements Simulation {
         return config.getBoundary();
     }
 
-    /**
-     * Updates the forces currently acting on this body using Newtonian Gravity. Does not affect
-     * position or velocity.
-     *
-     * @param body The body on which forces should be calculated
-     * @param others Other bodies whose gravity should be considered.
-     */
-    public Body updateForces(Body body, List<Body> others) {
-        Vec2 netForce = Vec2.ZERO;
-
-        for (Body other : others) {
-
-            // don't calculate the force due to gravity between two bodies which are the same.
-            if (Objects.equals(body.getId(), other.getId())) {
-                continue;
-            }
-
-            Vec2 F = calculateGravitationalForce(body, other);
-            netForce = netForce.add(F);
-        }
-
-        return body.withForce(netForce);
-    }
-
-    /**
-     * Calculates the <a href="https://en.wikipedia.org/wiki/Newton%27s_law_of_universal_gravitation">gravitational
-     * force</a> exerted on a body by another body, including a softening parameter {@link #EPS} to avoid infinite
-     * forces
-     *
-     * @param body The body on which the gravitational force is being calculated.
-     * @param other The other body exerting the gravitational force.
-     *
-     * @return The gravitational force as a {@code Vec2} vector acting on {@code body} in Newtons.
-     */
-    private static Vec2 calculateGravitationalForce(Body body, Body other) {
-
-        // The two bodies cannot be so close that they would overlap.
-        double dist = Math.max(
-            body.getRadius() + other.getRadius(),
-            body.getPosition().distanceFrom(other.getPosition())
-        );
-
-        return other.getPosition().subtract(body.getPosition()).divide(dist)
-            .multiply((RealTimeSimulation.G * body.getMass() * other.getMass()) /
-                (dist * dist + RealTimeSimulation.EPS * RealTimeSimulation.EPS));
-    }
-
     /**
      * If the body is more than {@code boundary} meters from the origin, place it on the boundary
      * and stop it.
      *
+     * @param i index of the body to check
      * @param boundary Maximum distance from the origin for this body's position.
+     * @return true if the body was outside the boundary
      */
-    public Body applyBoundary(Body body, BoundaryType type, double boundary) {
+    private boolean applyBoundary(int i, BoundaryType type, double boundary) {
         if (Objects.requireNonNull(type) == BoundaryType.NONE) {
-            return body;
+            return false;
         }
 
-        double fromOrigin = body.getPosition().magnitude();
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double fromOrigin = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
 
         if (fromOrigin > boundary) {
             if (type == BoundaryType.STICK) {
-                inactiveBodiesIds.add(body.getId());
+                inactiveBodies.set(bodies.getId()[i]);
             } else if (type == BoundaryType.WRAP) {
                 boundary = -boundary;
             }
 
-            body = body.withPosition(body.getPosition().divide(fromOrigin).multiply(boundary));
+            x[i] = x[i] / fromOrigin * boundary;
+            y[i] = y[i] / fromOrigin * boundary;
 
             if (type == BoundaryType.STOP) {
-                return body.withVelocity(Vec2.ZERO);
+                bodies.getVx()[i] = 0;
+                bodies.getVy()[i] = 0;
             }
+            return true;
         }
-
-        return body;
+        return false;
     }
 }
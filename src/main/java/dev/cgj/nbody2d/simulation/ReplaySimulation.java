@@ -1,52 +1,317 @@
 package dev.cgj.nbody2d.simulation;
 
-import dev.cgj.nbody2d.data.Body;
-import dev.cgj.nbody2d.data.SimulationHistory;
 import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.io.FrameSource;
+import dev.cgj.nbody2d.util.BoundedQueue;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
-public class ReplaySimulation implements Simulation {
-    private final SimulationHistory simulationHistory;
-    private int frameIndex = 0;
+/**
+ * Plays back a recorded simulation, looping back around after the last frame, or the first when
+ * playing in reverse.
+ *
+ * <p>
+ *   If the recording has levels of detail, the coarsest level whose cells are at most
+ *   {@link #CELL_PIXELS} pixels wide is shown instead of the full frames, so that a replay zoomed
+ *   out over a very large simulation reads and draws far fewer bodies. Changing level behaves like
+ *   seeking to the current frame.
+ * </p>
+ *
+ * <p>
+ *   Frames are decoded ahead of the playhead by a {@link FramePrefetcher}, never by the thread
+ *   which draws them: {@link #currentFrame()} only returns frames which have already been read.
+ *   {@link #step()} waits for the next frame if the prefetcher has not reached it yet, and
+ *   {@link #seek(int)} returns immediately, showing the new frame once it has been read.
+ * </p>
+ */
+@Slf4j
+public class ReplaySimulation implements Simulation, PlaybackControls, Closeable {
 
-    public ReplaySimulation(SimulationHistory simulationHistory) {
-        this.simulationHistory = simulationHistory;
+    /**
+     * Widest a level of detail's cells may be on screen, in pixels, for it to be shown.
+     */
+    static final double CELL_PIXELS = 2;
+
+    private final FrameSource source;
+    private final int frameCount;
+
+    /**
+     * The full frames followed by each level of detail, finest first.
+     */
+    private final List<FrameSource> levels = new ArrayList<>();
+    private final List<FramePrefetcher> prefetchers = new ArrayList<>();
+
+    /**
+     * Frames shown most recently, for drawing trails.
+     */
+    private final BoundedQueue<SimulationFrame> frames;
+
+    @Getter
+    private final TrailStore trails = new TrailStore();
+
+    /**
+     * The frame playback has reached, which may not have been read yet.
+     */
+    private int playhead = 0;
+
+    /**
+     * True if the next frame shown does not follow on from the last, so trails must start again.
+     */
+    private boolean seeked = false;
+
+    /**
+     * Index in {@link #levels} of the level shown.
+     */
+    private int level = 0;
+
+    private volatile int frameIndex = 0;
+    private volatile int speed = 1;
+    private volatile boolean reversed = false;
+
+    /**
+     * @param historyLength  number of frames to keep for drawing trails
+     * @param prefetchFrames number of frames to decode ahead of the playhead
+     * @throws IllegalStateException if the recording has no frames
+     */
+    public ReplaySimulation(FrameSource source, int historyLength, int prefetchFrames) {
+        this(source, List.of(), historyLength, prefetchFrames);
+    }
+
+    /**
+     * @param levelsOfDetail coarse versions of the recording, finest first. Levels with a different
+     *                       number of frames to the recording are closed and not used.
+     * @param historyLength  number of frames to keep for drawing trails
+     * @param prefetchFrames number of frames to decode ahead of the playhead in each level
+     * @throws IllegalStateException if the recording has no frames
+     */
+    public ReplaySimulation(FrameSource source, List<FrameSource> levelsOfDetail, int historyLength, int prefetchFrames) {
+        if (source.getFrameCount() == 0) {
+            throw new IllegalStateException("Recording contains no frames");
+        }
+        this.source = source;
+        this.frameCount = source.getFrameCount();
+        this.frames = new BoundedQueue<>(historyLength);
+
+        levels.add(source);
+        for (FrameSource level : levelsOfDetail) {
+            if (level.getFrameCount() == frameCount && level.getCellSize() > 0) {
+                levels.add(level);
+            } else {
+                log.warn("Ignoring level of detail with {} frames, cells of {} meters",
+                    level.getFrameCount(), level.getCellSize());
+                closeQuietly(level);
+            }
+        }
+        for (FrameSource level : levels) {
+            prefetchers.add(new FramePrefetcher(level, prefetchFrames));
+        }
+        show(0, 0, read(0, 0));
     }
 
     @Override
     public SimulationFrame currentFrame() {
-        return simulationHistory.frames().get(frameIndex);
+        return frames.peek();
     }
 
     @Override
-    public Map<String, List<Body>> getHistory(int n) {
-        return simulationHistory.frames()
-            .subList(Math.max(0, frameIndex - n), frameIndex + 1)
-            .stream()
-            .flatMap(frame -> frame.bodies().stream())
-            .collect(Collectors.groupingBy(Body::getId));
+    public long getFrameVersion() {
+        return frames.getVersion();
     }
 
     @Override
     public void reset() {
-        frameIndex = 0;
+        seek(0);
     }
 
+    /**
+     * Advances {@link #getSpeed()} frames, backwards if {@link #isReversed()}.
+     */
     @Override
     public void step() {
-        frameIndex = (frameIndex + 1) % simulationHistory.frames().size();
+        int next;
+        int shown;
+        synchronized (this) {
+            next = Math.floorMod(playhead + (long) stride(), frameCount);
+            playhead = next;
+            shown = level;
+        }
+        prefetchers.get(shown).moveTo(next, stride());
+        show(shown, next, read(shown, next));
     }
 
     @Override
     public long getTimeElapsed() {
-        return (long)(frameIndex * simulationHistory.config().getDt());
+        return (long)(frameIndex * source.getConfig().getDt());
     }
 
     @Override
     public double getBoundary() {
-        return simulationHistory.config().getBoundary();
+        return source.getConfig().getBoundary();
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    @Override
+    public void seek(int frameIndex) {
+        int target = Math.floorMod(frameIndex, frameCount);
+        int shown;
+        synchronized (this) {
+            playhead = target;
+            seeked = true;
+            shown = level;
+        }
+        showWhenRead(shown, target);
+    }
+
+    /**
+     * Switches to the coarsest level of detail whose cells are at most {@link #CELL_PIXELS}
+     * pixels wide, or the full frames if there is none.
+     */
+    @Override
+    public void setLevelOfDetail(double metersPerPixel) {
+        int chosen = 0;
+        for (int i = 1; i < levels.size(); i++) {
+            if (levels.get(i).getCellSize() <= metersPerPixel * CELL_PIXELS) {
+                chosen = i;
+            }
+        }
+
+        int target;
+        synchronized (this) {
+            if (chosen == level) {
+                return;
+            }
+            level = chosen;
+            seeked = true;
+            target = playhead;
+        }
+        showWhenRead(chosen, target);
+    }
+
+    /**
+     * Gets the index of the level of detail shown, where 0 is the full frames and 1 is the finest
+     * level of detail.
+     */
+    public synchronized int getLevelOfDetail() {
+        return level;
+    }
+
+    @Override
+    public int getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @param speed number of frames to advance by each step, at least 1. Limited to the number of
+     *              frames in the recording.
+     */
+    @Override
+    public void setSpeed(int speed) {
+        if (speed < 1) {
+            throw new IllegalArgumentException("Speed must be at least 1: " + speed);
+        }
+        this.speed = Math.min(speed, frameCount);
+        prefetchFromPlayhead();
+    }
+
+    @Override
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    @Override
+    public void setReversed(boolean reversed) {
+        this.reversed = reversed;
+        prefetchFromPlayhead();
+    }
+
+    /**
+     * Stops reading ahead and closes the recording and its levels of detail.
+     */
+    @Override
+    public void close() throws IOException {
+        prefetchers.forEach(FramePrefetcher::close);
+        for (FrameSource level : levels) {
+            level.close();
+        }
+    }
+
+    private int stride() {
+        return reversed ? -speed : speed;
+    }
+
+    private void prefetchFromPlayhead() {
+        int from;
+        int shown;
+        synchronized (this) {
+            from = playhead;
+            shown = level;
+        }
+        prefetchers.get(shown).moveTo(from, stride());
+    }
+
+    private void showWhenRead(int level, int index) {
+        FramePrefetcher prefetcher = prefetchers.get(level);
+        prefetcher.moveTo(index, stride());
+        prefetcher.get(index).whenComplete((frame, e) -> {
+            if (e != null) {
+                log.error("Failed to read frame {} of recording", index, e);
+            } else {
+                show(level, index, frame);
+            }
+        });
+    }
+
+    private SimulationFrame read(int level, int index) {
+        try {
+            return prefetchers.get(level).get(index).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException("Failed to read recording", cause);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Shows a frame which has been read, unless playback has moved on to another frame or level
+     * since it was requested.
+     */
+    private synchronized void show(int level, int index, SimulationFrame frame) {
+        if (level != this.level || index != playhead) {
+            return;
+        }
+        if (seeked) {
+            frames.replaceAll(frame);
+            trails.clear();
+            seeked = false;
+        } else {
+            frames.add(frame);
+        }
+        trails.record(frame);
+        frameIndex = index;
+    }
+
+    private static void closeQuietly(FrameSource source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("Failed to close level of detail", e);
+        }
     }
 }
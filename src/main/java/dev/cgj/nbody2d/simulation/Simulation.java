@@ -4,10 +4,6 @@ import dev.cgj.nbody2d.data.Body;
 import dev.cgj.nbody2d.data.SimulationFrame;
 import dev.cgj.nbody2d.data.Vec2;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-
 public interface Simulation {
 
     /**
@@ -27,16 +23,32 @@ public interface Simulation {
 
     SimulationFrame currentFrame();
 
-    Map<String, List<Body>> getHistory(int n);
+    /**
+     * Gets a number which increases every time a new current frame is published, so that a viewer
+     * can skip drawing when nothing has changed.
+     */
+    long getFrameVersion();
+
+    /**
+     * Gets the recent positions of each body, which are only recorded once a trail length has been
+     * set.
+     */
+    TrailStore getTrails();
 
     long getTimeElapsed();
 
     double getBoundary();
 
+    /**
+     * Tells the simulation how many meters each pixel on screen covers, so that it may show a
+     * coarser version of its frames with merged bodies when details that small cannot be seen.
+     * Does nothing by default.
+     */
+    default void setLevelOfDetail(double metersPerPixel) {
+    }
+
     static Body nearestBody(Simulation simulation, Vec2 position) {
-        return simulation.currentFrame().bodies().stream()
-            .min(Comparator.comparingDouble(body ->
-                body.getPosition().distanceFrom(position)))
+        return simulation.currentFrame().nearest(position)
             .orElseThrow(() -> new IllegalStateException("No nearby bodies exist"));
     }
 }
@@ -0,0 +1,223 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.SimulationFrame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recent positions of each body, for drawing trails.
+ *
+ * <p>
+ *   Positions are added once per step rather than regrouped from the frame history every time
+ *   trails are drawn. Each body is given a slot the first time it is seen, holding a fixed-size
+ *   ring of x and y coordinates in two flat primitive arrays shared by every slot, so recording a
+ *   step allocates nothing once every body has a slot. Slots are only given back by
+ *   {@link #clear()}. Memory used is proportional to the number of bodies times the trail length.
+ * </p>
+ *
+ * <p>
+ *   Recording does nothing while the trail length is 0, which is the default. Only one thread may
+ *   record or clear at a time, but any number of threads may read trails while recording continues:
+ *   rings hold a few more positions than the trail length, and a reader discards any position which
+ *   was overwritten while it was being copied.
+ * </p>
+ */
+public class TrailStore {
+
+    /**
+     * Number of extra positions kept in each ring, so that a reader can copy a trail while this
+     * many steps are recorded without losing any of it.
+     */
+    static final int SLACK = 16;
+
+    private volatile Rings rings = new Rings(0);
+
+    /**
+     * Gets the number of positions kept for each body, or 0 if trails are disabled.
+     */
+    public int getLength() {
+        return rings.length;
+    }
+
+    /**
+     * Changes the number of positions kept for each body, discarding every trail if it is
+     * different.
+     *
+     * @param length number of positions to keep, or 0 to stop recording trails
+     */
+    public void setLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Trail length must not be negative: " + length);
+        }
+        if (length != rings.length) {
+            rings = new Rings(length);
+        }
+    }
+
+    /**
+     * Discards every trail, such as when the next position recorded does not follow on from the
+     * last.
+     */
+    public void clear() {
+        rings = new Rings(rings.length);
+    }
+
+    /**
+     * Adds the position of every body in a frame to its trail.
+     */
+    public void record(SimulationFrame frame) {
+        Rings r = rings;
+        if (r.length == 0) {
+            return;
+        }
+        long step = r.end;
+        List<Body> bodies = frame.bodies();
+        for (Body body : bodies) {
+            r.put(step, body.getId(), body.getPosition().x(), body.getPosition().y());
+        }
+        r.end = step + 1;
+    }
+
+    /**
+     * Adds the position of every body in a store to its trail.
+     */
+    public void record(BodyStore bodies) {
+        Rings r = rings;
+        if (r.length == 0) {
+            return;
+        }
+        long step = r.end;
+        int[] id = bodies.getId();
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        for (int i = 0; i < bodies.getSize(); i++) {
+            r.put(step, id[i], x[i], y[i]);
+        }
+        r.end = step + 1;
+    }
+
+    /**
+     * Copies the most recent positions of a body, oldest first.
+     *
+     * @param x receives the x coordinates. Up to {@code x.length} positions are copied.
+     * @param y receives the y coordinates, at least as long as {@code x}
+     * @return the number of positions copied, which is 0 if the body has no trail
+     */
+    public int copy(int id, double[] x, double[] y) {
+        return rings.copy(id, x, y);
+    }
+
+    /**
+     * Trails for one trail length, replaced as a whole when the length changes or trails are
+     * cleared so that readers never see a half-cleared store.
+     */
+    private static final class Rings {
+        final int length;
+
+        /**
+         * Number of positions held by each slot's ring.
+         */
+        final int capacity;
+
+        /**
+         * Number of steps recorded. Written after each step's positions, so a reader which reads
+         * this first sees every position recorded before it.
+         */
+        volatile long end = 0;
+
+        int[] slotById = new int[0];
+        double[] xs = new double[0];
+        double[] ys = new double[0];
+
+        /**
+         * First and last steps at which each slot's body was recorded without a gap.
+         */
+        long[] first = new long[0];
+        long[] last = new long[0];
+        int slots = 0;
+
+        Rings(int length) {
+            this.length = length;
+            this.capacity = length == 0 ? 0 : length + SLACK;
+        }
+
+        void put(long step, int id, double x, double y) {
+            int slot = slotOf(id, step);
+            if (last[slot] != step - 1) {
+                first[slot] = step;
+            }
+            int i = slot * capacity + (int) (step % capacity);
+            xs[i] = x;
+            ys[i] = y;
+            last[slot] = step;
+        }
+
+        int copy(int id, double[] x, double[] y) {
+            if (length == 0) {
+                return 0;
+            }
+            long steps = end;
+            int[] byId = slotById;
+            if (id < 0 || id >= byId.length || byId[id] < 0) {
+                return 0;
+            }
+            int slot = byId[id];
+            double[] xs = this.xs;
+            double[] ys = this.ys;
+            long[] first = this.first;
+            long[] last = this.last;
+            if (slot >= first.length || (long) (slot + 1) * capacity > xs.length) {
+                return 0;
+            }
+
+            long to = Math.min(last[slot], steps - 1);
+            long from = Math.max(first[slot], to - Math.min(x.length, length) + 1);
+            int count = 0;
+            for (long step = from; step <= to; step++) {
+                int i = slot * capacity + (int) (step % capacity);
+                x[count] = xs[i];
+                y[count] = ys[i];
+                count++;
+            }
+
+            // Positions from before the oldest safe step may have been overwritten while copying
+            long safe = end - capacity + 1;
+            if (from < safe) {
+                int dropped = (int) Math.min(count, safe - from);
+                count -= dropped;
+                System.arraycopy(x, dropped, x, 0, count);
+                System.arraycopy(y, dropped, y, 0, count);
+            }
+            return count;
+        }
+
+        private int slotOf(int id, long step) {
+            if (id >= slotById.length) {
+                int size = Math.max(id + 1, slotById.length * 2);
+                int[] grown = Arrays.copyOf(slotById, size);
+                Arrays.fill(grown, slotById.length, size, -1);
+                slotById = grown;
+            }
+            int slot = slotById[id];
+            if (slot >= 0) {
+                return slot;
+            }
+
+            slot = slots++;
+            if (slot == first.length) {
+                int size = Math.max(16, first.length * 2);
+                xs = Arrays.copyOf(xs, size * capacity);
+                ys = Arrays.copyOf(ys, size * capacity);
+                first = Arrays.copyOf(first, size);
+                last = Arrays.copyOf(last, size);
+            }
+            first[slot] = step;
+            last[slot] = step - 1;
+            slotById[id] = slot;
+            return slot;
+        }
+    }
+}
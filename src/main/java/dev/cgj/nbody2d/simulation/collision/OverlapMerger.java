@@ -0,0 +1,237 @@
+package dev.cgj.nbody2d.simulation.collision;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ConcurrentUnionFind;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import dev.cgj.nbody2d.util.ParallelExecutor.RangeTask;
+
+import java.util.Arrays;
+
+/**
+ * Merges overlapping bodies, conserving mass, momentum, and area. Uses a {@link SpatialHashGrid}
+ * so that only nearby bodies are tested for overlap.
+ *
+ * <p>
+ *   Overlap is transitive: if A overlaps B and B overlaps C, all three become a single body even
+ *   if A and C do not overlap. Overlapping pairs are found concurrently and joined in a
+ *   {@link ConcurrentUnionFind}, then each resulting cluster is merged by a single task into its
+ *   lowest-indexed member, summing members in ascending order. The result therefore does not
+ *   depend on the number of threads or on scheduling.
+ * </p>
+ */
+public class OverlapMerger {
+    private final ParallelExecutor executor;
+    private final SpatialHashGrid grid = new SpatialHashGrid();
+    private final ConcurrentUnionFind clusters = new ConcurrentUnionFind();
+    private final ThreadLocal<int[]> buckets =
+        ThreadLocal.withInitial(() -> new int[SpatialHashGrid.NEIGHBOURHOOD_SIZE]);
+
+    private final RangeTask unionTask = this::unionOverlapping;
+    private final RangeTask findRootsTask = this::findRoots;
+    private final RangeTask mergeTask = this::mergeClusters;
+
+    /**
+     * The root of each body's cluster, then cluster members grouped by root in ascending order.
+     */
+    private int[] root = new int[0];
+    private int[] memberStart = new int[0];
+    private int[] members = new int[0];
+    private int[] cursor = new int[0];
+    private int[] clusterRoots = new int[0];
+    private boolean[] removed = new boolean[0];
+
+    /**
+     * Only set for the duration of {@link #merge(BodyStore)}.
+     */
+    private BodyStore bodies;
+    private volatile boolean anyOverlap;
+
+    public OverlapMerger() {
+        this(ParallelExecutor.SEQUENTIAL);
+    }
+
+    /**
+     * @param executor used to find and merge overlapping bodies concurrently
+     */
+    public OverlapMerger(ParallelExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Merges every cluster of overlapping bodies into the first body of the cluster, in place.
+     *
+     * @return the number of bodies removed by merging
+     */
+    public int merge(BodyStore bodies) {
+        int n = bodies.getSize();
+        ensureCapacity(n);
+        this.bodies = bodies;
+        anyOverlap = false;
+
+        try {
+            grid.build(bodies);
+            clusters.reset(n);
+            executor.forRange(n, unionTask);
+            if (!anyOverlap) {
+                return 0;
+            }
+
+            executor.forRange(n, findRootsTask);
+            int clusterCount = groupMembers(n);
+            executor.forRange(clusterCount, mergeTask);
+        } finally {
+            this.bodies = null;
+        }
+
+        for (int i = 0; i < n; i++) {
+            removed[i] = root[i] != i;
+        }
+        return bodies.removeFlagged(removed);
+    }
+
+    /**
+     * Joins each body in {@code [from, to)} with every later body that it overlaps.
+     */
+    private void unionOverlapping(int from, int to) {
+        int n = bodies.getSize();
+        int[] neighbours = buckets.get();
+        boolean overlapped = false;
+
+        for (int i = from; i < to; i++) {
+            if (grid.isLarge(i)) {
+                for (int j = i + 1; j < n; j++) {
+                    overlapped |= unionIfOverlapping(i, j);
+                }
+                continue;
+            }
+
+            int bucketCount = grid.neighbourBuckets(i, neighbours);
+            for (int b = 0; b < bucketCount; b++) {
+                for (int j = grid.first(neighbours[b]); j >= 0; j = grid.next(j)) {
+                    if (j > i) {
+                        overlapped |= unionIfOverlapping(i, j);
+                    }
+                }
+            }
+
+            int[] large = grid.getLargeBodies();
+            for (int k = 0; k < grid.getLargeCount(); k++) {
+                if (large[k] > i) {
+                    overlapped |= unionIfOverlapping(i, large[k]);
+                }
+            }
+        }
+
+        // Written at most once per range to avoid contention on the flag
+        if (overlapped) {
+            anyOverlap = true;
+        }
+    }
+
+    private boolean unionIfOverlapping(int i, int j) {
+        if (!overlaps(bodies, i, j)) {
+            return false;
+        }
+        clusters.union(i, j);
+        return true;
+    }
+
+    private void findRoots(int from, int to) {
+        for (int i = from; i < to; i++) {
+            root[i] = clusters.find(i);
+        }
+    }
+
+    /**
+     * Groups the members of every cluster with more than one body, counting-sort style.
+     *
+     * @return the number of such clusters
+     */
+    private int groupMembers(int n) {
+        Arrays.fill(memberStart, 0, n + 1, 0);
+        for (int i = 0; i < n; i++) {
+            memberStart[root[i] + 1]++;
+        }
+
+        int clusterCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (memberStart[i + 1] > 1) {
+                clusterRoots[clusterCount++] = i;
+            }
+            memberStart[i + 1] += memberStart[i];
+        }
+
+        // Visiting bodies in order keeps the members of each cluster in ascending order
+        System.arraycopy(memberStart, 0, cursor, 0, n);
+        for (int i = 0; i < n; i++) {
+            members[cursor[root[i]]++] = i;
+        }
+        return clusterCount;
+    }
+
+    /**
+     * Merges each cluster in {@code [from, to)} into its root.
+     */
+    private void mergeClusters(int from, int to) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] vx = bodies.getVx();
+        double[] vy = bodies.getVy();
+        double[] mass = bodies.getMass();
+        double[] radius = bodies.getRadius();
+
+        for (int c = from; c < to; c++) {
+            int r = clusterRoots[c];
+            double totalMass = 0;
+            double totalArea = 0;
+            double weightedX = 0;
+            double weightedY = 0;
+            double weightedVx = 0;
+            double weightedVy = 0;
+
+            for (int k = memberStart[r]; k < memberStart[r + 1]; k++) {
+                int j = members[k];
+                double m = mass[j];
+                totalMass += m;
+                totalArea += area(radius[j]);
+                weightedX += x[j] * m;
+                weightedY += y[j] * m;
+                weightedVx += vx[j] * m;
+                weightedVy += vy[j] * m;
+            }
+
+            x[r] = weightedX / totalMass;
+            y[r] = weightedY / totalMass;
+            vx[r] = weightedVx / totalMass;
+            vy[r] = weightedVy / totalMass;
+            mass[r] = totalMass;
+            radius[r] = Math.sqrt(totalArea / Math.PI);
+        }
+    }
+
+    /**
+     * Equivalent to {@link Body#overlapsWith(Body)} for two bodies in the store.
+     */
+    static boolean overlaps(BodyStore bodies, int i, int j) {
+        double dx = bodies.getX()[i] - bodies.getX()[j];
+        double dy = bodies.getY()[i] - bodies.getY()[j];
+        double r = bodies.getRadius()[i] + bodies.getRadius()[j];
+        return Math.sqrt(dx * dx + dy * dy) <= r;
+    }
+
+    private static double area(double radius) {
+        return Math.PI * radius * radius;
+    }
+
+    private void ensureCapacity(int n) {
+        if (root.length < n) {
+            root = new int[n];
+            memberStart = new int[n + 1];
+            members = new int[n];
+            cursor = new int[n];
+            clusterRoots = new int[n];
+            removed = new boolean[n];
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package dev.cgj.nbody2d.simulation.collision;
+
+import dev.cgj.nbody2d.data.BodyStore;
+
+import java.util.Arrays;
+
+/**
+ * Broadphase for finding overlapping bodies. Bodies are placed in a uniform grid of square cells,
+ * which are in turn hashed into a fixed number of buckets, so that finding the bodies that may
+ * overlap a given body only requires searching the buckets of the 3x3 block of cells around it.
+ *
+ * <p>
+ *   Cells are sized to the diameter of the largest "small" body, which guarantees that two small
+ *   bodies can only overlap if they are in the same or adjacent cells. A few very large bodies
+ *   (such as a star among planets) would otherwise force every body into the same cell, so bodies
+ *   much larger than average are left out of the grid and listed separately in
+ *   {@link #getLargeBodies()}; callers must test them against every other body.
+ * </p>
+ *
+ * <p>
+ *   Rebuilding the grid costs O(n) and reuses the same arrays every step. Distinct cells may share
+ *   a bucket, so callers must still check each candidate for overlap.
+ * </p>
+ */
+public class SpatialHashGrid {
+
+    /**
+     * Bodies with a radius more than this many times the mean radius are not placed in the grid.
+     */
+    static final double LARGE_RADIUS_FACTOR = 4;
+
+    /**
+     * Maximum number of buckets returned by {@link #neighbourBuckets(int, int[])}.
+     */
+    public static final int NEIGHBOURHOOD_SIZE = 9;
+
+    private int[] bucketHead = new int[0];
+    private int[] next = new int[0];
+    private long[] cellX = new long[0];
+    private long[] cellY = new long[0];
+    private int[] largeBodies = new int[0];
+    private int largeCount;
+    private int hashShift;
+    private double cellSize;
+
+    /**
+     * Rebuilds the grid from the current positions and radii of the given bodies.
+     */
+    public void build(BodyStore bodies) {
+        int n = bodies.getSize();
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] radius = bodies.getRadius();
+        ensureCapacity(n);
+
+        double meanRadius = 0;
+        for (int i = 0; i < n; i++) {
+            meanRadius += radius[i] / n;
+        }
+
+        double largeRadius = meanRadius * LARGE_RADIUS_FACTOR;
+        double maxSmallRadius = 0;
+        largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (radius[i] > largeRadius) {
+                largeBodies[largeCount++] = i;
+            } else {
+                maxSmallRadius = Math.max(maxSmallRadius, radius[i]);
+            }
+        }
+
+        cellSize = maxSmallRadius > 0 ? 2 * maxSmallRadius : 1;
+        Arrays.fill(bucketHead, -1);
+
+        for (int i = n - 1; i >= 0; i--) {
+            if (radius[i] > largeRadius) {
+                next[i] = -1;
+                cellX[i] = Long.MIN_VALUE;
+                continue;
+            }
+
+            // Insert in reverse so that each bucket lists bodies in ascending order
+            cellX[i] = (long) Math.floor(x[i] / cellSize);
+            cellY[i] = (long) Math.floor(y[i] / cellSize);
+            int bucket = bucket(cellX[i], cellY[i]);
+            next[i] = bucketHead[bucket];
+            bucketHead[bucket] = i;
+        }
+    }
+
+    /**
+     * Finds the distinct buckets covering the 3x3 block of cells centered on the cell containing
+     * body {@code i}. Returns 0 for large bodies, which are not in the grid.
+     *
+     * @param buckets output array with at least {@link #NEIGHBOURHOOD_SIZE} elements
+     * @return the number of buckets written to {@code buckets}
+     */
+    public int neighbourBuckets(int i, int[] buckets) {
+        if (isLarge(i)) {
+            return 0;
+        }
+
+        int count = 0;
+        for (long dx = -1; dx <= 1; dx++) {
+            for (long dy = -1; dy <= 1; dy++) {
+                int bucket = bucket(cellX[i] + dx, cellY[i] + dy);
+                if (!contains(buckets, count, bucket)) {
+                    buckets[count++] = bucket;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The first body in the given bucket, or -1 if the bucket is empty.
+     */
+    public int first(int bucket) {
+        return bucketHead[bucket];
+    }
+
+    /**
+     * The body after {@code i} in the same bucket, or -1 if {@code i} is the last.
+     */
+    public int next(int i) {
+        return next[i];
+    }
+
+    public boolean isLarge(int i) {
+        return cellX[i] == Long.MIN_VALUE;
+    }
+
+    /**
+     * Indices of the bodies which were too large to place in the grid, in ascending order. Only
+     * the first {@link #getLargeCount()} elements are valid.
+     */
+    public int[] getLargeBodies() {
+        return largeBodies;
+    }
+
+    public int getLargeCount() {
+        return largeCount;
+    }
+
+    private int bucket(long cx, long cy) {
+        long hash = cx * 0x9E3779B97F4A7C15L ^ cy * 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash >>> hashShift);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int k = 0; k < count; k++) {
+            if (values[k] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int n) {
+        if (next.length < n) {
+            next = new int[n];
+            cellX = new long[n];
+            cellY = new long[n];
+            largeBodies = new int[n];
+        }
+
+        // At least two buckets per body keeps collisions between occupied cells rare
+        int bits = Math.max(4, 33 - Integer.numberOfLeadingZeros(Math.max(n, 1)));
+        if (bucketHead.length < 1 << bits) {
+            bucketHead = new int[1 << bits];
+            hashShift = 64 - bits;
+        }
+    }
+}
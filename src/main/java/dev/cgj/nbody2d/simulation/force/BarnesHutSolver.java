@@ -0,0 +1,67 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Approximate solver using the <a href="https://en.wikipedia.org/wiki/Barnes%E2%80%93Hut_simulation">Barnes-Hut</a>
+ * algorithm. Distant groups of bodies are treated as a single mass at their center of mass,
+ * reducing the cost of a step to O(n log n).
+ */
+public class BarnesHutSolver implements ForceSolver {
+
+    private final double theta;
+    private final ParallelExecutor executor;
+    private final QuadTree tree = new QuadTree();
+
+    /**
+     * Traversal stack for each thread. The tree is read-only while forces are calculated, so
+     * this is the only per-thread state required.
+     */
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[QuadTree.STACK_SIZE]);
+
+    public BarnesHutSolver(double theta) {
+        this(theta, ParallelExecutor.SEQUENTIAL);
+    }
+
+    /**
+     * @param theta opening angle; see {@link dev.cgj.nbody2d.config.SimulationConfig#getTheta()}
+     * @param executor used to walk the tree for different bodies concurrently
+     */
+    public BarnesHutSolver(double theta, ParallelExecutor executor) {
+        if (theta < 0) {
+            throw new IllegalArgumentException("theta must be greater than or equal to 0");
+        }
+        this.theta = theta;
+        this.executor = executor;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies) {
+        tree.build(bodies.getX(), bodies.getY(), bodies.getMass(), bodies.getSize());
+
+        executor.forRange(bodies.getSize(), (from, to) -> {
+            int[] stack = stacks.get();
+            for (int i = from; i < to; i++) {
+                tree.computeForce(i, bodies.getX(), bodies.getY(), bodies.getMass(), bodies.getRadius(),
+                    theta, stack, bodies.getFx(), bodies.getFy());
+            }
+        });
+    }
+
+    /**
+     * The tree is still built from every body, but only walked for the targets.
+     */
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count) {
+        tree.build(bodies.getX(), bodies.getY(), bodies.getMass(), bodies.getSize());
+
+        executor.forRange(count, (from, to) -> {
+            int[] stack = stacks.get();
+            for (int k = from; k < to; k++) {
+                tree.computeForce(targets[k], bodies.getX(), bodies.getY(), bodies.getMass(), bodies.getRadius(),
+                    theta, stack, bodies.getFx(), bodies.getFy());
+            }
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import dev.cgj.nbody2d.util.ParallelExecutor.RangeTask;
+
+import static dev.cgj.nbody2d.simulation.Simulation.EPS;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+
+/**
+ * Brute-force solver which sums the gravity of every other body, costing O(n²) per step.
+ */
+public class DirectSumSolver implements ForceSolver {
+
+    private final ParallelExecutor executor;
+
+    /**
+     * Created once so that calculating forces does not allocate a new task each time.
+     */
+    private final RangeTask allTask = this::computeAll;
+    private final RangeTask targetTask = this::computeTargets;
+
+    /**
+     * Only set for the duration of {@link #computeForces}.
+     */
+    private BodyStore bodies;
+    private int[] targets;
+
+    public DirectSumSolver() {
+        this(ParallelExecutor.SEQUENTIAL);
+    }
+
+    /**
+     * @param executor used to calculate the forces on different bodies concurrently
+     */
+    public DirectSumSolver(ParallelExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies) {
+        this.bodies = bodies;
+        try {
+            executor.forRange(bodies.getSize(), allTask);
+        } finally {
+            this.bodies = null;
+        }
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count) {
+        this.bodies = bodies;
+        this.targets = targets;
+        try {
+            executor.forRange(count, targetTask);
+        } finally {
+            this.bodies = null;
+            this.targets = null;
+        }
+    }
+
+    /**
+     * Direct sum for the targets in {@code [from, to)}; see
+     * {@link ForceSolver#computeForces(BodyStore, int[], int)}.
+     */
+    static void computeForces(BodyStore bodies, int[] targets, int from, int to) {
+        for (int k = from; k < to; k++) {
+            computeForce(bodies, targets[k]);
+        }
+    }
+
+    private void computeAll(int from, int to) {
+        for (int i = from; i < to; i++) {
+            computeForce(bodies, i);
+        }
+    }
+
+    private void computeTargets(int from, int to) {
+        computeForces(bodies, targets, from, to);
+    }
+
+    /**
+     * Updates the forces currently acting on a body using Newtonian Gravity. Does not affect
+     * position or velocity.
+     *
+     * @param bodies all bodies whose gravity should be considered
+     * @param i index of the body on which forces should be calculated
+     */
+    static void computeForce(BodyStore bodies, int i) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] mass = bodies.getMass();
+        double[] radius = bodies.getRadius();
+        int n = bodies.getSize();
+
+        double xi = x[i];
+        double yi = y[i];
+        double ri = radius[i];
+        double gmi = G * mass[i];
+        double netX = 0;
+        double netY = 0;
+
+        for (int j = 0; j < n; j++) {
+
+            // don't calculate the force due to gravity between two bodies which are the same.
+            if (j == i) {
+                continue;
+            }
+
+            double dx = x[j] - xi;
+            double dy = y[j] - yi;
+            double f = pairForce(gmi * mass[j], ri + radius[j], dx * dx + dy * dy);
+            netX += dx * f;
+            netY += dy * f;
+        }
+
+        bodies.getFx()[i] = netX;
+        bodies.getFy()[i] = netY;
+    }
+
+    /**
+     * Calculates the <a href="https://en.wikipedia.org/wiki/Newton%27s_law_of_universal_gravitation">gravitational
+     * force</a> between two bodies, including a softening parameter {@code EPS} to avoid infinite
+     * forces. The result is scaled by the inverse of the distance between the bodies, so that
+     * multiplying it by the displacement from one body to the other gives the force vector.
+     *
+     * @param gmm {@code G} multiplied by the mass of both bodies
+     * @param minDist the sum of the radii of both bodies
+     * @param distSquared the squared distance between the centers of both bodies
+     */
+    static double pairForce(double gmm, double minDist, double distSquared) {
+
+        // The two bodies cannot be so close that they would overlap.
+        double dist = Math.max(minDist, Math.sqrt(distSquared));
+        return gmm / ((dist * dist + EPS * EPS) * dist);
+    }
+}
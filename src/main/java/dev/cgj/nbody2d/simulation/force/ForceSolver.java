@@ -0,0 +1,49 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Strategy for calculating the net gravitational force acting on every body in a simulation.
+ */
+public interface ForceSolver {
+
+    /**
+     * Calculates the forces currently acting on each body in the store, overwriting
+     * {@link BodyStore#getFx()} and {@link BodyStore#getFy()}. Does not affect position or
+     * velocity.
+     *
+     * @param bodies all bodies in the simulation, each of which both exerts and receives gravity
+     */
+    void computeForces(BodyStore bodies);
+
+    /**
+     * Calculates the forces acting on only the given bodies, due to every body in the store.
+     * Forces on all other bodies are left unchanged. Used by integrators which update different
+     * bodies at different rates.
+     *
+     * <p>
+     *   The default implementation is a sequential direct sum for each target.
+     * </p>
+     *
+     * @param targets indices of the bodies to update; only the first {@code count} are used
+     */
+    default void computeForces(BodyStore bodies, int[] targets, int count) {
+        DirectSumSolver.computeForces(bodies, targets, 0, count);
+    }
+
+    /**
+     * Creates the force solver selected by the given configuration.
+     *
+     * @param executor used to spread the calculation across threads
+     */
+    static ForceSolver forConfig(SimulationConfig config, ParallelExecutor executor) {
+        return switch (config.getForceSolver()) {
+            case DIRECT -> new DirectSumSolver(executor);
+            case DIRECT_SYMMETRIC -> new SymmetricDirectSumSolver(executor);
+            case DIRECT_VECTOR -> VectorSolverLoader.create(executor);
+            case BARNES_HUT -> new BarnesHutSolver(config.getTheta(), executor);
+        };
+    }
+}
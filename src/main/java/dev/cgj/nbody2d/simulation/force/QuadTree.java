@@ -0,0 +1,261 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import java.util.Arrays;
+
+import static dev.cgj.nbody2d.simulation.Simulation.EPS;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+
+/**
+ * Region quadtree over a set of point masses, used by {@link BarnesHutSolver}.
+ *
+ * <p>
+ *   Nodes are stored in flat arrays rather than as objects so that the tree can be rebuilt every
+ *   step without generating garbage. The four children of a node are always allocated together,
+ *   so only the index of the first child needs to be stored. Children are always created after
+ *   their parent, which lets mass and center of mass be accumulated in a single reverse pass.
+ * </p>
+ */
+final class QuadTree {
+
+    /**
+     * Bodies at identical (or nearly identical) positions would otherwise cause unbounded
+     * subdivision. Leaves at this depth hold all remaining bodies in a linked list instead.
+     */
+    static final int MAX_DEPTH = 48;
+
+    /**
+     * Upper bound on the traversal stack: each level pops one node and pushes four.
+     */
+    static final int STACK_SIZE = 3 * MAX_DEPTH + 4;
+
+    private double[] centerX = new double[0];
+    private double[] centerY = new double[0];
+    private double[] halfWidth = new double[0];
+    private double[] nodeMass = new double[0];
+    private double[] comX = new double[0];
+    private double[] comY = new double[0];
+    private int[] firstChild = new int[0];
+    private int[] depth = new int[0];
+
+    /**
+     * First body contained in each leaf, or -1 if the leaf is empty.
+     */
+    private int[] firstBody = new int[0];
+
+    /**
+     * Next body in the same leaf as each body, or -1 at the end of the list.
+     */
+    private int[] nextBody = new int[0];
+
+    private int nodeCount;
+
+    /**
+     * Rebuilds the tree to contain the first {@code n} of the given bodies.
+     */
+    void build(double[] x, double[] y, double[] mass, int n) {
+        if (nextBody.length < n) {
+            nextBody = new int[n];
+        }
+        ensureNodeCapacity(Math.max(4 * n + 1, 16));
+        nodeCount = 0;
+
+        if (n == 0) {
+            newNode(0, 0, 1, 0);
+            summarize(x, y, mass);
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        // Pad slightly so that bodies on the edge are strictly inside the root
+        double half = Math.max(maxX - minX, maxY - minY) / 2;
+        half = half == 0 ? 1 : half * 1.0001;
+        newNode((minX + maxX) / 2, (minY + maxY) / 2, half, 0);
+
+        for (int i = 0; i < n; i++) {
+            insert(i, x, y);
+        }
+
+        summarize(x, y, mass);
+    }
+
+    /**
+     * Calculates the net force acting on body {@code i} by walking the tree, and stores it in
+     * {@code fx[i]} and {@code fy[i]}.
+     *
+     * @param theta opening angle; nodes narrower than {@code theta} times their distance from the
+     *              body are approximated by their center of mass
+     * @param stack scratch space of at least {@link #STACK_SIZE} elements
+     */
+    void computeForce(int i, double[] x, double[] y, double[] mass, double[] radius,
+                      double theta, int[] stack, double[] fx, double[] fy) {
+        double xi = x[i];
+        double yi = y[i];
+        double mi = mass[i];
+        double thetaSquared = theta * theta;
+        double netX = 0;
+        double netY = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMass[node] == 0) {
+                continue;
+            }
+
+            if (firstChild[node] < 0) {
+                for (int j = firstBody[node]; j >= 0; j = nextBody[j]) {
+                    if (j == i) {
+                        continue;
+                    }
+
+                    double dx = x[j] - xi;
+                    double dy = y[j] - yi;
+                    double f = DirectSumSolver.pairForce(G * mi * mass[j], radius[i] + radius[j], dx * dx + dy * dy);
+                    netX += dx * f;
+                    netY += dy * f;
+                }
+                continue;
+            }
+
+            double dx = comX[node] - xi;
+            double dy = comY[node] - yi;
+            double distSquared = dx * dx + dy * dy;
+            double width = 2 * halfWidth[node];
+
+            if (width * width < thetaSquared * distSquared && !contains(node, xi, yi)) {
+                double dist = Math.sqrt(distSquared);
+                double f = G * mi * nodeMass[node] / ((distSquared + EPS * EPS) * dist);
+                netX += dx * f;
+                netY += dy * f;
+            } else {
+                int child = firstChild[node];
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+            }
+        }
+
+        fx[i] = netX;
+        fy[i] = netY;
+    }
+
+    private void insert(int body, double[] x, double[] y) {
+        int node = 0;
+
+        while (true) {
+            if (firstChild[node] >= 0) {
+                node = firstChild[node] + quadrant(node, x[body], y[body]);
+                continue;
+            }
+
+            int existing = firstBody[node];
+            if (existing < 0 || depth[node] >= MAX_DEPTH) {
+                nextBody[body] = existing;
+                firstBody[node] = body;
+                return;
+            }
+
+            // Occupied leaf: split it and push the existing body down a level, then retry.
+            subdivide(node);
+            firstBody[node] = -1;
+            int child = firstChild[node] + quadrant(node, x[existing], y[existing]);
+            nextBody[existing] = -1;
+            firstBody[child] = existing;
+        }
+    }
+
+    private void subdivide(int node) {
+        double quarter = halfWidth[node] / 2;
+        int childDepth = depth[node] + 1;
+        ensureNodeCapacity(nodeCount + 4);
+
+        firstChild[node] = nodeCount;
+        newNode(centerX[node] - quarter, centerY[node] - quarter, quarter, childDepth);
+        newNode(centerX[node] + quarter, centerY[node] - quarter, quarter, childDepth);
+        newNode(centerX[node] - quarter, centerY[node] + quarter, quarter, childDepth);
+        newNode(centerX[node] + quarter, centerY[node] + quarter, quarter, childDepth);
+    }
+
+    /**
+     * Index (0-3) of the child of {@code node} containing the given point, matching the order in
+     * which {@link #subdivide(int)} creates children.
+     */
+    private int quadrant(int node, double px, double py) {
+        int q = px < centerX[node] ? 0 : 1;
+        return py < centerY[node] ? q : q + 2;
+    }
+
+    private boolean contains(int node, double px, double py) {
+        return Math.abs(px - centerX[node]) <= halfWidth[node]
+            && Math.abs(py - centerY[node]) <= halfWidth[node];
+    }
+
+    /**
+     * Accumulates mass and center of mass from the leaves up to the root.
+     */
+    private void summarize(double[] x, double[] y, double[] mass) {
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            double m = 0;
+            double mx = 0;
+            double my = 0;
+
+            if (firstChild[node] < 0) {
+                for (int j = firstBody[node]; j >= 0; j = nextBody[j]) {
+                    m += mass[j];
+                    mx += mass[j] * x[j];
+                    my += mass[j] * y[j];
+                }
+            } else {
+                for (int child = firstChild[node]; child < firstChild[node] + 4; child++) {
+                    m += nodeMass[child];
+                    mx += nodeMass[child] * comX[child];
+                    my += nodeMass[child] * comY[child];
+                }
+            }
+
+            nodeMass[node] = m;
+            comX[node] = m == 0 ? centerX[node] : mx / m;
+            comY[node] = m == 0 ? centerY[node] : my / m;
+        }
+    }
+
+    private void newNode(double cx, double cy, double half, int nodeDepth) {
+        int node = nodeCount++;
+        centerX[node] = cx;
+        centerY[node] = cy;
+        halfWidth[node] = half;
+        depth[node] = nodeDepth;
+        firstChild[node] = -1;
+        firstBody[node] = -1;
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (centerX.length >= capacity) {
+            return;
+        }
+
+        int size = Math.max(capacity, centerX.length * 2);
+        centerX = Arrays.copyOf(centerX, size);
+        centerY = Arrays.copyOf(centerY, size);
+        halfWidth = Arrays.copyOf(halfWidth, size);
+        nodeMass = Arrays.copyOf(nodeMass, size);
+        comX = Arrays.copyOf(comX, size);
+        comY = Arrays.copyOf(comY, size);
+        firstChild = Arrays.copyOf(firstChild, size);
+        firstBody = Arrays.copyOf(firstBody, size);
+        depth = Arrays.copyOf(depth, size);
+    }
+}
@@ -0,0 +1,173 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+import java.util.Arrays;
+
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+
+/**
+ * Exact O(n²) solver which uses Newton's third law to halve the work of {@link DirectSumSolver}:
+ * the force between each unordered pair of bodies is calculated once, then added to one body and
+ * subtracted from the other.
+ *
+ * <p>
+ *   Pairs are visited in square tiles of {@code tileSize} bodies, so that the positions and
+ *   accumulated forces of both tiles stay in cache while every pair between them is processed.
+ * </p>
+ *
+ * <p>
+ *   Because each pair writes to two bodies, threads cannot safely share the force arrays. When
+ *   parallel, each task instead owns a private pair of accumulators covering every body, handles
+ *   a fixed subset of the rows of tiles, and the accumulators are summed once all tasks are done.
+ *   The assignment of tiles to tasks and the order of the final sum are both fixed, so the result
+ *   for a given thread count does not depend on scheduling.
+ * </p>
+ */
+public class SymmetricDirectSumSolver implements ForceSolver {
+
+    /**
+     * 256 bodies occupy 10 KiB across the position, mass, radius, and force arrays of a tile,
+     * so a pair of tiles fits comfortably in a typical L1 data cache.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final ParallelExecutor executor;
+    private final int tileSize;
+
+    /**
+     * Calculates forces on a subset of bodies.
+     */
+    private final DirectSumSolver targetSolver;
+
+    /**
+     * Per-task force accumulators, grown as required and reused between steps.
+     */
+    private double[][] accumulatorsX = new double[0][];
+    private double[][] accumulatorsY = new double[0][];
+
+    public SymmetricDirectSumSolver() {
+        this(ParallelExecutor.SEQUENTIAL);
+    }
+
+    public SymmetricDirectSumSolver(ParallelExecutor executor) {
+        this(executor, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * @param executor used to process different rows of tiles concurrently
+     * @param tileSize number of bodies per tile
+     */
+    public SymmetricDirectSumSolver(ParallelExecutor executor, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize must be greater than 0");
+        }
+        this.executor = executor;
+        this.tileSize = tileSize;
+        this.targetSolver = new DirectSumSolver(executor);
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies) {
+        int n = bodies.getSize();
+        int tiles = (n + tileSize - 1) / tileSize;
+        int tasks = executor.isParallel() && n >= ParallelExecutor.MIN_PARALLEL_SIZE
+            ? Math.min(executor.getParallelism(), tiles)
+            : 1;
+
+        if (tasks == 1) {
+            Arrays.fill(bodies.getFx(), 0, n, 0);
+            Arrays.fill(bodies.getFy(), 0, n, 0);
+            for (int row = 0; row < tiles; row++) {
+                computeTileRow(bodies, row, tiles, bodies.getFx(), bodies.getFy());
+            }
+            return;
+        }
+
+        ensureAccumulators(tasks, n);
+        executor.forEachTask(tasks, (task, unused) -> {
+            double[] accX = accumulatorsX[task];
+            double[] accY = accumulatorsY[task];
+            Arrays.fill(accX, 0, n, 0);
+            Arrays.fill(accY, 0, n, 0);
+
+            // Rows near the top of the triangle contain more tiles, so deal them out cyclically.
+            for (int row = task; row < tiles; row += tasks) {
+                computeTileRow(bodies, row, tiles, accX, accY);
+            }
+        });
+
+        executor.forRange(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double sumX = 0;
+                double sumY = 0;
+                for (int task = 0; task < tasks; task++) {
+                    sumX += accumulatorsX[task][i];
+                    sumY += accumulatorsY[task][i];
+                }
+                bodies.getFx()[i] = sumX;
+                bodies.getFy()[i] = sumY;
+            }
+        });
+    }
+
+    /**
+     * Forces on a subset of bodies cannot take advantage of symmetry, so this is a plain direct
+     * sum over the targets.
+     */
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count) {
+        targetSolver.computeForces(bodies, targets, count);
+    }
+
+    /**
+     * Accumulates the forces for every pair of bodies in tile {@code row} and tiles {@code row}
+     * through {@code tiles - 1}; together the rows cover the upper triangle of the pair matrix.
+     */
+    private void computeTileRow(BodyStore bodies, int row, int tiles, double[] accX, double[] accY) {
+        for (int column = row; column < tiles; column++) {
+            computeTile(bodies, row * tileSize, column * tileSize, accX, accY);
+        }
+    }
+
+    private void computeTile(BodyStore bodies, int rowStart, int columnStart, double[] accX, double[] accY) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] mass = bodies.getMass();
+        double[] radius = bodies.getRadius();
+        int n = bodies.getSize();
+        int rowEnd = Math.min(rowStart + tileSize, n);
+        int columnEnd = Math.min(columnStart + tileSize, n);
+
+        for (int i = rowStart; i < rowEnd; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            double ri = radius[i];
+            double gmi = G * mass[i];
+            double netX = 0;
+            double netY = 0;
+
+            // On the diagonal, only visit each pair within the tile once
+            for (int j = rowStart == columnStart ? i + 1 : columnStart; j < columnEnd; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double f = DirectSumSolver.pairForce(gmi * mass[j], ri + radius[j], dx * dx + dy * dy);
+                netX += dx * f;
+                netY += dy * f;
+                accX[j] -= dx * f;
+                accY[j] -= dy * f;
+            }
+
+            accX[i] += netX;
+            accY[i] += netY;
+        }
+    }
+
+    private void ensureAccumulators(int tasks, int n) {
+        if (accumulatorsX.length < tasks || accumulatorsX[0].length < n) {
+            accumulatorsX = new double[tasks][n];
+            accumulatorsY = new double[tasks][n];
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the optional {@code VectorDirectSumSolver} when it is available, or a
+ * {@link DirectSumSolver} otherwise.
+ *
+ * <p>
+ *   The vector solver depends on the incubating {@code jdk.incubator.vector} module, which is only
+ *   resolved when the JVM is started with {@code --add-modules jdk.incubator.vector}, and is only
+ *   compiled when the build is run with {@code -PvectorApi}. It is therefore loaded reflectively so
+ *   that the rest of the application does not depend on either.
+ * </p>
+ */
+@Slf4j
+final class VectorSolverLoader {
+    private static final String MODULE = "jdk.incubator.vector";
+    private static final String SOLVER = "dev.cgj.nbody2d.simulation.force.VectorDirectSumSolver";
+
+    private VectorSolverLoader() {}
+
+    static ForceSolver create(ParallelExecutor executor) {
+        if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+            log.warn("Module {} is not enabled, falling back to the scalar direct sum. "
+                + "Start the JVM with --add-modules {} to use the vector solver.", MODULE, MODULE);
+            return new DirectSumSolver(executor);
+        }
+
+        try {
+            return (ForceSolver) Class.forName(SOLVER)
+                .getConstructor(ParallelExecutor.class)
+                .newInstance(executor);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector solver is unavailable, falling back to the scalar direct sum. "
+                + "Build with -PvectorApi to include it.", e);
+            return new DirectSumSolver(executor);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.Simulation;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import dev.cgj.nbody2d.util.ParallelExecutor.RangeTask;
+
+/**
+ * Kick-drift-kick leapfrog with hierarchical block time steps, so that bodies in close encounters
+ * can take small steps without forcing every other body to do the same.
+ *
+ * <p>
+ *   Each step of {@code dt} is divided into {@code 2^maxLevel} ticks. Every body is assigned a
+ *   level {@code k}, and is updated every {@code 2^(maxLevel - k)} ticks with a step of
+ *   {@code dt / 2^k}. The level is the smallest for which the step does not exceed
+ *   {@code sqrt(2 * eta * r / |a|)}, where {@code |a|} is the body's acceleration and {@code r}
+ *   its radius, or {@link Simulation#EPS} if that is larger. Forces between two bodies stop
+ *   growing once they are closer than the sum of their radii, so a body's radius is the shortest
+ *   distance over which its acceleration can change sharply.
+ * </p>
+ *
+ * <p>
+ *   Positions are drifted together so that forces are always calculated from synchronized
+ *   positions, but forces are only recalculated for the "active" bodies whose step ends on the
+ *   current tick. Every body is active on the last tick, so each step ends with all bodies
+ *   synchronized and all forces valid, which are reused to start the next step.
+ * </p>
+ */
+public class BlockLeapfrogIntegrator extends KickDriftIntegrator {
+    private final double accuracy;
+    private final int maxLevel;
+
+    private final RangeTask openTask = this::assignLevelsAndOpen;
+    private final RangeTask closeTask = this::closeActive;
+
+    /**
+     * Time step level of each body, indexed the same as the store.
+     */
+    private int[] level = new int[0];
+
+    /**
+     * Indices of the bodies whose step ends on the current tick.
+     */
+    private int[] active = new int[0];
+    private int activeCount;
+
+    /**
+     * Only set for the duration of {@link #step(BodyStore, double)}.
+     */
+    private BodyStore bodies;
+    private double dt;
+    private int tick;
+
+    /**
+     * @param accuracy see {@link dev.cgj.nbody2d.config.SimulationConfig#getTimeStepAccuracy()}
+     * @param maxLevel see {@link dev.cgj.nbody2d.config.SimulationConfig#getMaxTimeStepLevel()}
+     */
+    public BlockLeapfrogIntegrator(ForceSolver forceSolver, ParallelExecutor executor, double accuracy, int maxLevel) {
+        super(forceSolver, executor);
+        if (accuracy <= 0) {
+            throw new IllegalArgumentException("accuracy must be greater than 0");
+        }
+        if (maxLevel < 0 || maxLevel > 30) {
+            throw new IllegalArgumentException("maxLevel must be between 0 and 30");
+        }
+        this.accuracy = accuracy;
+        this.maxLevel = maxLevel;
+    }
+
+    @Override
+    public void step(BodyStore bodies, double dt) {
+        int n = bodies.getSize();
+        if (level.length < n) {
+            level = new int[n];
+            active = new int[n];
+        }
+
+        ensureForces(bodies);
+        this.bodies = bodies;
+        this.dt = dt;
+        int ticks = 1 << maxLevel;
+        double tickLength = dt / ticks;
+
+        try {
+            tick = 0;
+            executor.forRange(n, openTask);
+
+            double pendingDrift = 0;
+            for (tick = 1; tick <= ticks; tick++) {
+                pendingDrift += tickLength;
+                collectActive(n, ticks);
+                if (activeCount == 0) {
+                    continue;
+                }
+
+                // Positions only need to be up to date when some forces are recalculated
+                drift(bodies, pendingDrift);
+                pendingDrift = 0;
+
+                if (activeCount == n) {
+                    computeForces(bodies);
+                } else {
+                    computeForces(bodies, active, activeCount);
+                }
+                executor.forRange(activeCount, closeTask);
+            }
+        } finally {
+            this.bodies = null;
+        }
+    }
+
+    /**
+     * Finds the bodies whose step ends on the current tick.
+     */
+    private void collectActive(int n, int ticks) {
+        activeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (tick % (ticks >> level[i]) == 0) {
+                active[activeCount++] = i;
+            }
+        }
+    }
+
+    /**
+     * Starts the step of every body in {@code [from, to)} with the opening half-kick.
+     */
+    private void assignLevelsAndOpen(int from, int to) {
+        for (int i = from; i < to; i++) {
+            level[i] = idealLevel(i);
+            halfKick(i);
+        }
+    }
+
+    /**
+     * Finishes the step of every active body in {@code [from, to)} with the closing half-kick, then
+     * unless this is the last tick, chooses its next step and starts it.
+     */
+    private void closeActive(int from, int to) {
+        int ticks = 1 << maxLevel;
+        for (int k = from; k < to; k++) {
+            int i = active[k];
+            halfKick(i);
+            if (tick == ticks) {
+                continue;
+            }
+
+            // A body may only move to a longer step if that step would start on this tick
+            int next = idealLevel(i);
+            while (tick % (ticks >> next) != 0) {
+                next++;
+            }
+            level[i] = next;
+            halfKick(i);
+        }
+    }
+
+    private void halfKick(int i) {
+        double h = dt / (1 << level[i]) / 2;
+        double hOverMass = h / bodies.getMass()[i];
+        bodies.getVx()[i] += bodies.getFx()[i] * hOverMass;
+        bodies.getVy()[i] += bodies.getFy()[i] * hOverMass;
+    }
+
+    /**
+     * The smallest level whose step does not exceed the ideal time step for body {@code i}.
+     */
+    private int idealLevel(int i) {
+        double force = Math.hypot(bodies.getFx()[i], bodies.getFy()[i]);
+        if (force == 0) {
+            return 0;
+        }
+
+        double acceleration = force / bodies.getMass()[i];
+        double length = Math.max(bodies.getRadius()[i], Simulation.EPS);
+        double ideal = Math.sqrt(2 * accuracy * length / acceleration);
+        if (ideal >= dt) {
+            return 0;
+        }
+
+        int k = (int) Math.ceil(Math.log(dt / ideal) / Math.log(2));
+        return Math.min(k, maxLevel);
+    }
+}
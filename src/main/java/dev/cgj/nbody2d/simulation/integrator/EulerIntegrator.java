@@ -0,0 +1,23 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * First-order semi-implicit (symplectic) Euler. Cheap, but needs a small time step to keep orbits
+ * stable.
+ */
+public class EulerIntegrator extends KickDriftIntegrator {
+
+    public EulerIntegrator(ForceSolver forceSolver, ParallelExecutor executor) {
+        super(forceSolver, executor);
+    }
+
+    @Override
+    public void step(BodyStore bodies, double dt) {
+        ensureForces(bodies);
+        kick(bodies, dt);
+        drift(bodies, dt);
+    }
+}
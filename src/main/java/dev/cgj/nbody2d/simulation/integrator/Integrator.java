@@ -0,0 +1,57 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Strategy for advancing the positions and velocities of every body by one time step.
+ *
+ * <p>
+ *   Some integrators finish a step by calculating the forces at the new positions, which are then
+ *   reused to start the next step. Anything which changes the bodies between steps, such as
+ *   merging or moving them back inside the boundary, must call {@link #invalidateForces()}.
+ * </p>
+ */
+public interface Integrator {
+
+    /**
+     * Advances every body in the store by {@code dt} seconds, calculating forces as required.
+     */
+    void step(BodyStore bodies, double dt);
+
+    /**
+     * Discards any forces kept from the previous step, so that the next step recalculates them.
+     */
+    void invalidateForces();
+
+    /**
+     * @return true if the forces in the store were calculated at the current positions, and will
+     *         be reused to start the next step
+     */
+    boolean hasValidForces();
+
+    /**
+     * Declares that the forces in the store were calculated at the current positions, such as when
+     * they were restored along with the positions, so that the next step reuses them.
+     */
+    void acceptForces();
+
+    /**
+     * Creates the integrator selected by the given configuration.
+     *
+     * @param forceSolver used to calculate forces whenever the integrator needs them
+     * @param executor used to update bodies in parallel
+     */
+    static Integrator forConfig(SimulationConfig config, ForceSolver forceSolver, ParallelExecutor executor) {
+        return switch (config.getIntegrator()) {
+            case EULER -> new EulerIntegrator(forceSolver, executor);
+            case LEAPFROG -> new LeapfrogIntegrator(forceSolver, executor);
+            case VELOCITY_VERLET -> new VelocityVerletIntegrator(forceSolver, executor);
+            case YOSHIDA4 -> new YoshidaIntegrator(forceSolver, executor);
+            case BLOCK_LEAPFROG -> new BlockLeapfrogIntegrator(forceSolver, executor,
+                config.getTimeStepAccuracy(), config.getMaxTimeStepLevel());
+        };
+    }
+}
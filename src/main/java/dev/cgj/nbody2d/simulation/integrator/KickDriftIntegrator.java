@@ -0,0 +1,124 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import dev.cgj.nbody2d.util.ParallelExecutor.RangeTask;
+
+/**
+ * Base for integrators built from "kicks", which update velocities from the current forces, and
+ * "drifts", which update positions from the current velocities. Both run in parallel on the given
+ * executor, and keep track of whether the forces in the store match the current positions.
+ */
+abstract class KickDriftIntegrator implements Integrator {
+    private final ForceSolver forceSolver;
+    protected final ParallelExecutor executor;
+
+    private final RangeTask kickTask = this::kick;
+    private final RangeTask driftTask = this::drift;
+
+    /**
+     * Only set while a kick or drift is running.
+     */
+    private BodyStore bodies;
+    private double h;
+
+    /**
+     * True when the forces in the store were calculated at the current positions.
+     */
+    private boolean forcesValid;
+
+    KickDriftIntegrator(ForceSolver forceSolver, ParallelExecutor executor) {
+        this.forceSolver = forceSolver;
+        this.executor = executor;
+    }
+
+    @Override
+    public void invalidateForces() {
+        forcesValid = false;
+    }
+
+    @Override
+    public boolean hasValidForces() {
+        return forcesValid;
+    }
+
+    @Override
+    public void acceptForces() {
+        forcesValid = true;
+    }
+
+    /**
+     * Calculates forces at the current positions.
+     */
+    protected void computeForces(BodyStore bodies) {
+        forceSolver.computeForces(bodies);
+        forcesValid = true;
+    }
+
+    /**
+     * Calculates forces at the current positions for only the given bodies. Unless every body is
+     * a target, the forces are not all valid afterwards.
+     */
+    protected void computeForces(BodyStore bodies, int[] targets, int count) {
+        forceSolver.computeForces(bodies, targets, count);
+    }
+
+    /**
+     * Calculates forces at the current positions, unless they are already known.
+     */
+    protected void ensureForces(BodyStore bodies) {
+        if (!forcesValid) {
+            computeForces(bodies);
+        }
+    }
+
+    /**
+     * Updates every velocity by the acceleration from the current forces over {@code dt}.
+     */
+    protected void kick(BodyStore bodies, double dt) {
+        run(bodies, dt, kickTask);
+    }
+
+    /**
+     * Updates every position by the current velocity over {@code dt}. Invalidates the forces.
+     */
+    protected void drift(BodyStore bodies, double dt) {
+        run(bodies, dt, driftTask);
+        forcesValid = false;
+    }
+
+    private void run(BodyStore bodies, double dt, RangeTask task) {
+        this.bodies = bodies;
+        this.h = dt;
+        try {
+            executor.forRange(bodies.getSize(), task);
+        } finally {
+            this.bodies = null;
+        }
+    }
+
+    private void kick(int from, int to) {
+        double[] vx = bodies.getVx();
+        double[] vy = bodies.getVy();
+        double[] fx = bodies.getFx();
+        double[] fy = bodies.getFy();
+        double[] mass = bodies.getMass();
+        for (int i = from; i < to; i++) {
+            double hOverMass = h / mass[i];
+            vx[i] += fx[i] * hOverMass;
+            vy[i] += fy[i] * hOverMass;
+        }
+    }
+
+    private void drift(int from, int to) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] vx = bodies.getVx();
+        double[] vy = bodies.getVy();
+        for (int i = from; i < to; i++) {
+            x[i] += vx[i] * h;
+            y[i] += vy[i] * h;
+        }
+    }
+}
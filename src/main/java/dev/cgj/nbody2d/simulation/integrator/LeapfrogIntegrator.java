@@ -0,0 +1,34 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Second-order kick-drift-kick leapfrog. Each step kicks by half the time step, drifts by the
+ * whole step, calculates forces at the new positions, and kicks by the remaining half. Those
+ * forces are kept for the first kick of the next step, so each step needs only one force
+ * calculation, the same as {@link EulerIntegrator}.
+ */
+public class LeapfrogIntegrator extends KickDriftIntegrator {
+
+    public LeapfrogIntegrator(ForceSolver forceSolver, ParallelExecutor executor) {
+        super(forceSolver, executor);
+    }
+
+    @Override
+    public void step(BodyStore bodies, double dt) {
+        ensureForces(bodies);
+        kickDriftKick(bodies, dt);
+    }
+
+    /**
+     * Performs one leapfrog step, assuming the current forces are valid.
+     */
+    protected void kickDriftKick(BodyStore bodies, double dt) {
+        kick(bodies, dt / 2);
+        drift(bodies, dt);
+        computeForces(bodies);
+        kick(bodies, dt / 2);
+    }
+}
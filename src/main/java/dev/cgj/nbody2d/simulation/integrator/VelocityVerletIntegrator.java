@@ -0,0 +1,86 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import dev.cgj.nbody2d.util.ParallelExecutor.RangeTask;
+
+/**
+ * Second-order velocity Verlet:
+ * <pre>
+ *     x(t + dt) = x(t) + v(t) dt + a(t) dt² / 2
+ *     v(t + dt) = v(t) + (a(t) + a(t + dt)) dt / 2
+ * </pre>
+ * Algebraically equivalent to {@link LeapfrogIntegrator}, and likewise reuses the forces from the
+ * end of one step at the start of the next.
+ */
+public class VelocityVerletIntegrator extends KickDriftIntegrator {
+    private final RangeTask positionTask = this::updatePositions;
+    private final RangeTask velocityTask = this::updateVelocities;
+
+    /**
+     * Forces at the start of the step, kept while the new forces are calculated.
+     */
+    private double[] previousFx = new double[0];
+    private double[] previousFy = new double[0];
+
+    /**
+     * Only set for the duration of {@link #step(BodyStore, double)}.
+     */
+    private BodyStore bodies;
+    private double dt;
+
+    public VelocityVerletIntegrator(ForceSolver forceSolver, ParallelExecutor executor) {
+        super(forceSolver, executor);
+    }
+
+    @Override
+    public void step(BodyStore bodies, double dt) {
+        int n = bodies.getSize();
+        if (previousFx.length < n) {
+            previousFx = new double[n];
+            previousFy = new double[n];
+        }
+
+        ensureForces(bodies);
+        this.bodies = bodies;
+        this.dt = dt;
+        try {
+            executor.forRange(n, positionTask);
+            computeForces(bodies);
+            executor.forRange(n, velocityTask);
+        } finally {
+            this.bodies = null;
+        }
+    }
+
+    private void updatePositions(int from, int to) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] vx = bodies.getVx();
+        double[] vy = bodies.getVy();
+        double[] fx = bodies.getFx();
+        double[] fy = bodies.getFy();
+        double[] mass = bodies.getMass();
+        for (int i = from; i < to; i++) {
+            double halfDt2OverMass = dt * dt / (2 * mass[i]);
+            x[i] += vx[i] * dt + fx[i] * halfDt2OverMass;
+            y[i] += vy[i] * dt + fy[i] * halfDt2OverMass;
+            previousFx[i] = fx[i];
+            previousFy[i] = fy[i];
+        }
+    }
+
+    private void updateVelocities(int from, int to) {
+        double[] vx = bodies.getVx();
+        double[] vy = bodies.getVy();
+        double[] fx = bodies.getFx();
+        double[] fy = bodies.getFy();
+        double[] mass = bodies.getMass();
+        for (int i = from; i < to; i++) {
+            double halfDtOverMass = dt / (2 * mass[i]);
+            vx[i] += (previousFx[i] + fx[i]) * halfDtOverMass;
+            vy[i] += (previousFy[i] + fy[i]) * halfDtOverMass;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Fourth-order symplectic integrator, built by composing three {@link LeapfrogIntegrator} steps
+ * of lengths {@code w1 * dt}, {@code w0 * dt}, and {@code w1 * dt}
+ * (<a href="https://doi.org/10.1016/0375-9601(90)90092-3">Yoshida, 1990</a>). The middle step is
+ * backwards in time. This is the same scheme as Forest-Ruth.
+ */
+public class YoshidaIntegrator extends LeapfrogIntegrator {
+    static final double W1 = 1 / (2 - Math.cbrt(2));
+    static final double W0 = -Math.cbrt(2) * W1;
+
+    public YoshidaIntegrator(ForceSolver forceSolver, ParallelExecutor executor) {
+        super(forceSolver, executor);
+    }
+
+    @Override
+    public void step(BodyStore bodies, double dt) {
+        ensureForces(bodies);
+        kickDriftKick(bodies, W1 * dt);
+        kickDriftKick(bodies, W0 * dt);
+        kickDriftKick(bodies, W1 * dt);
+    }
+}
@@ -2,73 +2,178 @@ package dev.cgj.nbody2d.util;
 
 import lombok.Getter;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
-import java.util.function.Supplier;
 
+/**
+ * Keeps the most recently added items, dropping the oldest once full.
+ *
+ * <p>
+ *   Simulation updates happen on a separate thread to the viewer, which reads the queue while
+ *   drawing. Neither side ever waits for the other: items are stored in a ring of slots, each
+ *   holding an immutable entry tagged with the item's sequence number, and an item is published by
+ *   advancing {@link #tail} after its slot has been written. A reader takes the items between the
+ *   head and tail it saw, and discards any whose slot has since been reused for a newer item, which
+ *   leaves it with an unbroken run of the newest items as they were when it read the tail.
+ * </p>
+ *
+ * <p>
+ *   Only one thread may add to or clear the queue at a time. Any number of threads may read it
+ *   concurrently.
+ * </p>
+ */
 public class BoundedQueue<T> {
-    private final ArrayDeque<T> deque = new ArrayDeque<>();
 
     /**
-     * Simulation updates happen on a separate thread to the viewer, so we must ensure that the
-     * queue is not modified while being read for drawing.
+     * An item and the sequence number it was added with, which is compared to the expected
+     * sequence number when read to detect that the slot has been reused.
      */
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private record Entry<T>(long sequence, T item) {}
+
+    private final AtomicReferenceArray<Entry<T>> slots;
+
+    /**
+     * Sequence number of the oldest item which has not been cleared.
+     */
+    private volatile long head = 0;
+
+    /**
+     * Sequence number the next item will be added with. Every item before this has been written.
+     */
+    private volatile long tail = 0;
 
     @Getter
     private final int maxSize;
 
     public BoundedQueue(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Queue must hold at least one item: " + maxSize);
+        }
         this.maxSize = maxSize;
+        this.slots = new AtomicReferenceArray<>(maxSize);
     }
 
     public void add(T item) {
-        lock.writeLock().lock();
-        try {
-            if (deque.size() == maxSize) {
-                deque.removeFirst();
-            }
-            deque.addLast(item);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        long sequence = tail;
+        slots.set(slot(sequence), new Entry<>(sequence, item));
+        tail = sequence + 1;
+    }
+
+    public void clear() {
+        head = tail;
     }
 
+    /**
+     * Removes every item and adds {@code item}. Unlike {@link #clear()} followed by
+     * {@link #add(Object)}, a reader never finds the queue empty in between: until the old items
+     * are removed, it sees them with the new item after them.
+     */
+    public void replaceAll(T item) {
+        long sequence = tail;
+        add(item);
+        head = sequence;
+    }
+
+    /**
+     * Calls {@code f} with the index and value of each item in a snapshot of the queue, oldest
+     * first.
+     */
     public void enumerate(BiConsumer<Integer, T> f) {
-        withReadLock(() -> {
-            int i = 0;
-            for (T item : deque) {
-                f.accept(i++, item);
-            }
-            return null;
-        });
+        List<T> items = asList();
+        for (int i = 0; i < items.size(); i++) {
+            f.accept(i, items.get(i));
+        }
+    }
+
+    /**
+     * Gets the number of items ever added, which changes every time an item is added, so that a
+     * reader can tell whether anything has been added since it last looked.
+     */
+    public long getVersion() {
+        return tail;
     }
 
     public int size() {
-        return withReadLock(deque::size);
+        while (true) {
+            long end = tail;
+            long start = first(end);
+            if (start <= end) {
+                return (int) (end - start);
+            }
+        }
     }
 
+    /**
+     * Gets the newest item, or null if the queue is empty.
+     */
     public T peek() {
-        return withReadLock(deque::peekLast);
+        while (true) {
+            long end = tail;
+            long start = first(end);
+            if (start > end) {
+                // Cleared since the tail was read, so read the new tail
+                continue;
+            }
+            if (end == start) {
+                return null;
+            }
+            Entry<T> entry = slots.get(slot(end - 1));
+            if (entry.sequence() == end - 1) {
+                return entry.item();
+            }
+            // Overwritten by an item added since the tail was read, so read the new tail
+        }
     }
 
+    /**
+     * Gets a snapshot of the queue, oldest first.
+     */
     public List<T> asList() {
-        return withReadLock(() -> deque.stream().toList());
+        return asList(maxSize);
     }
 
+    /**
+     * Gets a snapshot of up to {@code limit} of the oldest items in the queue, oldest first.
+     */
     public List<T> asList(int limit) {
-        return withReadLock(() -> deque.stream().limit(limit).toList());
-    }
+        while (true) {
+            long end = tail;
+            long start = first(end);
+            if (start > end) {
+                // Cleared since the tail was read, so read the new tail
+                continue;
+            }
+            end = Math.min(end, start + Math.max(limit, 0));
 
-    private <R> R withReadLock(Supplier<R> supplier) {
-        lock.readLock().lock();
-        try {
-            return supplier.get();
-        } finally {
-            lock.readLock().unlock();
+            List<T> items = new ArrayList<>((int) (end - start));
+            for (long sequence = start; sequence < end; sequence++) {
+                Entry<T> entry = slots.get(slot(sequence));
+                if (entry.sequence() != sequence) {
+                    // This item and every one before it have been dropped since the tail was read
+                    items.clear();
+                    continue;
+                }
+                items.add(entry.item());
+            }
+            if (!items.isEmpty() || start == end) {
+                return Collections.unmodifiableList(items);
+            }
+            // Every item was dropped while being read, so take a new snapshot
         }
     }
+
+    /**
+     * Gets the sequence number of the oldest item still in the queue, given the tail. This is
+     * after the tail if the queue has been cleared since the tail was read.
+     */
+    private long first(long end) {
+        return Math.max(head, end - maxSize);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % maxSize);
+    }
 }
@@ -0,0 +1,72 @@
+package dev.cgj.nbody2d.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size set of bits which may be set concurrently from multiple threads without locking.
+ */
+public class ConcurrentBitSet {
+    private final AtomicLongArray words;
+    private final int size;
+
+    /**
+     * @param size number of bits, all initially clear
+     */
+    public ConcurrentBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    /**
+     * Sets bit {@code i}. Safe to call concurrently with any other method.
+     */
+    public void set(int i) {
+        checkIndex(i);
+        long mask = 1L << i;
+        int word = i >>> 6;
+        long current = words.get(word);
+        while ((current & mask) == 0) {
+            long witness = words.compareAndExchange(word, current, current | mask);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    public boolean get(int i) {
+        checkIndex(i);
+        return (words.get(i >>> 6) & (1L << i)) != 0;
+    }
+
+    /**
+     * @return true if no bits are set
+     */
+    public boolean isEmpty() {
+        for (int w = 0; w < words.length(); w++) {
+            if (words.get(w) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears every bit. Bits set concurrently with this call may or may not be cleared.
+     */
+    public void clear() {
+        for (int w = 0; w < words.length(); w++) {
+            words.set(w, 0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dev.cgj.nbody2d.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free <a href="https://en.wikipedia.org/wiki/Disjoint-set_data_structure">disjoint-set</a>
+ * over the integers {@code [0, size)}, safe for concurrent calls to {@link #union(int, int)} and
+ * {@link #find(int)}.
+ *
+ * <p>
+ *   Roots are always linked beneath the smaller of the two roots being joined, so once all unions
+ *   are complete the representative of every set is its smallest member, regardless of the order
+ *   in which the unions happened.
+ * </p>
+ */
+public class ConcurrentUnionFind {
+    private AtomicIntegerArray parent = new AtomicIntegerArray(0);
+
+    /**
+     * Resets every element in {@code [0, size)} to its own set. Not thread-safe.
+     */
+    public void reset(int size) {
+        if (parent.length() < size) {
+            parent = new AtomicIntegerArray(size);
+        }
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * Finds the representative of the set containing {@code i}, compressing the path to it.
+     */
+    public int find(int i) {
+        while (true) {
+            int p = parent.get(i);
+            if (p == i) {
+                return i;
+            }
+
+            // Path halving: point i at its grandparent. Losing this race only skips an optimization.
+            int grandparent = parent.get(p);
+            if (grandparent != p) {
+                parent.compareAndSet(i, p, grandparent);
+            }
+            i = grandparent;
+        }
+    }
+
+    /**
+     * Joins the sets containing {@code a} and {@code b}.
+     *
+     * @return true if they were previously in different sets
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return false;
+            }
+
+            int low = Math.min(rootA, rootB);
+            int high = Math.max(rootA, rootB);
+
+            // Fails if another thread linked 'high' first, in which case retry from the new roots
+            if (parent.compareAndSet(high, high, low)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.cgj.nbody2d.util;
+
+import lombok.Getter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs loops over a range of indices, either on the calling thread or split across a dedicated
+ * {@link ForkJoinPool}.
+ *
+ * <p>
+ *   Ranges smaller than {@link #MIN_PARALLEL_SIZE} always run sequentially, since for small
+ *   simulations the cost of handing work to other threads outweighs the work itself.
+ * </p>
+ */
+public class ParallelExecutor {
+
+    /**
+     * Ranges with fewer elements than this are not split.
+     */
+    public static final int MIN_PARALLEL_SIZE = 256;
+
+    /**
+     * Number of chunks created per thread, so that threads which finish early can steal work.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Executor which runs every range on the calling thread.
+     */
+    public static final ParallelExecutor SEQUENTIAL = new ParallelExecutor(1);
+
+    /**
+     * The work to perform for the indices in {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Null when this executor is sequential.
+     */
+    private final ForkJoinPool pool;
+
+    @Getter
+    private final int parallelism;
+
+    /**
+     * @param threads number of threads to use, or 0 to use one per available processor
+     */
+    public ParallelExecutor(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads must be greater than or equal to 0");
+        }
+
+        parallelism = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Runs the given task over {@code [0, n)}, returning once every index has been processed.
+     * The task may be called concurrently for disjoint sub-ranges.
+     */
+    public void forRange(int n, RangeTask task) {
+        if (pool == null || n < MIN_PARALLEL_SIZE) {
+            task.run(0, n);
+            return;
+        }
+
+        int grain = Math.max(1, n / (parallelism * CHUNKS_PER_THREAD));
+        pool.invoke(new RangeAction(task, 0, n, grain));
+    }
+
+    /**
+     * Runs {@code count} tasks concurrently, calling {@code task} once with {@code [t, t + 1)} for
+     * each task {@code t}. Unlike {@link #forRange(int, RangeTask)} the tasks are always split
+     * when parallel, since callers use this to divide work which is already coarse-grained.
+     */
+    public void forEachTask(int count, RangeTask task) {
+        if (pool == null) {
+            for (int t = 0; t < count; t++) {
+                task.run(t, t + 1);
+            }
+            return;
+        }
+
+        pool.invoke(new RangeAction(task, 0, count, 1));
+    }
+
+    /**
+     * Stops the worker threads of this executor. Sequential executors are unaffected.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RangeAction(RangeTask task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(task, from, mid, grain), new RangeAction(task, mid, to, grain));
+        }
+    }
+}
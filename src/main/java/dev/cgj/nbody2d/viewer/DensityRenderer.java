@@ -0,0 +1,236 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Draws a heat map of the mass in each pixel, giving an overview of where bodies are clustered
+ * when there are far more of them than can usefully be drawn one by one.
+ *
+ * <p>
+ *   Heat maps are made on a background thread, so the thread which paints never waits for one:
+ *   {@link #request} starts making a heat map of the frame and view it is given, unless one is
+ *   already being made, and returns the most recent heat map finished. Bodies are grouped by
+ *   {@link RowBands} into one band of rows per thread, and each thread sums the mass of its own
+ *   band's bodies and colors its own band's pixels. Making a heat map therefore takes time
+ *   proportional to the number of bodies plus the number of pixels, divided by the number of
+ *   threads, unless most bodies are crowded into one band. The same buffers are reused each time.
+ * </p>
+ *
+ * <p>
+ *   The mass in each pixel is shown on a logarithmic scale from the lightest pixel to the
+ *   heaviest, so that both sparse and dense regions can be told apart.
+ * </p>
+ */
+@Slf4j
+public class DensityRenderer {
+
+    private static final int PALETTE_SIZE = 256;
+
+    private static final int BACKGROUND = new Color(30, 30, 30).getRGB() & 0xFFFFFF;
+
+    /**
+     * Colors from the lightest pixel to the heaviest.
+     */
+    private static final int[] PALETTE = createPalette(
+        new Color(30, 30, 30), new Color(40, 30, 120), new Color(180, 40, 120),
+        new Color(250, 140, 30), new Color(255, 240, 160));
+
+    private final ParallelExecutor executor;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "density-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    /**
+     * The frame and view of the last heat map started, so the same heat map is not made twice.
+     */
+    private View requested;
+
+    private volatile BufferedImage latest;
+
+    /**
+     * Number of heat maps finished, so that a viewer can tell when there is a new one to draw. Only
+     * written by the worker thread.
+     */
+    private volatile long finished = 0;
+
+    // Only used by the worker thread, and reused from one heat map to the next
+    private final RowBands bands;
+    private BufferedImage spare;
+    private double[] mass = new double[0];
+    private int[] bodyPixel = new int[0];
+
+    /**
+     * The frame and the part of the simulation which a heat map shows.
+     */
+    record View(SimulationFrame frame, int width, int height, int originX, int originY, double scale) {
+        boolean sameAs(View other) {
+            return other != null && frame == other.frame && width == other.width && height == other.height
+                && originX == other.originX && originY == other.originY && scale == other.scale;
+        }
+    }
+
+    public DensityRenderer(ParallelExecutor executor) {
+        this.executor = executor;
+        this.bands = new RowBands(executor);
+    }
+
+    /**
+     * Starts making a heat map of a frame, unless one is already being made, and returns the most
+     * recently finished heat map, which may be of an earlier frame or view. The image returned may
+     * be drawn over once another heat map has been finished.
+     *
+     * @param width   width of the image, in pixels
+     * @param height  height of the image, in pixels
+     * @param originX horizontal pixel at which the simulation's origin is drawn
+     * @param originY vertical pixel at which the simulation's origin is drawn
+     * @param scale   simulation meters per pixel
+     * @return null if no heat map has been finished yet
+     */
+    public BufferedImage request(SimulationFrame frame, int width, int height, int originX, int originY,
+                                 double scale) {
+        View view = new View(frame, Math.max(1, width), Math.max(1, height), originX, originY, scale);
+        if (!view.sameAs(requested) && busy.compareAndSet(false, true)) {
+            requested = view;
+            worker.execute(() -> {
+                try {
+                    latest = render(view);
+                    finished++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to draw heat map", e);
+                } finally {
+                    busy.set(false);
+                }
+            });
+        }
+        return latest;
+    }
+
+    /**
+     * Gets the number of heat maps finished so far.
+     */
+    public long getFinishedCount() {
+        return finished;
+    }
+
+    /**
+     * Makes a heat map on the calling thread, using the buffers left over from earlier heat maps.
+     */
+    BufferedImage render(View view) {
+        int w = view.width();
+        int h = view.height();
+        BufferedImage image = spare != null && spare.getWidth() == w && spare.getHeight() == h
+            ? spare
+            : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (mass.length != w * h) {
+            mass = new double[w * h];
+        }
+
+        List<Body> bodies = view.frame().bodies();
+        int n = bodies.size();
+        if (bodyPixel.length < n) {
+            bodyPixel = new int[n];
+        }
+        double[] mass = this.mass;
+        int[] bodyPixel = this.bodyPixel;
+
+        executor.forRange(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Body body = bodies.get(i);
+                int x = view.originX() + (int) (body.getPosition().x() / view.scale());
+                int y = view.originY() + (int) (body.getPosition().y() / view.scale());
+                bodyPixel[i] = x >= 0 && x < w && y >= 0 && y < h ? y * w + x : -1;
+            }
+        });
+
+        // Each band of rows is summed by one thread, so no two threads add to the same pixel
+        bands.group(bodyPixel, n, w, h);
+        int[] drawn = bands.getBodies();
+        double[] bandMin = new double[bands.getCount()];
+        double[] bandMax = new double[bands.getCount()];
+        executor.forEachTask(bands.getCount(), (band, next) -> {
+            int first = bands.firstPixel(band);
+            int last = bands.firstPixel(next);
+            Arrays.fill(mass, first, last, 0);
+            int lastBody = bands.firstBody(next);
+            for (int k = bands.firstBody(band); k < lastBody; k++) {
+                int i = drawn[k];
+                mass[bodyPixel[i]] += bodies.get(i).getMass();
+            }
+
+            double min = Double.POSITIVE_INFINITY;
+            double max = 0;
+            for (int pixel = first; pixel < last; pixel++) {
+                if (mass[pixel] > 0) {
+                    min = Math.min(min, mass[pixel]);
+                    max = Math.max(max, mass[pixel]);
+                }
+            }
+            bandMin[band] = min;
+            bandMax[band] = max;
+        });
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0;
+        for (int band = 0; band < bands.getCount(); band++) {
+            min = Math.min(min, bandMin[band]);
+            max = Math.max(max, bandMax[band]);
+        }
+        double range = max > min ? Math.log(max / min) : 1;
+        double lightest = min;
+
+        executor.forEachTask(bands.getCount(), (band, next) -> {
+            int last = bands.firstPixel(next);
+            for (int pixel = bands.firstPixel(band); pixel < last; pixel++) {
+                pixels[pixel] = mass[pixel] > 0 ? color(Math.log(mass[pixel] / lightest) / range) : BACKGROUND;
+            }
+        });
+
+        spare = latest;
+        return image;
+    }
+
+    /**
+     * @param t 0 for the lightest pixel, 1 for the heaviest
+     */
+    private static int color(double t) {
+        int index = (int) (t * (PALETTE_SIZE - 1));
+        return PALETTE[Math.max(1, Math.min(PALETTE_SIZE - 1, index))];
+    }
+
+    /**
+     * Interpolates evenly between the given colors.
+     */
+    private static int[] createPalette(Color... stops) {
+        int[] palette = new int[PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            double position = i * (stops.length - 1) / (double) (PALETTE_SIZE - 1);
+            int stop = Math.min(stops.length - 2, (int) position);
+            double f = position - stop;
+            Color a = stops[stop];
+            Color b = stops[stop + 1];
+            int red = (int) Math.round(a.getRed() + f * (b.getRed() - a.getRed()));
+            int green = (int) Math.round(a.getGreen() + f * (b.getGreen() - a.getGreen()));
+            int blue = (int) Math.round(a.getBlue() + f * (b.getBlue() - a.getBlue()));
+            palette[i] = red << 16 | green << 8 | blue;
+        }
+        return palette;
+    }
+}
@@ -1,6 +1,7 @@
 package dev.cgj.nbody2d.viewer;
 
 import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.simulation.PlaybackControls;
 
 import javax.swing.event.MouseInputListener;
 import java.awt.Cursor;
@@ -34,6 +35,7 @@ public class InputHandler implements MouseInputListener, MouseWheelListener, Key
             Cursor cursor = new Cursor(Cursor.MOVE_CURSOR);
             viewer.frame.setCursor(cursor);
         }
+        viewer.requestRender();
     }
 
     @Override
@@ -49,6 +51,7 @@ public class InputHandler implements MouseInputListener, MouseWheelListener, Key
         } else if (e.getButton() == MouseEvent.BUTTON2) {
             viewer.setScaleToFit();
         }
+        viewer.requestRender();
     }
 
     @Override
@@ -88,8 +91,51 @@ public class InputHandler implements MouseInputListener, MouseWheelListener, Key
         } else if (e.getKeyCode() == KeyEvent.VK_T) {
             viewer.getConfig().setShowTrails(!viewer.getConfig().isShowTrails());
 
+        } else if (e.getKeyCode() == KeyEvent.VK_M) {
+            viewer.getConfig().setRenderMode(viewer.getConfig().getRenderMode().next());
+
         } else if (e.getKeyCode() == KeyEvent.VK_F11) {
             viewer.toggleFullScreen();
+
+        } else if (viewer.sim instanceof PlaybackControls playback) {
+            handlePlaybackKey(e, playback);
+        }
+        viewer.requestRender();
+    }
+
+    /**
+     * Handles the keys which only apply when replaying a recording.
+     */
+    private void handlePlaybackKey(KeyEvent e, PlaybackControls playback) {
+        int frame = playback.getFrameIndex();
+        int jump = Math.max(1, playback.getFrameCount() / 10);
+
+        if (e.getKeyCode() == KeyEvent.VK_CLOSE_BRACKET) {
+            playback.setSpeed(playback.getSpeed() * 2);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_OPEN_BRACKET) {
+            playback.setSpeed(Math.max(1, playback.getSpeed() / 2));
+
+        } else if (e.getKeyCode() == KeyEvent.VK_B) {
+            playback.setReversed(!playback.isReversed());
+
+        } else if (e.getKeyCode() == KeyEvent.VK_PERIOD) {
+            playback.seek(frame + 1);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_COMMA) {
+            playback.seek(frame - 1);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_PAGE_DOWN) {
+            playback.seek(frame + jump);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_PAGE_UP) {
+            playback.seek(frame - jump);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_HOME) {
+            playback.seek(0);
+
+        } else if (e.getKeyCode() == KeyEvent.VK_END) {
+            playback.seek(playback.getFrameCount() - 1);
         }
     }
 
@@ -108,6 +154,7 @@ public class InputHandler implements MouseInputListener, MouseWheelListener, Key
         Vec2 change = viewer.pixelsToSim(e.getPoint()).subtract(before);
         viewer.pan.x += viewer.distanceToPixels(change.x());
         viewer.pan.y += viewer.distanceToPixels(change.y());
+        viewer.requestRender();
     }
 
     @Override
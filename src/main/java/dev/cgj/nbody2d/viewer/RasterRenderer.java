@@ -0,0 +1,175 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws bodies which are no more than a pixel across by writing directly into the pixels of an
+ * image, which is much faster than drawing a circle for each body once there are many thousands
+ * of them.
+ *
+ * <p>
+ *   Rendering happens in two passes, each split across threads. First every body's pixel and
+ *   color are worked out, and the bodies are grouped by {@link RowBands} into bands of rows. Then
+ *   each thread clears one band and adds the color of each body in it, so no two threads ever
+ *   write the same pixel. Colors are added together, saturating at white, so that dense regions
+ *   stand out.
+ * </p>
+ */
+public class RasterRenderer {
+
+    /**
+     * Largest radius, in pixels, of a body which is drawn as a single pixel. Larger bodies are
+     * skipped, and should be drawn as circles.
+     */
+    public static final int MAX_POINT_RADIUS = 1;
+
+    /**
+     * Number of colors a body's speed is rounded to.
+     */
+    private static final int PALETTE_SIZE = 256;
+
+    /**
+     * Fraction of a body's color added to its pixel.
+     */
+    private static final float SPLAT_INTENSITY = 0.6f;
+
+    private static final int BACKGROUND = new Color(30, 30, 30).getRGB() & 0xFFFFFF;
+
+    /**
+     * Color of every body when none are moving.
+     */
+    private static final int STILL = Color.HSBtoRGB(0, 0, SPLAT_INTENSITY) & 0xFFFFFF;
+
+    /**
+     * Colors for speeds from 0 to the fastest body, matching {@link Viewer#getColor}.
+     */
+    private static final int[] PALETTE = createPalette();
+
+    private final ParallelExecutor executor;
+    private final RowBands bands;
+
+    private BufferedImage image;
+    private int[] pixels;
+
+    /**
+     * Scratch space holding the pixel each body falls on, or -1 if it is not drawn, and its color.
+     */
+    private int[] bodyPixel = new int[0];
+    private int[] bodyColor = new int[0];
+
+    public RasterRenderer(ParallelExecutor executor) {
+        this.executor = executor;
+        this.bands = new RowBands(executor);
+    }
+
+    /**
+     * Draws every body in a frame which is no more than {@link #MAX_POINT_RADIUS} pixels across.
+     * The image returned is reused by the next call.
+     *
+     * @param width       width of the image, in pixels
+     * @param height      height of the image, in pixels
+     * @param originX     horizontal pixel at which the simulation's origin is drawn
+     * @param originY     vertical pixel at which the simulation's origin is drawn
+     * @param scale       simulation meters per pixel
+     * @param maxVelocity speed of the fastest body, which is given the last color in the palette
+     */
+    public BufferedImage render(SimulationFrame frame, int width, int height, int originX, int originY,
+                                double scale, double maxVelocity) {
+        return render(frame, null, frame.bodies().size(), width, height, originX, originY, scale, maxVelocity);
+    }
+
+    /**
+     * Draws some of the bodies in a frame, such as only those in view, which are no more than
+     * {@link #MAX_POINT_RADIUS} pixels across. The image returned is reused by the next call.
+     *
+     * @param indices     indices in the frame of the bodies to draw, or null to draw the first
+     *                    {@code count} bodies
+     * @param count       number of bodies to draw
+     * @param width       width of the image, in pixels
+     * @param height      height of the image, in pixels
+     * @param originX     horizontal pixel at which the simulation's origin is drawn
+     * @param originY     vertical pixel at which the simulation's origin is drawn
+     * @param scale       simulation meters per pixel
+     * @param maxVelocity speed of the fastest body, which is given the last color in the palette
+     */
+    public BufferedImage render(SimulationFrame frame, int[] indices, int count, int width, int height,
+                                int originX, int originY, double scale, double maxVelocity) {
+        resize(Math.max(1, width), Math.max(1, height));
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        List<Body> bodies = frame.bodies();
+        int n = count;
+        if (bodyPixel.length < n) {
+            bodyPixel = new int[n];
+            bodyColor = new int[n];
+        }
+
+        executor.forRange(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Body body = bodies.get(indices == null ? i : indices[i]);
+                int x = originX + (int) (body.getPosition().x() / scale);
+                int y = originY + (int) (body.getPosition().y() / scale);
+                boolean visible = x >= 0 && x < w && y >= 0 && y < h
+                    && Math.round(body.getRadius() / scale) <= MAX_POINT_RADIUS;
+                bodyPixel[i] = visible ? y * w + x : -1;
+                bodyColor[i] = color(body.getVelocity().magnitude(), maxVelocity);
+            }
+        });
+
+        bands.group(bodyPixel, n, w, h);
+        int[] drawn = bands.getBodies();
+        executor.forEachTask(bands.getCount(), (band, next) -> {
+            Arrays.fill(pixels, bands.firstPixel(band), bands.firstPixel(next), BACKGROUND);
+            int last = bands.firstBody(next);
+            for (int k = bands.firstBody(band); k < last; k++) {
+                int i = drawn[k];
+                pixels[bodyPixel[i]] = addSaturated(pixels[bodyPixel[i]], bodyColor[i]);
+            }
+        });
+        return image;
+    }
+
+    private void resize(int width, int height) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    private static int color(double velocity, double maxVelocity) {
+        if (maxVelocity == 0) {
+            return STILL;
+        }
+        int index = (int) (Math.sqrt(velocity / maxVelocity) * (PALETTE_SIZE - 1));
+        return PALETTE[Math.max(0, Math.min(PALETTE_SIZE - 1, index))];
+    }
+
+    /**
+     * Adds two colors one channel at a time, limiting each channel to 255.
+     */
+    static int addSaturated(int a, int b) {
+        int red = Math.min(255, ((a >> 16) & 0xFF) + ((b >> 16) & 0xFF));
+        int green = Math.min(255, ((a >> 8) & 0xFF) + ((b >> 8) & 0xFF));
+        int blue = Math.min(255, (a & 0xFF) + (b & 0xFF));
+        return red << 16 | green << 8 | blue;
+    }
+
+    private static int[] createPalette() {
+        int[] palette = new int[PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            float hue = 0.5f * i / (PALETTE_SIZE - 1);
+            Color color = Color.getHSBColor(hue, 0.7f, SPLAT_INTENSITY);
+            palette[i] = color.getRGB() & 0xFFFFFF;
+        }
+        return palette;
+    }
+}
@@ -0,0 +1,67 @@
+package dev.cgj.nbody2d.viewer;
+
+import java.util.Arrays;
+
+/**
+ * Measures how often the viewer draws a frame and how long drawing takes, over the most recent
+ * {@link #WINDOW} frames.
+ *
+ * <p>
+ *   Only used by the thread which draws frames, so it is not thread safe.
+ * </p>
+ */
+public class RenderStats {
+
+    /**
+     * Number of recent frames kept.
+     */
+    static final int WINDOW = 240;
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final long[] finishedAt = new long[WINDOW];
+    private final long[] renderNanos = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int count = 0;
+    private int next = 0;
+
+    /**
+     * @param finishedAt  {@link System#nanoTime()} when the frame was finished
+     * @param renderNanos how long the frame took to draw
+     */
+    public void record(long finishedAt, long renderNanos) {
+        this.finishedAt[next] = finishedAt;
+        this.renderNanos[next] = renderNanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    /**
+     * Gets the number of frames finished in the second before {@code now}, a {@link System#nanoTime()}.
+     */
+    public int getFramesPerSecond(long now) {
+        int frames = 0;
+        for (int i = 0; i < count; i++) {
+            if (now - finishedAt[i] < SECOND) {
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Gets the time taken to draw a frame which the given fraction of recent frames took no longer
+     * than, or 0 if no frames have been drawn.
+     *
+     * @param fraction between 0 and 1, such as 0.95 for the 95th percentile
+     */
+    public long getPercentileNanos(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(renderNanos, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int rank = (int) Math.ceil(fraction * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,150 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.util.ParallelExecutor;
+
+/**
+ * Divides an image into one band of rows per thread, and groups the bodies drawn in it by the band
+ * their pixel falls in, so that the thread drawing a band only visits the bodies inside it.
+ *
+ * <p>
+ *   Bodies are grouped by a counting sort split across threads: each thread counts the bodies in
+ *   each band from its own share of the bodies, the counts are summed into the position of each
+ *   thread's bodies in each band, and each thread then copies its bodies' indices into place. Every
+ *   band lists its bodies in increasing index order, so anything added up per pixel comes out the
+ *   same however many threads are used.
+ * </p>
+ *
+ * <p>
+ *   Reuses its buffers from one image to the next, so it must only be used by one thread at a time.
+ * </p>
+ */
+final class RowBands {
+
+    private final ParallelExecutor executor;
+
+    private int width;
+    private int height;
+    private int count;
+
+    /**
+     * Index in {@link #bodies} of each band's first body, with the total number of bodies drawn at
+     * the end.
+     */
+    private int[] bandStart = new int[1];
+
+    /**
+     * Indices of the bodies drawn, grouped by band.
+     */
+    private int[] bodies = new int[0];
+
+    /**
+     * Number of each share's bodies in each band, then the position of the next one, indexed by
+     * {@code band * shares + share}.
+     */
+    private int[] offsets = new int[0];
+
+    RowBands(ParallelExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Divides an image into bands and groups the bodies by band.
+     *
+     * @param bodyPixel the pixel each body falls on, counting along each row, or -1 if it is not drawn
+     * @param n         number of bodies
+     */
+    void group(int[] bodyPixel, int n, int width, int height) {
+        this.width = width;
+        this.height = height;
+        int bands = Math.min(height, executor.getParallelism());
+        int shares = n < ParallelExecutor.MIN_PARALLEL_SIZE ? 1 : bands;
+        count = bands;
+        if (bandStart.length < bands + 1) {
+            bandStart = new int[bands + 1];
+        }
+        if (bodies.length < n) {
+            bodies = new int[n];
+        }
+        if (offsets.length < bands * shares) {
+            offsets = new int[bands * shares];
+        }
+        int[] offsets = this.offsets;
+        int[] bodies = this.bodies;
+
+        executor.forEachTask(shares, (share, unused) -> {
+            for (int band = 0; band < bands; band++) {
+                offsets[band * shares + share] = 0;
+            }
+            int last = end(share, shares, n);
+            for (int i = end(share - 1, shares, n); i < last; i++) {
+                if (bodyPixel[i] >= 0) {
+                    offsets[bandOf(bodyPixel[i]) * shares + share]++;
+                }
+            }
+        });
+
+        int total = 0;
+        for (int band = 0; band < bands; band++) {
+            bandStart[band] = total;
+            for (int share = 0; share < shares; share++) {
+                int bodiesInShare = offsets[band * shares + share];
+                offsets[band * shares + share] = total;
+                total += bodiesInShare;
+            }
+        }
+        bandStart[bands] = total;
+
+        executor.forEachTask(shares, (share, unused) -> {
+            int last = end(share, shares, n);
+            for (int i = end(share - 1, shares, n); i < last; i++) {
+                if (bodyPixel[i] >= 0) {
+                    bodies[offsets[bandOf(bodyPixel[i]) * shares + share]++] = i;
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the number of bands the image was divided into.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the first pixel of a band, which is also the pixel after the end of the band before it.
+     */
+    int firstPixel(int band) {
+        return (int) ((long) height * band / count) * width;
+    }
+
+    /**
+     * Gets the position in {@link #getBodies()} of a band's first body, which is also the position
+     * after the band before it.
+     */
+    int firstBody(int band) {
+        return bandStart[band];
+    }
+
+    /**
+     * Gets the indices of the bodies drawn, grouped by band from {@link #firstBody(int)}.
+     */
+    int[] getBodies() {
+        return bodies;
+    }
+
+    /**
+     * Gets the band containing a pixel, the last whose first row is not below the pixel's row.
+     */
+    private int bandOf(int pixel) {
+        long row = pixel / width;
+        return (int) (((row + 1) * count - 1) / height);
+    }
+
+    /**
+     * Gets the index after the last body in one thread's share.
+     */
+    private static int end(int share, int shares, int n) {
+        return (int) ((long) n * (share + 1) / shares);
+    }
+}
@@ -2,44 +2,62 @@ package dev.cgj.nbody2d.viewer;
 
 import dev.cgj.nbody2d.data.Body;
 import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.simulation.PlaybackControls;
 import dev.cgj.nbody2d.simulation.Simulation;
+import dev.cgj.nbody2d.config.RenderMode;
 import dev.cgj.nbody2d.config.ViewerConfig;
 import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.util.ParallelExecutor;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.swing.JFrame;
-import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 import java.awt.AlphaComposite;
+import java.awt.Canvas;
 import java.awt.Color;
+import java.awt.Composite;
+import java.awt.DisplayMode;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.MouseInfo;
 import java.awt.Point;
-import java.awt.geom.Path2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Panel to display and manipulates a 2-dimensional n-body simulation (NBody2d). A window
+ * Canvas to display and manipulates a 2-dimensional n-body simulation (NBody2d). A window
  * will be created immediately upon instantiation.
+ *
+ * <p>
+ *   Frames are drawn by a render thread started by {@link #run()}, at most once per refresh of the
+ *   display, and only when something has changed: a new simulation frame, panning, resizing, a
+ *   finished heat map, or input which asks for the view to be drawn again. A render thread which
+ *   falls behind skips the refreshes it missed rather than drawing them late.
+ * </p>
  */
-public class Viewer extends JPanel {
-    private static final int TRAIL_LENGTH = 50;
+@Slf4j
+public class Viewer extends Canvas {
+    private static final int TRAIL_SEGMENT_LENGTH = 20;
+    private static final int NO_SELECTION = -1;
+    private static final int DEFAULT_REFRESH_RATE = 60;
 
     /**
      * The simulation being displayed.
      */
     final Simulation sim;
     @Getter @Setter ViewerConfig config;
-    String selection;
+    int selection = NO_SELECTION;
 
-    long frameTime;             // how long it took to draw the last frame, in nanoseconds
     JFrame frame;               // the frame that the simulation is displayed in
     boolean fullScreen = false; // is the viewer full screen currently?
     double scale;               // simulation meters per on-screen pixel
@@ -61,6 +79,44 @@ public class Viewer extends JPanel {
 
     private long stepTime;
 
+    private final RenderStats stats = new RenderStats();
+
+    /**
+     * Nanoseconds between frames, which is the display's refresh period unless a longer
+     * repaint interval is configured.
+     */
+    private long framePeriod = TimeUnit.SECONDS.toNanos(1) / DEFAULT_REFRESH_RATE;
+
+    /**
+     * True when something the render thread cannot see for itself has changed since the last frame.
+     */
+    private volatile boolean dirty = true;
+
+    /**
+     * What was drawn in the last frame, or null if nothing has been drawn.
+     */
+    private ViewState rendered;
+
+    /**
+     * Created the first time raster or density mode is used, since they start a thread per processor.
+     */
+    private ParallelExecutor renderExecutor;
+    private RasterRenderer rasterRenderer;
+    private DensityRenderer densityRenderer;
+
+    /**
+     * Scratch space for the indices of the bodies in view.
+     */
+    private int[] visible = new int[0];
+
+    /**
+     * Scratch space for the trail being drawn, reused so that drawing trails does not allocate.
+     */
+    private double[] trailX = new double[0];
+    private double[] trailY = new double[0];
+    private final int[] segmentX = new int[TRAIL_SEGMENT_LENGTH + 1];
+    private final int[] segmentY = new int[TRAIL_SEGMENT_LENGTH + 1];
+
     /**
      * NBody2dViewer Constructor. Creates and configures display panel.
      *
@@ -68,7 +124,6 @@ public class Viewer extends JPanel {
      * @param sim the simulation to display
      */
     public Viewer(ViewerConfig config, Simulation sim) {
-        super(true);
         this.config = config;
         this.sim = sim;
         this.pan = new Point(0, 0);
@@ -78,6 +133,7 @@ public class Viewer extends JPanel {
         addMouseWheelListener(inputHandler);
         addKeyListener(inputHandler);
 
+        setBackground(new Color(30, 30, 30));
         setFocusable(true);
         requestFocusInWindow();
 
@@ -109,8 +165,8 @@ public class Viewer extends JPanel {
     }
 
     public void selectClosest(Point point) {
-        String nearest = Simulation.nearestBody(sim, pixelsToSim(point)).getId();
-        if (Objects.equals(selection, nearest)) {
+        int nearest = Simulation.nearestBody(sim, pixelsToSim(point)).getId();
+        if (selection == nearest) {
             clearSelection();
         } else {
             selection = nearest;
@@ -118,7 +174,7 @@ public class Viewer extends JPanel {
     }
 
     public void clearSelection() {
-        selection = null;
+        selection = NO_SELECTION;
     }
 
     /**
@@ -222,68 +278,114 @@ public class Viewer extends JPanel {
     }
 
     /**
-     * Overrides the custom JComponent paint method to display custom graphics.
-     *
-     * @param g the graphics context to paint with
+     * Frames are drawn by the render thread, so a request from the system to paint, such as when
+     * the window is uncovered, only asks for the next frame to be drawn.
      */
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        long startTime = System.nanoTime();
+    public void paint(Graphics g) {
+        requestRender();
+    }
+
+    @Override
+    public void update(Graphics g) {
+        requestRender();
+    }
 
+    /**
+     * Asks for the view to be drawn again, after a change which the render thread cannot see for
+     * itself, such as to the scale, selection, or config.
+     */
+    void requestRender() {
+        dirty = true;
+    }
+
+    /**
+     * Draws the current state of the simulation and some user interaction data.
+     *
+     * @param g the graphics context to draw with
+     */
+    private void render(Graphics g) {
         // center window on selected body, if one exists
+        sim.setLevelOfDetail(scale);
+        int trailLength = config.isShowTrails() ? config.getTrailLength() : 0;
+        sim.getTrails().setLength(trailLength);
         SimulationFrame currentFrame = sim.currentFrame();
         Optional<Body> selectedBody = currentFrame.getById(selection);
         selectedBody.ifPresent(body -> centerWindowOn(body.getPosition()));
 
-        // dark background
-        g.setColor(new Color(30, 30, 30));
-        g.fillRect(0, 0, this.getWidth(), this.getHeight());
+        double maxForce = currentFrame.getMaxForce();
+        double maxVelocity = currentFrame.getMaxVelocity();
+        RenderMode mode = config.getRenderMode();
+
+        // only bodies which may overlap the window are drawn
+        List<Body> bodies = currentFrame.bodies();
+        if (visible.length < bodies.size()) {
+            visible = new int[bodies.size()];
+        }
+        Vec2 topLeft = pixelsToSim(new Point(0, 0));
+        Vec2 bottomRight = pixelsToSim(new Point(getWidth(), getHeight()));
+        int visibleCount = currentFrame.index()
+            .collect(topLeft.x(), topLeft.y(), bottomRight.x(), bottomRight.y(), visible);
+
+        // dark background, with the bodies no bigger than a pixel already drawn on it unless in vector mode
+        Point origin = simToPixels(0, 0);
+        BufferedImage background = switch (mode) {
+            case RASTER -> rasterRenderer().render(currentFrame, visible, visibleCount, getWidth(), getHeight(),
+                origin.x, origin.y, scale, maxVelocity);
+            case DENSITY -> densityRenderer().request(currentFrame, getWidth(), getHeight(), origin.x, origin.y, scale);
+            case VECTOR -> null;
+        };
+        if (background != null) {
+            g.drawImage(background, 0, 0, null);
+        } else {
+            g.setColor(new Color(30, 30, 30));
+            g.fillRect(0, 0, this.getWidth(), this.getHeight());
+        }
 
         // draw debug info
         g.setColor(Color.WHITE);
-        g.drawString("tracked particles: " + sim.currentFrame().bodies().size(), 20, 40);
+        g.drawString("tracked particles: " + bodies.size(), 20, 40);
         g.drawString(String.format("scale: %.2e meters / pixel", scale), 20, 55);
         g.drawString("sim elapsed time: " + secondsToString(sim.getTimeElapsed()), 20, 70);
         g.drawString("sim step time: " + Duration.ofNanos(stepTime).toMillis() + "ms", 20, 85);
-        long frameTimeMillis = Duration.ofNanos(frameTime).toMillis();
-        long frameRate = millisecondsToFPS(frameTimeMillis);
-        g.drawString("viewer frame time: " + frameTimeMillis + "ms (" + frameRate + " FPS)", 20, 100);
+        g.drawString(String.format("viewer: %d FPS, frame time p50 %.1fms, p95 %.1fms, p99 %.1fms",
+            stats.getFramesPerSecond(System.nanoTime()), toMillis(stats.getPercentileNanos(0.5)),
+            toMillis(stats.getPercentileNanos(0.95)), toMillis(stats.getPercentileNanos(0.99))), 20, 100);
+        if (sim instanceof PlaybackControls playback) {
+            g.drawString(String.format("replay frame: %d / %d (%dx%s)", playback.getFrameIndex() + 1,
+                playback.getFrameCount(), playback.getSpeed(), playback.isReversed() ? ", reversed" : ""), 20, 115);
+        }
 
         // draw border circle
         Point center = simToPixels(0, 0);
         drawCircle(g, center.x, center.y, distanceToPixels(sim.getBoundary()));
 
-        double maxForce = currentFrame.getMaxForce();
-        double maxVelocity = currentFrame.getMaxVelocity();
-
-        Map<String, List<Body>> history = sim.getHistory(TRAIL_LENGTH);
-        for (Body body : currentFrame.bodies()) {
-            Point location = simToPixels(body.getPosition());
-
-            g.setColor(getColor(body, maxVelocity));
+        ensureTrailCapacity(trailLength);
+        for (int i = 0; i < visibleCount; i++) {
+            Body body = bodies.get(visible[i]);
             int radius = distanceToPixels(body.getRadius());
-            if (radius < 1) radius = 1;
-            drawCircle(g, location.x, location.y, radius);
+            if (mode == RenderMode.VECTOR || radius > RasterRenderer.MAX_POINT_RADIUS) {
+                Point location = simToPixels(body.getPosition());
+                g.setColor(getColor(body, maxVelocity));
+                if (radius < 1) radius = 1;
+                drawCircle(g, location.x, location.y, radius);
+            }
 
             if (config.isShowForceVectors()) {
                 drawForceVector(g, body);
             }
 
-            if (config.isShowTrails()) {
-                // Swing uses Graphics2D internally, so this downcast is safe
-                drawHistoryTrail((Graphics2D) g, history.get(body.getId()), maxVelocity, config.isColorTrails());
+            if (trailLength > 0) {
+                // AWT draws with Graphics2D internally, so this downcast is safe
+                Color color = config.isColorTrails() ? getColor(body, maxVelocity) : Color.GRAY;
+                drawTrail((Graphics2D) g, sim.getTrails().copy(body.getId(), trailX, trailY), color);
             }
-
-            selectedBody.ifPresent(selected -> highlightBody(g, selected));
         }
-
-        // Smooth measurement by averaging with previous
-        frameTime = (frameTime + (System.nanoTime() - startTime)) / 2;
+        selectedBody.ifPresent(selected -> highlightBody(g, selected));
     }
 
-    private long millisecondsToFPS(long frameTime) {
-        return Math.round(1000.0 / (float)frameTime);
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
     }
 
     private void highlightBody(Graphics g, Body body) {
@@ -319,37 +421,59 @@ public class Viewer extends JPanel {
         }
     }
 
-    /**
-     * Draws the historical positions of the body as a series of connected lines on the given
-     * graphics context.
-     *
-     * @param g       the graphics context used to draw the position history
-     * @param history the position history to draw
-     */
-    private void drawHistoryTrail(Graphics2D g, List<Body> history, double limit, boolean color) {
-        final int SEGMENT_LENGTH = 20;
-        Path2D path = new Path2D.Double();
+    private ParallelExecutor renderExecutor() {
+        if (renderExecutor == null) {
+            renderExecutor = new ParallelExecutor(0);
+        }
+        return renderExecutor;
+    }
 
-        for (int i = 0; i < history.size(); i++) {
-            Body state = history.get(i);
-            Point current = simToPixels(state.getPosition());
+    private RasterRenderer rasterRenderer() {
+        if (rasterRenderer == null) {
+            rasterRenderer = new RasterRenderer(renderExecutor());
+        }
+        return rasterRenderer;
+    }
 
-            if (i == 0) {
-                path.moveTo(current.x, current.y);
-            } else {
-                path.lineTo(current.x, current.y);
-            }
+    private DensityRenderer densityRenderer() {
+        if (densityRenderer == null) {
+            densityRenderer = new DensityRenderer(renderExecutor());
+        }
+        return densityRenderer;
+    }
+
+    private void ensureTrailCapacity(int length) {
+        if (trailX.length != length) {
+            trailX = new double[length];
+            trailY = new double[length];
+        }
+    }
 
-            // Updating color + opacity for every history point is slow, so use 20 element segments
-            if (i % SEGMENT_LENGTH == 0 || i == history.size() - 1) {
-                float opacity = i / (float) history.size();
-                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-                g.setColor(color ? getColor(state, limit) : Color.GRAY);
-                g.draw(path);
-                path.reset();
-                path.moveTo(current.x, current.y);
+    /**
+     * Draws the trail copied into {@link #trailX} and {@link #trailY} as a series of connected
+     * lines, fading out towards the oldest position.
+     *
+     * @param g     the graphics context used to draw the trail
+     * @param n     the number of positions in the trail
+     * @param color the color of the trail
+     */
+    private void drawTrail(Graphics2D g, int n, Color color) {
+        Point center = getScreenCenter();
+        Composite composite = g.getComposite();
+        g.setColor(color);
+
+        // Updating opacity for every position is slow, so draw in 20 position segments
+        for (int start = 0; start < n - 1; start += TRAIL_SEGMENT_LENGTH) {
+            int end = Math.min(start + TRAIL_SEGMENT_LENGTH, n - 1);
+            for (int i = start; i <= end; i++) {
+                segmentX[i - start] = (center.x + pan.x) + (int) (trailX[i] / scale);
+                segmentY[i - start] = (center.y + pan.y) + (int) (trailY[i] / scale);
             }
+            float opacity = end / (float) n;
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+            g.drawPolyline(segmentX, segmentY, end - start + 1);
         }
+        g.setComposite(composite);
     }
 
     /**
@@ -365,19 +489,6 @@ public class Viewer extends JPanel {
         g.drawOval(x - radius, y - radius, radius * 2, radius * 2);
     }
 
-    /**
-     * Updates the display to match the current state of the currently observed simulation and some
-     * user interaction data.
-     */
-    public void update() {
-        if (frame != null) {
-            repaint();
-        }
-        if (isPanning) {
-            updatePan();
-        }
-    }
-
     /**
      * Record the starting location for panning using the mouse. The amount panned exactly
      * corresponds to the distance moved by the mouse.
@@ -422,15 +533,107 @@ public class Viewer extends JPanel {
         pan.y = -distanceToPixels(position.y());
     }
 
+    /**
+     * Starts the render thread, which draws frames until the program exits.
+     */
     public void run() {
-        new java.util.Timer().scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                update();
+        new Thread(this::renderLoop, "viewer-render").start();
+    }
+
+    private void renderLoop() {
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            if (isPanning) {
+                updatePan();
+            }
+
+            try {
+                BufferStrategy strategy = bufferStrategy();
+                long frameVersion = sim.getFrameVersion();
+                long heatMaps = densityRenderer == null ? 0 : densityRenderer.getFinishedCount();
+                if (strategy != null && (dirty || !viewState(frameVersion, heatMaps).equals(rendered))) {
+                    dirty = false;
+                    renderFrame(strategy);
+
+                    // Taken after drawing, since drawing moves the pan to follow the selected body
+                    rendered = viewState(frameVersion, heatMaps);
+                }
+            } catch (IllegalStateException e) {
+                // The canvas was taken out of its window while drawing, such as to go full screen
+                log.debug("Canvas removed while drawing", e);
+                dirty = true;
+            } catch (RuntimeException e) {
+                log.error("Failed to draw frame", e);
             }
-        }, 0, config.getRepaintInterval());
+
+            long now = System.nanoTime();
+            next += framePeriod;
+            if (next < now) {
+                // Behind, so drop the frames which were missed rather than drawing them late
+                next = now + framePeriod;
+            }
+            LockSupport.parkNanos(next - now);
+        }
+    }
+
+    /**
+     * Gets the buffers frames are drawn into, creating them if the canvas has been added to a
+     * window since the last frame, or null if it is not in a window.
+     */
+    private BufferStrategy bufferStrategy() {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null && isDisplayable()) {
+            createBufferStrategy(2);
+            strategy = getBufferStrategy();
+            framePeriod = framePeriod();
+        }
+        return strategy;
+    }
+
+    /**
+     * Draws a frame into the back buffer and shows it, drawing it again if the buffers' contents
+     * are lost part way through.
+     */
+    private void renderFrame(BufferStrategy strategy) {
+        long start = System.nanoTime();
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    render(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+
+        long end = System.nanoTime();
+        stats.record(end, end - start);
+    }
+
+    private long framePeriod() {
+        GraphicsConfiguration graphics = getGraphicsConfiguration();
+        int refreshRate = graphics == null
+            ? DisplayMode.REFRESH_RATE_UNKNOWN
+            : graphics.getDevice().getDisplayMode().getRefreshRate();
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        long refreshPeriod = TimeUnit.SECONDS.toNanos(1) / refreshRate;
+        return Math.max(refreshPeriod, TimeUnit.MILLISECONDS.toNanos(config.getRepaintInterval()));
     }
 
+    private ViewState viewState(long frameVersion, long heatMaps) {
+        return new ViewState(frameVersion, heatMaps, pan.x, pan.y, getWidth(), getHeight());
+    }
+
+    /**
+     * Everything which changes what is drawn that the render thread checks for itself.
+     */
+    private record ViewState(long frameVersion, long heatMaps, int panX, int panY, int width, int height) {}
+
     /**
      * Automatically step the simulation at a real-world time interval. Call stopAutoStep to stop
      * this behavior.
@@ -443,6 +646,11 @@ public class Viewer extends JPanel {
         timer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
+                // Skip steps which are already late rather than running them back to back to catch up
+                if (System.currentTimeMillis() - scheduledExecutionTime() >= stepDelay) {
+                    return;
+                }
+
                 long startTime = System.nanoTime();
                 sim.step();
 
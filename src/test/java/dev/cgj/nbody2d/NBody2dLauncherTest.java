@@ -0,0 +1,137 @@
+package dev.cgj.nbody2d;
+
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.io.FrameSink;
+import dev.cgj.nbody2d.io.FrameSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class NBody2dLauncherTest {
+
+    /**
+     * JSON is also YAML, and needs no indentation.
+     */
+    private static final String CONFIG = """
+        {"simulation": {"boundary": 2e10, "dt": 3600, "integrator": "LEAPFROG", "seed": 4,
+          "initialState": [{"n": 20, "positionJitter": 1e10, "velocityJitter": 20000, "r": 1e7, "mass": 1e24}]}}
+        """;
+
+    /**
+     * Buffers frames in the pipeline and in compressed blocks, with a level of detail alongside.
+     */
+    private static final String COMPRESSED_CONFIG = """
+        {"simulation": {"boundary": 2e10, "dt": 3600, "integrator": "LEAPFROG", "seed": 4,
+          "initialState": [{"n": 20, "positionJitter": 1e10, "velocityJitter": 20000, "r": 1e7, "mass": 1e24}]},
+         "recording": {"compression": "DEFLATE", "levelsOfDetail": 1, "levelOfDetailCells": 16}}
+        """;
+
+    @TempDir
+    Path directory;
+
+    private Path config;
+
+    @BeforeEach
+    void writeConfig() throws IOException {
+        config = directory.resolve("config.yml");
+        Files.writeString(config, CONFIG);
+    }
+
+    @Test
+    void run_resume_continuesRecording() throws IOException {
+        Path uninterrupted = directory.resolve("uninterrupted.bin");
+        runHeadless(uninterrupted, 10, false);
+
+        Path resumed = directory.resolve("resumed.bin");
+        runHeadless(resumed, 6, false);
+        runHeadless(resumed, 10, true);
+
+        try (FrameSource expected = FrameSource.open(uninterrupted); FrameSource actual = FrameSource.open(resumed)) {
+            assertEquals(11, expected.getFrameCount());
+            assertEquals(11, actual.getFrameCount());
+            for (int i = 0; i < 11; i++) {
+                assertEquals(expected.getFrame(i), actual.getFrame(i), "frame " + i);
+            }
+        }
+        assertFalse(Files.exists(directory.resolve("resumed.bin.resumed")));
+    }
+
+    @Test
+    void run_resumeAfterStoppingWithoutClosing_continuesRecording() throws IOException {
+        Files.writeString(config, COMPRESSED_CONFIG);
+        Path uninterrupted = directory.resolve("uninterrupted.bin");
+        runHeadless(uninterrupted, 10, false);
+
+        // Keep the file as it was when the run stopped, before the abandoned sink is closed
+        Path resumed = directory.resolve("resumed.bin");
+        List<FrameSink> abandoned = new ArrayList<>();
+        NBody2dLauncher launcher = launcher(resumed, 6, false);
+        launcher.outputWrapper = sink -> {
+            abandoned.add(sink);
+            return withoutClose(sink);
+        };
+        launcher.run();
+        Path stopped = directory.resolve("stopped.bin");
+        Files.copy(resumed, stopped);
+        abandoned.get(0).close();
+        Files.copy(stopped, resumed, StandardCopyOption.REPLACE_EXISTING);
+
+        runHeadless(resumed, 10, true);
+
+        try (FrameSource expected = FrameSource.open(uninterrupted); FrameSource actual = FrameSource.open(resumed)) {
+            assertEquals(11, actual.getFrameCount());
+            for (int i = 0; i < 11; i++) {
+                assertEquals(expected.getFrame(i), actual.getFrame(i), "frame " + i);
+            }
+        }
+    }
+
+    private void runHeadless(Path output, int steps, boolean resume) {
+        launcher(output, steps, resume).run();
+    }
+
+    private NBody2dLauncher launcher(Path output, int steps, boolean resume) {
+        NBody2dLauncher launcher = new NBody2dLauncher();
+        launcher.configurationPath = config.toString();
+        launcher.outputPath = output.toString();
+        launcher.checkpointPath = output.resolveSibling(output.getFileName() + ".checkpoint").toString();
+        launcher.checkpointInterval = 4;
+        launcher.headless = true;
+        launcher.steps = steps;
+        launcher.resume = resume;
+        return launcher;
+    }
+
+    private static FrameSink withoutClose(FrameSink sink) {
+        return new FrameSink() {
+            @Override
+            public void write(SimulationFrame frame) throws IOException {
+                sink.write(frame);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                sink.flush();
+            }
+
+            @Override
+            public long getFramesWritten() {
+                return sink.getFramesWritten();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package dev.cgj.nbody2d.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordingConfigTest {
+
+    @Test
+    void validate_defaults_valid() {
+        assertDoesNotThrow(() -> RecordingConfig.builder().build().validate());
+    }
+
+    @Test
+    void validate_oneLevelPerHalving_valid() {
+        RecordingConfig config = RecordingConfig.builder().levelsOfDetail(4).levelOfDetailCells(8).build();
+        assertDoesNotThrow(config::validate);
+    }
+
+    @Test
+    void validate_moreLevelsThanHalvings_throws() {
+        RecordingConfig config = RecordingConfig.builder().levelsOfDetail(5).levelOfDetailCells(8).build();
+        assertThrows(IllegalArgumentException.class, config::validate);
+    }
+
+    @Test
+    void validate_cellsNotPowerOfTwo_throws() {
+        RecordingConfig config = RecordingConfig.builder().levelsOfDetail(2).levelOfDetailCells(12).build();
+        assertThrows(IllegalArgumentException.class, config::validate);
+    }
+
+    @Test
+    void validate_negativeLevels_throws() {
+        RecordingConfig config = RecordingConfig.builder().levelsOfDetail(-1).build();
+        assertThrows(IllegalArgumentException.class, config::validate);
+    }
+}
@@ -0,0 +1,19 @@
+package dev.cgj.nbody2d.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BodyRegistryTest {
+
+    @Test
+    void idFor_assignsDenseIdsInOrderSeen() {
+        BodyRegistry registry = new BodyRegistry();
+
+        assertEquals(0, registry.idFor("a6f1"));
+        assertEquals(1, registry.idFor("03bc"));
+        assertEquals(0, registry.idFor("a6f1"));
+        assertEquals(2, registry.size());
+        assertEquals("03bc", registry.getExternalId(1));
+    }
+}
@@ -0,0 +1,55 @@
+package dev.cgj.nbody2d.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BodyStoreTest {
+
+    @Test
+    void toFrame_fromFrame_roundTrip() {
+        SimulationFrame frame = new SimulationFrame(List.of(
+            createBody(1, new Vec2(1, 2), new Vec2(3, 4), new Vec2(5, 6)),
+            createBody(2, new Vec2(-1, -2), new Vec2(-3, -4), new Vec2(-5, -6))
+        ));
+
+        assertEquals(frame, BodyStore.fromFrame(frame).toFrame());
+    }
+
+    @Test
+    void removeFlagged_preservesOrder() {
+        BodyStore store = new BodyStore(4);
+        for (int i = 0; i < 4; i++) {
+            store.add(createBody(i, new Vec2(i, i), Vec2.ZERO, Vec2.ZERO));
+        }
+
+        int removed = store.removeFlagged(new boolean[] {true, false, true, false});
+
+        assertEquals(2, removed);
+        assertEquals(2, store.getSize());
+        assertEquals(1, store.get(0).getId());
+        assertEquals(new Vec2(3, 3), store.get(1).getPosition());
+    }
+
+    @Test
+    void add_full_throws() {
+        BodyStore store = new BodyStore(1);
+        store.add(createBody(1, Vec2.ZERO, Vec2.ZERO, Vec2.ZERO));
+        assertThrows(IllegalStateException.class,
+            () -> store.add(createBody(2, Vec2.ZERO, Vec2.ZERO, Vec2.ZERO)));
+    }
+
+    private Body createBody(int id, Vec2 position, Vec2 velocity, Vec2 force) {
+        return Body.builder()
+            .id(id)
+            .position(position)
+            .velocity(velocity)
+            .force(force)
+            .radius(1.0)
+            .mass(2.0)
+            .build();
+    }
+}
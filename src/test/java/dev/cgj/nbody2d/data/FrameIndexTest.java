@@ -0,0 +1,111 @@
+package dev.cgj.nbody2d.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrameIndexTest {
+
+    @Test
+    void indexOf() {
+        FrameIndex index = new FrameIndex(List.of(body(7, 0, 0), body(3, 1, 1), body(12, 2, 2)));
+        assertEquals(0, index.indexOf(7));
+        assertEquals(1, index.indexOf(3));
+        assertEquals(2, index.indexOf(12));
+        assertEquals(-1, index.indexOf(4));
+        assertEquals(-1, index.indexOf(13));
+    }
+
+    @Test
+    void emptyFrame() {
+        FrameIndex index = new FrameIndex(List.of());
+        assertEquals(-1, index.indexOf(0));
+        assertEquals(-1, index.nearest(0, 0));
+        assertEquals(0, index.collect(-1, -1, 1, 1, new int[0]));
+    }
+
+    @Test
+    void nearest_matchesLinearScan() {
+        Random random = new Random(11);
+        List<Body> bodies = randomBodies(random, 5000);
+        FrameIndex index = new FrameIndex(bodies);
+
+        for (int q = 0; q < 500; q++) {
+            // Some queries fall well outside the bodies
+            double x = random.nextDouble(-2000, 2000);
+            double y = random.nextDouble(-2000, 2000);
+            int expected = 0;
+            for (int i = 1; i < bodies.size(); i++) {
+                if (distance(bodies.get(i), x, y) < distance(bodies.get(expected), x, y)) {
+                    expected = i;
+                }
+            }
+            assertEquals(distance(bodies.get(expected), x, y), distance(bodies.get(index.nearest(x, y)), x, y));
+        }
+    }
+
+    @Test
+    void collect_matchesLinearScan() {
+        Random random = new Random(12);
+        List<Body> bodies = randomBodies(random, 5000);
+        FrameIndex index = new FrameIndex(bodies);
+        int[] found = new int[bodies.size()];
+
+        for (int q = 0; q < 200; q++) {
+            double minX = random.nextDouble(-1200, 1000);
+            double minY = random.nextDouble(-1200, 1000);
+            double maxX = minX + random.nextDouble(500);
+            double maxY = minY + random.nextDouble(500);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < bodies.size(); i++) {
+                Body body = bodies.get(i);
+                double r = body.getRadius();
+                if (body.getPosition().x() + r >= minX && body.getPosition().x() - r <= maxX
+                    && body.getPosition().y() + r >= minY && body.getPosition().y() - r <= maxY) {
+                    expected.add(i);
+                }
+            }
+
+            int count = index.collect(minX, minY, maxX, maxY, found);
+            int[] actual = Arrays.copyOf(found, count);
+            Arrays.sort(actual);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual);
+        }
+    }
+
+    @Test
+    void collect_bodiesInALine() {
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            bodies.add(body(i, i, 5).withRadius(0.1));
+        }
+        FrameIndex index = new FrameIndex(bodies);
+        assertEquals(11, index.collect(10, 0, 20, 10, new int[100]));
+        assertEquals(42, index.nearest(41.9, 100));
+    }
+
+    /**
+     * Bodies clustered around the origin, a few with radii much larger than the spacing between
+     * bodies.
+     */
+    private static List<Body> randomBodies(Random random, int n) {
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double radius = i % 100 == 0 ? random.nextDouble(100, 300) : random.nextDouble(0.1, 2);
+            bodies.add(body(i, random.nextGaussian() * 300, random.nextGaussian() * 300).withRadius(radius));
+        }
+        return bodies;
+    }
+
+    private static double distance(Body body, double x, double y) {
+        return Math.hypot(body.getPosition().x() - x, body.getPosition().y() - y);
+    }
+}
@@ -0,0 +1,111 @@
+package dev.cgj.nbody2d.data;
+
+import dev.cgj.nbody2d.protobuf.Definition.ColumnarFrameProto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationFrameTest {
+
+    @Test
+    void toColumnarProto_roundTrips() {
+        SimulationFrame frame = randomFrame(100);
+        assertEquals(frame, SimulationFrame.fromColumnarProto(frame.toColumnarProto()));
+    }
+
+    @Test
+    void toColumnarProto_emptyFrame_roundTrips() {
+        SimulationFrame frame = new SimulationFrame(List.of());
+        assertEquals(frame, SimulationFrame.fromColumnarProto(frame.toColumnarProto()));
+    }
+
+    @Test
+    void toColumnarProto_smallerThanToProto() {
+        SimulationFrame frame = randomFrame(1000);
+        int columnar = frame.toColumnarProto().getSerializedSize();
+        int bodies = frame.toProto().getSerializedSize();
+        assertTrue(columnar < bodies, columnar + " >= " + bodies);
+    }
+
+    @Test
+    void fromColumnarProto_mismatchedColumns_throws() {
+        ColumnarFrameProto proto = randomFrame(3).toColumnarProto().toBuilder().addMass(1).build();
+        assertThrows(IllegalArgumentException.class, () -> SimulationFrame.fromColumnarProto(proto));
+    }
+
+    @Test
+    void aggregate_mergesBodiesInEachCell() {
+        SimulationFrame frame = new SimulationFrame(List.of(
+            body(0, -7, -7).withVelocity(new Vec2(1, 0)).withRadius(3),
+            body(1, -5, -9).withVelocity(new Vec2(0, 2)).withMass(3).withRadius(4),
+            body(2, 5, 5).withMass(2),
+            body(3, 100, -100)));
+
+        // Cells are 10 meters wide, with IDs increasing along x then y
+        List<Body> merged = frame.aggregate(10, 2).bodies();
+        assertEquals(3, merged.size());
+
+        Body first = merged.get(0);
+        assertEquals(0, first.getId());
+        assertEquals(4, first.getMass());
+        assertEquals(-5.5, first.getPosition().x(), 1e-12);
+        assertEquals(-8.5, first.getPosition().y(), 1e-12);
+        assertEquals(0.25, first.getVelocity().x(), 1e-12);
+        assertEquals(1.5, first.getVelocity().y(), 1e-12);
+        assertEquals(5, first.getRadius(), 1e-12);
+
+        // Outside the grid, so merged into the nearest cell
+        assertEquals(1, merged.get(1).getId());
+        assertEquals(3, merged.get(2).getId());
+    }
+
+    @Test
+    void aggregate_ofAggregate_matchesCoarserGrid() {
+        SimulationFrame frame = randomFrame(1000);
+        List<Body> direct = frame.aggregate(3e11, 8).bodies();
+        List<Body> nested = frame.aggregate(3e11, 32).aggregate(3e11, 8).bodies();
+
+        assertEquals(direct.size(), nested.size());
+        for (int i = 0; i < direct.size(); i++) {
+            assertEquals(direct.get(i).getId(), nested.get(i).getId());
+            assertEquals(direct.get(i).getMass(), nested.get(i).getMass(), direct.get(i).getMass() * 1e-12);
+            assertEquals(direct.get(i).getPosition().x(), nested.get(i).getPosition().x(), 1);
+        }
+    }
+
+    @Test
+    void aggregate_reusedTable_matchesNewTable() {
+        int[] slots = new int[16 * 16];
+        Arrays.fill(slots, -1);
+        SimulationFrame first = randomFrame(1000);
+        SimulationFrame second = new SimulationFrame(first.bodies().subList(0, 500));
+
+        assertEquals(first.aggregate(3e11, 16), first.aggregate(3e11, 16, slots));
+        assertEquals(second.aggregate(3e11, 16), second.aggregate(3e11, 16, slots));
+        assertTrue(Arrays.stream(slots).allMatch(slot -> slot == -1));
+    }
+
+    private static SimulationFrame randomFrame(int n) {
+        Random random = new Random(11);
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            bodies.add(Body.builder()
+                .id(i * 3)
+                .position(new Vec2(random.nextGaussian() * 1e11, random.nextGaussian() * 1e11))
+                .velocity(new Vec2(random.nextGaussian() * 1e4, random.nextGaussian() * 1e4))
+                .force(new Vec2(random.nextGaussian() * 1e22, random.nextGaussian() * 1e22))
+                .radius(random.nextDouble() * 1e7)
+                .mass(random.nextDouble() * 1e24)
+                .build());
+        }
+        return new SimulationFrame(bodies);
+    }
+}
@@ -0,0 +1,56 @@
+package dev.cgj.nbody2d.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bodies shared by tests. Every body starts at rest with no force, a radius of 1 and a mass of 1,
+ * and anything else is set by name with {@link Body}'s withers, such as
+ * {@code body(1, 0, 0).withRadius(50).withMass(2)}, so that values cannot be passed in the wrong
+ * order.
+ */
+public final class TestBodies {
+
+    private TestBodies() {
+    }
+
+    public static Body body(int id, double x, double y) {
+        return body(id, new Vec2(x, y));
+    }
+
+    public static Body body(int id, Vec2 position) {
+        return Body.builder()
+            .id(id)
+            .position(position)
+            .velocity(Vec2.ZERO)
+            .force(Vec2.ZERO)
+            .radius(1)
+            .mass(1)
+            .build();
+    }
+
+    /**
+     * Creates {@code n} bodies with IDs from 0, normally distributed around the origin with a
+     * standard deviation of 1e10 meters, each with a radius of 1e6 meters and a mass between 1e24
+     * and 2e24 kilograms.
+     */
+    public static BodyStore randomBodies(int n, long seed) {
+        Random random = new Random(seed);
+        List<Body> bodies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            bodies.add(body(i, random.nextGaussian() * 1e10, random.nextGaussian() * 1e10)
+                .withRadius(1e6)
+                .withMass(1e24 * (1 + random.nextDouble())));
+        }
+        return store(bodies);
+    }
+
+    public static BodyStore store(List<Body> bodies) {
+        return BodyStore.fromFrame(new SimulationFrame(bodies));
+    }
+
+    public static BodyStore store(Body... bodies) {
+        return store(List.of(bodies));
+    }
+}
@@ -0,0 +1,59 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.RecordingCompression;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCodecTest {
+
+    @ParameterizedTest
+    @CsvSource({"DEFLATE, 0", "DEFLATE, 100000", "GZIP, 0", "GZIP, 100000"})
+    void decompress_roundTrips(RecordingCompression compression, int size) throws IOException {
+        BlockCodec codec = BlockCodec.forCompression(compression);
+        byte[] data = compressibleData(size);
+
+        byte[] compressed = codec.compress(data, data.length);
+        assertArrayEquals(data, codec.decompress(compressed, data.length));
+        assertEquals(codec.getType(), BlockCodec.forType(codec.getType()).getType());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"DEFLATE", "GZIP"})
+    void compress_usesLengthAndShrinksData(RecordingCompression compression) throws IOException {
+        BlockCodec codec = BlockCodec.forCompression(compression);
+        byte[] data = compressibleData(10000);
+
+        byte[] compressed = codec.compress(data, 5000);
+        assertTrue(compressed.length < 5000);
+        assertArrayEquals(Arrays.copyOf(data, 5000), codec.decompress(compressed, 5000));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"DEFLATE", "GZIP"})
+    void decompress_wrongSize_throws(RecordingCompression compression) throws IOException {
+        BlockCodec codec = BlockCodec.forCompression(compression);
+        byte[] data = compressibleData(1000);
+        byte[] compressed = codec.compress(data, data.length);
+
+        assertThrows(IOException.class, () -> codec.decompress(compressed, 2000));
+        assertThrows(IOException.class, () -> codec.decompress(Arrays.copyOf(compressed, compressed.length / 2), 1000));
+    }
+
+    private static byte[] compressibleData(int size) {
+        Random random = new Random(9);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) random.nextInt(8);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,73 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Checkpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointFileTest {
+    private static final SimulationConfig CONFIG = SimulationConfig.builder().dt(60).boundary(1e10).seed(4L).build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_roundTrips() throws IOException {
+        Path path = directory.resolve("checkpoint.bin");
+        Checkpoint checkpoint = checkpoint(12);
+        CheckpointFile.write(path, checkpoint);
+
+        assertEquals(checkpoint, CheckpointFile.read(path));
+        assertFalse(Files.exists(directory.resolve("checkpoint.bin.tmp")));
+    }
+
+    @Test
+    void write_existingCheckpoint_replaced() throws IOException {
+        Path path = directory.resolve("checkpoint.bin");
+        CheckpointFile.write(path, checkpoint(1));
+        CheckpointFile.write(path, checkpoint(2));
+        assertEquals(2, CheckpointFile.read(path).steps());
+    }
+
+    @Test
+    void read_notCheckpoint_throws() throws IOException {
+        Path path = directory.resolve("checkpoint.bin");
+        Files.write(path, new byte[] {1, 2, 3, 4, 5});
+        assertThrows(IOException.class, () -> CheckpointFile.read(path));
+    }
+
+    @Test
+    void checkpointWriter_close_writesLatest() throws IOException {
+        Path path = directory.resolve("checkpoint.bin");
+        try (CheckpointWriter writer = new CheckpointWriter(path)) {
+            for (int steps = 1; steps <= 50; steps++) {
+                writer.write(checkpoint(steps));
+            }
+        }
+        assertEquals(checkpoint(50), CheckpointFile.read(path));
+    }
+
+    @Test
+    void checkpointWriter_writeFails_throwsOnClose() {
+        Path path = directory.resolve("missing").resolve("checkpoint.bin");
+        assertThrows(IOException.class, () -> {
+            try (CheckpointWriter writer = new CheckpointWriter(path)) {
+                writer.write(checkpoint(1));
+            }
+        });
+    }
+
+    private static Checkpoint checkpoint(long steps) {
+        return new Checkpoint(CONFIG, 4, steps, steps * 60, 5, steps % 2 == 0,
+            RecordingReaderTest.frames(3).get(2), List.of(3, 4));
+    }
+}
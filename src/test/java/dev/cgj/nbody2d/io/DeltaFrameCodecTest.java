@@ -0,0 +1,148 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.protobuf.Definition.DeltaFrameProto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaFrameCodecTest {
+    private static final double DT = 3600;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 1000})
+    void decode_lossless_reproducesFramesExactly(int keyframeInterval) {
+        List<SimulationFrame> frames = trajectory(50, 40);
+        DeltaFrameCodec encoder = new DeltaFrameCodec(DT, 0, 0, keyframeInterval);
+        DeltaFrameCodec decoder = new DeltaFrameCodec(DT, 0, 0, keyframeInterval);
+
+        for (SimulationFrame frame : frames) {
+            assertEquals(frame, decoder.decode(encoder.encode(frame)));
+        }
+    }
+
+    @Test
+    void decode_quantized_errorWithinHalfPrecision() {
+        double positionPrecision = 1000;
+        double velocityPrecision = 0.01;
+        List<SimulationFrame> frames = trajectory(50, 200);
+        DeltaFrameCodec encoder = new DeltaFrameCodec(DT, positionPrecision, velocityPrecision, 100);
+        DeltaFrameCodec decoder = new DeltaFrameCodec(DT, positionPrecision, velocityPrecision, 100);
+
+        for (SimulationFrame frame : frames) {
+            SimulationFrame decoded = decoder.decode(encoder.encode(frame));
+            assertEquals(frame.bodies().size(), decoded.bodies().size());
+            for (int i = 0; i < frame.bodies().size(); i++) {
+                Body expected = frame.bodies().get(i);
+                Body actual = decoded.bodies().get(i);
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getPosition().x(), actual.getPosition().x(), positionPrecision / 2);
+                assertEquals(expected.getPosition().y(), actual.getPosition().y(), positionPrecision / 2);
+                assertEquals(expected.getVelocity().x(), actual.getVelocity().x(), velocityPrecision / 2);
+                assertEquals(expected.getVelocity().y(), actual.getVelocity().y(), velocityPrecision / 2);
+                assertEquals(expected.getForce(), actual.getForce());
+                assertEquals(expected.getRadius(), actual.getRadius());
+                assertEquals(expected.getMass(), actual.getMass());
+            }
+        }
+    }
+
+    @Test
+    void encode_quantized_smallerThanColumnar() {
+        List<SimulationFrame> frames = trajectory(200, 100);
+        DeltaFrameCodec encoder = new DeltaFrameCodec(DT, 1000, 0.01, 100);
+
+        long delta = 0;
+        long columnar = 0;
+        for (SimulationFrame frame : frames) {
+            delta += encoder.encode(frame).getSerializedSize();
+            columnar += frame.toColumnarProto().getSerializedSize();
+        }
+        assertTrue(delta * 2 < columnar, delta + " * 2 >= " + columnar);
+    }
+
+    @Test
+    void encode_keyframeInterval_marksKeyframes() {
+        List<SimulationFrame> frames = trajectory(5, 7);
+        DeltaFrameCodec encoder = new DeltaFrameCodec(DT, 0, 0, 3);
+        for (int f = 0; f < frames.size(); f++) {
+            assertEquals(f % 3 == 0, encoder.encode(frames.get(f)).getKeyframe());
+        }
+    }
+
+    @Test
+    void decode_afterReset_startsFromKeyframe() {
+        List<SimulationFrame> frames = trajectory(5, 4);
+        DeltaFrameCodec encoder = new DeltaFrameCodec(DT, 0, 0, 2);
+        List<DeltaFrameProto> encoded = frames.stream().map(encoder::encode).toList();
+
+        DeltaFrameCodec decoder = new DeltaFrameCodec(DT, 0, 0, 2);
+        decoder.decode(encoded.get(0));
+        decoder.decode(encoded.get(1));
+        decoder.reset();
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(encoded.get(3)));
+        assertEquals(frames.get(2), decoder.decode(encoded.get(2)));
+        assertEquals(frames.get(3), decoder.decode(encoded.get(3)));
+    }
+
+    @Test
+    void constructor_invalidArguments_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new DeltaFrameCodec(DT, -1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DeltaFrameCodec(DT, 0, Double.NaN, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DeltaFrameCodec(DT, 0, 0, 0));
+    }
+
+    /**
+     * Bodies in slowly accelerating motion. Every third body is removed half way through, as if
+     * merged, so that some frames contain bodies missing from the previous one.
+     */
+    static List<SimulationFrame> trajectory(int bodyCount, int frameCount) {
+        Random random = new Random(5);
+        double[] x = new double[bodyCount];
+        double[] y = new double[bodyCount];
+        double[] vx = new double[bodyCount];
+        double[] vy = new double[bodyCount];
+        for (int i = 0; i < bodyCount; i++) {
+            x[i] = random.nextGaussian() * 1e11;
+            y[i] = random.nextGaussian() * 1e11;
+            vx[i] = random.nextGaussian() * 3e4;
+            vy[i] = random.nextGaussian() * 3e4;
+        }
+
+        List<SimulationFrame> frames = new ArrayList<>();
+        for (int f = 0; f < frameCount; f++) {
+            List<Body> bodies = new ArrayList<>();
+            for (int i = 0; i < bodyCount; i++) {
+                double ax = -x[i] * 1e-14;
+                double ay = -y[i] * 1e-14;
+                vx[i] += ax * DT;
+                vy[i] += ay * DT;
+                x[i] += vx[i] * DT;
+                y[i] += vy[i] * DT;
+                if (i % 3 == 0 && f >= frameCount / 2) {
+                    continue;
+                }
+                bodies.add(Body.builder()
+                    .id(i)
+                    .position(new Vec2(x[i], y[i]))
+                    .velocity(new Vec2(vx[i], vy[i]))
+                    .force(new Vec2(ax * 1e24, ay * 1e24))
+                    .radius(1e6 + i)
+                    .mass(1e24)
+                    .build());
+            }
+            frames.add(new SimulationFrame(bodies));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,89 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.RecordingConfig;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelOfDetailSinkTest {
+    private static final double BOUNDARY = 3e11;
+    private static final SimulationConfig CONFIG = SimulationConfig.builder().dt(3600).boundary(BOUNDARY).build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_recordsEachLevelAlongsideFrames() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = DeltaFrameCodecTest.trajectory(500, 10);
+        RecordingConfig recording = RecordingConfig.builder().build();
+
+        List<FrameSink> levels = new ArrayList<>();
+        for (int level = 1; level <= 3; level++) {
+            levels.add(new RecordingWriter(LevelOfDetailSink.levelPath(path, level), CONFIG, recording,
+                LevelOfDetailSink.cellSize(BOUNDARY, 16, level)));
+        }
+        try (LevelOfDetailSink sink = new LevelOfDetailSink(new RecordingWriter(path, CONFIG, recording), levels, BOUNDARY, 16, 4)) {
+            for (SimulationFrame frame : frames) {
+                sink.write(frame);
+            }
+            assertEquals(10, sink.getFramesWritten());
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertEquals(0, source.getCellSize());
+            assertEquals(frames.get(3), source.getFrame(3));
+        }
+
+        List<FrameSource> sources = FrameSource.openLevelsOfDetail(path);
+        assertEquals(3, sources.size());
+        int previousBodies = Integer.MAX_VALUE;
+        for (int level = 1; level <= 3; level++) {
+            try (FrameSource source = sources.get(level - 1)) {
+                assertEquals(2 * BOUNDARY / (16 >> (level - 1)), source.getCellSize());
+                assertEquals(10, source.getFrameCount());
+
+                SimulationFrame coarse = source.getFrame(3);
+                double mass = frames.get(3).bodies().stream().mapToDouble(body -> body.getMass()).sum();
+                assertEquals(mass, coarse.bodies().stream().mapToDouble(body -> body.getMass()).sum(), mass * 1e-12);
+                assertTrue(coarse.bodies().size() < previousBodies);
+                previousBodies = coarse.bodies().size();
+            }
+        }
+    }
+
+    @Test
+    void constructor_levelsCannotHalveCells_throws() throws IOException {
+        FrameSink frames = new RecordingWriter(directory.resolve("recording.bin"), CONFIG);
+        List<FrameSink> levels = new ArrayList<>();
+        for (int level = 1; level <= 4; level++) {
+            levels.add(new RecordingWriter(directory.resolve("level" + level + ".bin"), CONFIG));
+        }
+        try {
+            assertThrows(IllegalArgumentException.class, () -> new LevelOfDetailSink(frames, levels, BOUNDARY, 12, 4));
+            assertThrows(IllegalArgumentException.class, () -> new LevelOfDetailSink(frames, levels, BOUNDARY, 4, 4));
+        } finally {
+            frames.close();
+            for (FrameSink level : levels) {
+                level.close();
+            }
+        }
+    }
+
+    @Test
+    void openLevelsOfDetail_noLevels_returnsEmpty() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        RecordingReaderTest.write(path, RecordingReaderTest.frames(2));
+        assertTrue(FrameSource.openLevelsOfDetail(path).isEmpty());
+    }
+}
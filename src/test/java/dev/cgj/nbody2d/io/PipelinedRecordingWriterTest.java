@@ -0,0 +1,131 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.RecordingCompression;
+import dev.cgj.nbody2d.config.RecordingConfig;
+import dev.cgj.nbody2d.config.RecordingEncoding;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelinedRecordingWriterTest {
+    private static final SimulationConfig CONFIG = SimulationConfig.builder().dt(60).boundary(1e10).build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_smallQueue_writesEveryFrameInOrder() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = RecordingReaderTest.frames(200);
+
+        PipelinedRecordingWriter pipeline = new PipelinedRecordingWriter(new RecordingWriter(path, CONFIG), 2);
+        try (pipeline) {
+            for (SimulationFrame frame : frames) {
+                pipeline.write(frame);
+            }
+        }
+
+        PipelineStats stats = pipeline.getStats();
+        assertEquals(200, stats.getFrames());
+        assertTrue(stats.getMaxFrameQueueDepth() <= 2);
+        assertTrue(stats.getMaxEncodedQueueDepth() <= 2);
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertEquals(frames.size(), source.getFrameCount());
+            for (int i = 0; i < frames.size(); i++) {
+                assertEquals(frames.get(i), source.getFrame(i));
+            }
+        }
+    }
+
+    @Test
+    void flush_compressedRecording_writesQueuedFrames() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = DeltaFrameCodecTest.trajectory(30, 20);
+        RecordingConfig recording = RecordingConfig.builder()
+            .compression(RecordingCompression.GZIP)
+            .encoding(RecordingEncoding.DELTA)
+            .framesPerBlock(64)
+            .build();
+
+        try (PipelinedRecordingWriter pipeline = new PipelinedRecordingWriter(new RecordingWriter(path, CONFIG, recording), 4)) {
+            for (int i = 0; i < 12; i++) {
+                pipeline.write(frames.get(i));
+            }
+            pipeline.flush();
+            try (FrameSource source = FrameSource.open(path)) {
+                assertEquals(12, source.getFrameCount());
+                assertEquals(frames.get(11), source.getFrame(11));
+            }
+
+            for (int i = 12; i < frames.size(); i++) {
+                pipeline.write(frames.get(i));
+            }
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertEquals(frames.size(), source.getFrameCount());
+            for (int i = 0; i < frames.size(); i++) {
+                assertEquals(frames.get(i), source.getFrame(i));
+            }
+        }
+    }
+
+    @Test
+    void flush_writerFails_throws() throws IOException {
+        RecordingWriter failing = new RecordingWriter(directory.resolve("recording.bin"), CONFIG) {
+            @Override
+            void writeEncoded(byte[] frame) throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+
+        PipelinedRecordingWriter pipeline = new PipelinedRecordingWriter(failing, 4);
+        pipeline.write(RecordingReaderTest.frames(1).get(0));
+        assertThrows(IOException.class, pipeline::flush);
+        assertThrows(IOException.class, pipeline::close);
+    }
+
+    @Test
+    void write_writerFails_throwsWithoutBlocking() throws IOException {
+        RecordingWriter failing = new RecordingWriter(directory.resolve("recording.bin"), CONFIG) {
+            @Override
+            void writeEncoded(byte[] frame) throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+        List<SimulationFrame> frames = RecordingReaderTest.frames(50);
+
+        assertThrows(IOException.class, () -> {
+            try (PipelinedRecordingWriter pipeline = new PipelinedRecordingWriter(failing, 1)) {
+                for (SimulationFrame frame : frames) {
+                    pipeline.write(frame);
+                }
+            }
+        });
+    }
+
+    @Test
+    void write_afterClose_throws() throws IOException {
+        PipelinedRecordingWriter pipeline =
+            new PipelinedRecordingWriter(new RecordingWriter(directory.resolve("recording.bin"), CONFIG), 4);
+        pipeline.close();
+        assertThrows(IOException.class, () -> pipeline.write(RecordingReaderTest.frames(1).get(0)));
+    }
+
+    @Test
+    void constructor_emptyQueue_throws() throws IOException {
+        RecordingWriter writer = new RecordingWriter(directory.resolve("recording.bin"), CONFIG);
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedRecordingWriter(writer, 0));
+        writer.close();
+    }
+}
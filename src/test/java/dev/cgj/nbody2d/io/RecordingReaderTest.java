@@ -0,0 +1,327 @@
+package dev.cgj.nbody2d.io;
+
+import dev.cgj.nbody2d.config.RecordingCompression;
+import dev.cgj.nbody2d.config.RecordingConfig;
+import dev.cgj.nbody2d.config.RecordingEncoding;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.protobuf.Definition.BlockHeaderProto;
+import dev.cgj.nbody2d.protobuf.Definition.BlockIndexProto;
+import dev.cgj.nbody2d.protobuf.Definition.BodyProto;
+import dev.cgj.nbody2d.protobuf.Definition.ColumnarFrameProto;
+import dev.cgj.nbody2d.protobuf.Definition.RecordingHeaderProto;
+import dev.cgj.nbody2d.protobuf.Definition.SimulationFrameProto;
+import dev.cgj.nbody2d.protobuf.Definition.SimulationHistoryProto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingReaderTest {
+    private static final SimulationConfig CONFIG = SimulationConfig.builder().dt(60).boundary(1e10).build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void getFrame_readsEveryFrame() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = frames(5);
+        write(path, frames);
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertTrue(source instanceof RecordingReader);
+            assertEquals(CONFIG, source.getConfig());
+            assertFrames(frames, source);
+            assertThrows(IndexOutOfBoundsException.class, () -> source.getFrame(5));
+        }
+    }
+
+    @Test
+    void close_uncompressedRecording_writesFrameTable() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = frames(3);
+        write(path, frames);
+
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer footer = ByteBuffer.wrap(data, data.length - RecordingFormat.FOOTER_SIZE, RecordingFormat.FOOTER_SIZE);
+        int indexPosition = (int) footer.getLong();
+        assertEquals(data.length - RecordingFormat.FOOTER_SIZE - 3 * Long.BYTES, indexPosition);
+
+        ByteBuffer table = ByteBuffer.wrap(data, indexPosition, 3 * Long.BYTES);
+        for (SimulationFrame frame : frames) {
+            int offset = (int) table.getLong();
+            ColumnarFrameProto proto = ColumnarFrameProto.parseDelimitedFrom(
+                new ByteArrayInputStream(data, offset, data.length - offset));
+            assertEquals(frame, SimulationFrame.fromColumnarProto(proto));
+        }
+    }
+
+    @Test
+    void getFrame_truncatedFrame_endsAtPreviousFrame() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = frames(3);
+        write(path, frames);
+
+        // Cut the file part way through the last frame, losing the index
+        byte[] data = Files.readAllBytes(path);
+        int indexPosition = data.length - RecordingFormat.FOOTER_SIZE - 3 * Long.BYTES;
+        Files.write(path, Arrays.copyOf(data, indexPosition - 10));
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertFrames(frames.subList(0, 2), source);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "NONE, COLUMNAR, 1, 1",
+        "NONE, DELTA, 1, 1",
+        "DEFLATE, COLUMNAR, 1, 1",
+        "DEFLATE, DELTA, 7, 4",
+        "GZIP, DELTA, 100, 0",
+        "GZIP, COLUMNAR, 8, 2",
+    })
+    void getFrame_anyOrder_readsFrames(RecordingCompression compression,
+                                       RecordingEncoding encoding,
+                                       int framesPerBlock,
+                                       int threads) throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = DeltaFrameCodecTest.trajectory(30, 40);
+        RecordingConfig recording = RecordingConfig.builder()
+            .compression(compression)
+            .encoding(encoding)
+            .keyframeInterval(6)
+            .framesPerBlock(framesPerBlock)
+            .compressionThreads(threads)
+            .build();
+        try (RecordingWriter writer = new RecordingWriter(path, CONFIG, recording)) {
+            for (SimulationFrame frame : frames) {
+                writer.write(frame);
+            }
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertFrames(frames, source);
+            for (int i = frames.size() - 1; i >= 0; i--) {
+                assertEquals(frames.get(i), source.getFrame(i));
+            }
+            Random random = new Random(1);
+            for (int k = 0; k < 100; k++) {
+                int i = random.nextInt(frames.size());
+                assertEquals(frames.get(i), source.getFrame(i));
+            }
+        }
+    }
+
+    @Test
+    void close_compressedRecording_writesBlockIndex() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        RecordingConfig recording = RecordingConfig.builder()
+            .compression(RecordingCompression.DEFLATE)
+            .framesPerBlock(4)
+            .build();
+        try (RecordingWriter writer = new RecordingWriter(path, CONFIG, recording)) {
+            for (SimulationFrame frame : frames(10)) {
+                writer.write(frame);
+            }
+        }
+
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer footer = ByteBuffer.wrap(data, data.length - RecordingFormat.FOOTER_SIZE, RecordingFormat.FOOTER_SIZE);
+        int indexPosition = (int) footer.getLong();
+        byte[] magic = new byte[RecordingFormat.INDEX_MAGIC.length];
+        footer.get(magic);
+        assertArrayEquals(RecordingFormat.INDEX_MAGIC, magic);
+
+        BlockIndexProto index = BlockIndexProto.parseDelimitedFrom(
+            new ByteArrayInputStream(data, indexPosition, data.length - indexPosition));
+        assertEquals(List.of(0L, 4L, 8L), index.getFirstFrameList());
+        for (long offset : index.getOffsetList()) {
+            BlockHeaderProto header = BlockHeaderProto.parseDelimitedFrom(
+                new ByteArrayInputStream(data, (int) offset, data.length - (int) offset));
+            assertTrue(header.getFrameCount() > 0);
+        }
+    }
+
+    @Test
+    void getFrame_truncatedBlock_endsAtPreviousBlock() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = frames(12);
+        RecordingConfig recording = RecordingConfig.builder()
+            .compression(RecordingCompression.GZIP)
+            .framesPerBlock(5)
+            .build();
+        try (RecordingWriter writer = new RecordingWriter(path, CONFIG, recording)) {
+            for (SimulationFrame frame : frames) {
+                writer.write(frame);
+            }
+        }
+
+        // Cut the file part way through the last block, losing the index and the last two frames
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer footer = ByteBuffer.wrap(data, data.length - RecordingFormat.FOOTER_SIZE, RecordingFormat.FOOTER_SIZE);
+        int indexPosition = (int) footer.getLong();
+        Files.write(path, Arrays.copyOf(data, indexPosition - 4));
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertFrames(frames.subList(0, 10), source);
+        }
+    }
+
+    @Test
+    void flush_compressedDeltaRecording_writesPartialBlocks() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = DeltaFrameCodecTest.trajectory(30, 20);
+        RecordingConfig recording = RecordingConfig.builder()
+            .compression(RecordingCompression.DEFLATE)
+            .encoding(RecordingEncoding.DELTA)
+            .keyframeInterval(6)
+            .framesPerBlock(8)
+            .build();
+        try (RecordingWriter writer = new RecordingWriter(path, CONFIG, recording)) {
+            for (int i = 0; i < frames.size(); i++) {
+                writer.write(frames.get(i));
+                if (i == 4 || i == 14) {
+                    writer.flush();
+                }
+            }
+
+            // Read while the writer is still open, as if the process had stopped
+            try (FrameSource source = FrameSource.open(path)) {
+                assertFrames(frames.subList(0, 15), source);
+            }
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertFrames(frames, source);
+            for (int i = frames.size() - 1; i >= 0; i--) {
+                assertEquals(frames.get(i), source.getFrame(i));
+            }
+        }
+    }
+
+    @Test
+    void getFrame_versionOneRecording_readsBodyFrames() throws IOException {
+        Path path = directory.resolve("recording.bin");
+        List<SimulationFrame> frames = frames(3);
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            stream.write(RecordingFormat.MAGIC);
+            RecordingHeaderProto.newBuilder()
+                .setVersion(1)
+                .setConfigYaml(RecordingFormat.MAPPER.writeValueAsString(CONFIG))
+                .build()
+                .writeDelimitedTo(stream);
+            for (SimulationFrame frame : frames) {
+                frame.toProto().writeDelimitedTo(stream);
+            }
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertFrames(frames, source);
+        }
+    }
+
+    @Test
+    void open_legacyHistory_readsFramesWithStableIds() throws IOException {
+        Path path = directory.resolve("legacy.bin");
+        SimulationHistoryProto.Builder history = SimulationHistoryProto.newBuilder()
+            .setConfigYaml(RecordingFormat.MAPPER.writeValueAsString(CONFIG));
+        for (int f = 0; f < 2; f++) {
+            history.addFrames(SimulationFrameProto.newBuilder()
+                .addBodies(legacyBody("b5e1", f))
+                .addBodies(legacyBody("09ac", f)));
+        }
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            history.build().writeTo(stream);
+        }
+
+        try (FrameSource source = FrameSource.open(path)) {
+            assertTrue(source instanceof HistoryFrameSource);
+            assertEquals(CONFIG, source.getConfig());
+            assertEquals(2, source.getFrameCount());
+            SimulationFrame first = source.getFrame(0);
+            SimulationFrame second = source.getFrame(1);
+            assertEquals(0, first.bodies().get(0).getId());
+            assertEquals(1, first.bodies().get(1).getId());
+            assertEquals(0, second.bodies().get(0).getId());
+            assertEquals(1, second.bodies().get(1).getId());
+            assertEquals(1, second.bodies().get(0).getPosition().x());
+        }
+    }
+
+    @Test
+    void constructor_notRecording_throws() throws IOException {
+        Path path = directory.resolve("other.bin");
+        Files.writeString(path, "not a recording");
+        assertThrows(IOException.class, () -> new RecordingReader(path));
+    }
+
+    private static void assertFrames(List<SimulationFrame> expected, FrameSource source) throws IOException {
+        assertEquals(expected.size(), source.getFrameCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), source.getFrame(i));
+        }
+    }
+
+    static void write(Path path, List<SimulationFrame> frames) throws IOException {
+        try (RecordingWriter writer = new RecordingWriter(path, CONFIG)) {
+            for (SimulationFrame frame : frames) {
+                writer.write(frame);
+            }
+            assertEquals(frames.size(), writer.getFramesWritten());
+        }
+    }
+
+    static List<SimulationFrame> frames(int count) {
+        List<SimulationFrame> frames = new ArrayList<>();
+        for (int f = 0; f < count; f++) {
+            List<Body> bodies = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                bodies.add(Body.builder()
+                    .id(i)
+                    .position(new Vec2(i * 1e6 + f, -i * 2e6))
+                    .velocity(new Vec2(f, i))
+                    .force(new Vec2(1e20 * i, -f))
+                    .radius(1e5 + i)
+                    .mass(1e22 * (i + 1))
+                    .build());
+            }
+            frames.add(new SimulationFrame(bodies));
+        }
+        return frames;
+    }
+
+    private static BodyProto legacyBody(String id, int x) {
+        return Body.builder()
+            .id(0)
+            .position(new Vec2(x, 0))
+            .velocity(Vec2.ZERO)
+            .force(Vec2.ZERO)
+            .radius(1)
+            .mass(1)
+            .build()
+            .toProto()
+            .toBuilder()
+            .setLegacyId(id)
+            .build();
+    }
+}
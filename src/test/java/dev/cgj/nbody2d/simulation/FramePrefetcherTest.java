@@ -0,0 +1,107 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.io.FrameSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FramePrefetcherTest {
+
+    @Test
+    void moveTo_readsAheadInStrideOrder() throws InterruptedException {
+        CountingSource source = new CountingSource(10);
+        FramePrefetcher prefetcher = new FramePrefetcher(source, 3);
+        prefetcher.get(0).join();
+        awaitReads(source, 3);
+
+        prefetcher.moveTo(2, -2);
+        prefetcher.get(2).join();
+        awaitReads(source, 4);
+        prefetcher.close();
+
+        assertEquals(List.of(0, 1, 2, 8), source.reads());
+    }
+
+    @Test
+    void get_sameFrame_readOnce() throws InterruptedException {
+        CountingSource source = new CountingSource(5);
+        FramePrefetcher prefetcher = new FramePrefetcher(source, 5);
+        awaitReads(source, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, prefetcher.get(i).join().bodies().size());
+        }
+        prefetcher.close();
+        assertEquals(5, source.reads().size());
+    }
+
+    @Test
+    void get_readFails_completesExceptionally() {
+        FrameSource failing = new CountingSource(2) {
+            @Override
+            public SimulationFrame getFrame(int index) throws IOException {
+                throw new IOException("Unreadable");
+            }
+        };
+        FramePrefetcher prefetcher = new FramePrefetcher(failing, 2);
+        CompletionException e = assertThrows(CompletionException.class, () -> prefetcher.get(1).join());
+        assertTrue(e.getCause() instanceof IOException);
+        prefetcher.close();
+    }
+
+    private static void awaitReads(CountingSource source, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (source.reads().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // Give the prefetcher a chance to read too far, if it were going to
+        Thread.sleep(20);
+        assertEquals(count, source.reads().size());
+    }
+
+    /**
+     * Frames with as many bodies as their index, recording the order they are read in.
+     */
+    private static class CountingSource implements FrameSource {
+        private final int frameCount;
+        private final List<Integer> reads = new ArrayList<>();
+
+        CountingSource(int frameCount) {
+            this.frameCount = frameCount;
+        }
+
+        synchronized List<Integer> reads() {
+            return List.copyOf(reads);
+        }
+
+        @Override
+        public SimulationConfig getConfig() {
+            return SimulationConfig.builder().build();
+        }
+
+        @Override
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        @Override
+        public synchronized SimulationFrame getFrame(int index) throws IOException {
+            reads.add(index);
+            return new SimulationFrame(Collections.nCopies(index, Body.builder().build()));
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,136 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.config.BoundaryType;
+import dev.cgj.nbody2d.config.InitialBodyConfig;
+import dev.cgj.nbody2d.config.IntegratorType;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Checkpoint;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealTimeSimulationTest {
+
+    @Test
+    void reset_sameSeed_sameInitialState() {
+        RealTimeSimulation first = new RealTimeSimulation(config(IntegratorType.EULER, BoundaryType.WRAP, 7L), 1);
+        RealTimeSimulation second = new RealTimeSimulation(config(IntegratorType.EULER, BoundaryType.WRAP, 7L), 1);
+        RealTimeSimulation other = new RealTimeSimulation(config(IntegratorType.EULER, BoundaryType.WRAP, 8L), 1);
+        assertEquals(first.currentFrame(), second.currentFrame());
+        assertNotEquals(first.currentFrame(), other.currentFrame());
+
+        SimulationFrame initial = first.currentFrame();
+        first.step();
+        first.reset();
+        assertEquals(initial, first.currentFrame());
+        assertEquals(0, first.getSteps());
+        assertEquals(0, first.getTimeElapsed());
+    }
+
+    /**
+     * Integrators which reuse the forces from the end of the last step must not carry them over
+     * from before the reset.
+     */
+    @ParameterizedTest
+    @EnumSource(IntegratorType.class)
+    void reset_thenStep_matchesFreshSimulation(IntegratorType integrator) {
+        RealTimeSimulation sim = new RealTimeSimulation(config(integrator, BoundaryType.NONE, 4L), 1);
+        for (int i = 0; i < 10; i++) {
+            sim.step();
+        }
+        sim.reset();
+
+        RealTimeSimulation fresh = new RealTimeSimulation(config(integrator, BoundaryType.NONE, 4L), 1);
+        for (int i = 0; i < 10; i++) {
+            sim.step();
+            fresh.step();
+        }
+        assertEquals(fresh.currentFrame(), sim.currentFrame());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "EULER, WRAP",
+        "LEAPFROG, STICK",
+        "YOSHIDA4, STOP",
+        "BLOCK_LEAPFROG, STICK",
+    })
+    void checkpoint_resumed_matchesUninterrupted(IntegratorType integrator, BoundaryType boundary) {
+        RealTimeSimulation original = new RealTimeSimulation(config(integrator, boundary, 3L), 1);
+        for (int i = 0; i < 20; i++) {
+            original.step();
+        }
+
+        Checkpoint checkpoint = original.checkpoint();
+        assertEquals(20, checkpoint.steps());
+        RealTimeSimulation resumed = new RealTimeSimulation(checkpoint, 1);
+        assertEquals(original.currentFrame(), resumed.currentFrame());
+
+        for (int i = 0; i < 20; i++) {
+            original.step();
+            resumed.step();
+        }
+        assertEquals(original.currentFrame(), resumed.currentFrame());
+        assertEquals(original.getTimeElapsed(), resumed.getTimeElapsed());
+        assertEquals(40, resumed.getSteps());
+
+        // Resetting a resumed simulation goes back to the original initial state
+        resumed.reset();
+        original.reset();
+        assertEquals(original.currentFrame(), resumed.currentFrame());
+    }
+
+    @Test
+    void checkpoint_stickBoundary_keepsInactiveBodies() {
+        RealTimeSimulation sim = new RealTimeSimulation(config(IntegratorType.EULER, BoundaryType.STICK, 5L), 1);
+        Checkpoint checkpoint = null;
+        for (int i = 0; i < 200 && (checkpoint == null || checkpoint.inactive().isEmpty()); i++) {
+            sim.step();
+            checkpoint = sim.checkpoint();
+        }
+        assertTrue(!checkpoint.inactive().isEmpty());
+
+        RealTimeSimulation resumed = new RealTimeSimulation(checkpoint, 1);
+        sim.step();
+        resumed.step();
+        assertEquals(sim.currentFrame(), resumed.currentFrame());
+    }
+
+    @Test
+    void close_stopsStepThreads() {
+        RealTimeSimulation sim = new RealTimeSimulation(config(IntegratorType.EULER, BoundaryType.WRAP, 7L)
+            .withThreads(2), 1);
+        sim.step();
+        sim.close();
+        assertThrows(RejectedExecutionException.class, () -> sim.getExecutor().forEachTask(2, (from, to) -> {}));
+    }
+
+    private static SimulationConfig config(IntegratorType integrator, BoundaryType boundary, Long seed) {
+        return SimulationConfig.builder()
+            .dt(3600)
+            .boundary(2e9)
+            .boundaryType(boundary)
+            .integrator(integrator)
+            .seed(seed)
+            .initialState(List.of(InitialBodyConfig.builder()
+                .n(60)
+                .positionJitter(1.5e9)
+                .velocityJitter(2e4)
+                .r(1e6)
+                .radiusJitter(5e5)
+                .mass(1e25)
+                .massJitter(5e24)
+                .build()))
+            .build();
+    }
+}
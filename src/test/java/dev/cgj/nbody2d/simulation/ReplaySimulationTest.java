@@ -0,0 +1,184 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.SimulationHistory;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.io.HistoryFrameSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplaySimulationTest {
+    private static final SimulationConfig CONFIG = SimulationConfig.builder().dt(10).boundary(100).build();
+
+    @Test
+    void step_pastLastFrame_loopsToFirst() {
+        ReplaySimulation replay = new ReplaySimulation(source(3), 5, 4);
+        assertEquals(0, x(replay.currentFrame()));
+
+        replay.step();
+        replay.step();
+        assertEquals(2, x(replay.currentFrame()));
+        assertEquals(20, replay.getTimeElapsed());
+
+        replay.step();
+        assertEquals(0, x(replay.currentFrame()));
+        assertEquals(0, replay.getTimeElapsed());
+    }
+
+    @Test
+    void getTrails_restartAfterSeek() throws InterruptedException {
+        ReplaySimulation replay = new ReplaySimulation(source(10), 1, 4);
+        replay.getTrails().setLength(5);
+        replay.step();
+        replay.step();
+
+        double[] x = new double[5];
+        assertEquals(2, replay.getTrails().copy(0, x, new double[5]));
+        assertEquals(2, x[1]);
+
+        replay.seek(6);
+        awaitFrame(replay, 6, 1);
+        replay.step();
+        assertEquals(2, replay.getTrails().copy(0, x, new double[5]));
+        assertEquals(6, x[0]);
+        assertEquals(7, x[1]);
+    }
+
+    @Test
+    void step_reversedAtSpeed_skipsBackwards() {
+        ReplaySimulation replay = new ReplaySimulation(source(10), 5, 4);
+        replay.setSpeed(3);
+        replay.setReversed(true);
+
+        replay.step();
+        assertEquals(7, x(replay.currentFrame()));
+        replay.step();
+        assertEquals(4, x(replay.currentFrame()));
+        assertEquals(4, replay.getFrameIndex());
+    }
+
+    @Test
+    void setSpeed_limitedToFrameCount() {
+        ReplaySimulation replay = new ReplaySimulation(source(4), 5, 4);
+        replay.setSpeed(100);
+        assertEquals(4, replay.getSpeed());
+        assertThrows(IllegalArgumentException.class, () -> replay.setSpeed(0));
+    }
+
+    @Test
+    void seek_showsFrameAndRestartsTrail() throws InterruptedException {
+        ReplaySimulation replay = new ReplaySimulation(source(10), 5, 4);
+        replay.getTrails().setLength(5);
+        replay.step();
+        replay.step();
+
+        replay.seek(-3);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (replay.getFrameIndex() != 7 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(7, x(replay.currentFrame()));
+        assertEquals(1, replay.getTrails().copy(0, new double[5], new double[5]));
+
+        replay.step();
+        assertEquals(8, x(replay.currentFrame()));
+        assertEquals(2, replay.getTrails().copy(0, new double[5], new double[5]));
+    }
+
+    @Test
+    void seek_thenStep_continuesFromSeekedFrame() {
+        ReplaySimulation replay = new ReplaySimulation(source(10), 5, 4);
+        replay.seek(5);
+        replay.step();
+        assertEquals(6, x(replay.currentFrame()));
+        assertEquals(6, replay.getFrameIndex());
+    }
+
+    @Test
+    void setLevelOfDetail_showsCoarsestLevelSmallerThanPixels() throws InterruptedException {
+        // Each level has a different number of bodies to the full frames, so waiting for a frame
+        // only passes once the switch to its level has taken effect
+        ReplaySimulation replay = new ReplaySimulation(source(10), List.of(level(10, 10, 2), level(10, 20, 3)), 5, 4);
+        replay.step();
+
+        replay.setLevelOfDetail(5);
+        assertEquals(1, replay.getLevelOfDetail());
+        awaitFrame(replay, 1, 2);
+        assertEquals(1, replay.getFrameIndex());
+
+        replay.setLevelOfDetail(100);
+        awaitFrame(replay, 1, 3);
+        replay.step();
+        assertEquals(3, replay.currentFrame().bodies().size());
+        assertEquals(2, x(replay.currentFrame()));
+
+        replay.setLevelOfDetail(1);
+        assertEquals(0, replay.getLevelOfDetail());
+        awaitFrame(replay, 2, 1);
+    }
+
+    @Test
+    void constructor_levelWithDifferentFrameCount_ignored() {
+        ReplaySimulation replay = new ReplaySimulation(source(10), List.of(level(9, 10, 1)), 5, 4);
+        replay.setLevelOfDetail(100);
+        assertEquals(0, replay.getLevelOfDetail());
+    }
+
+    @Test
+    void constructor_emptyRecording_throws() {
+        HistoryFrameSource empty = new HistoryFrameSource(new SimulationHistory(List.of(), CONFIG));
+        assertThrows(IllegalStateException.class, () -> new ReplaySimulation(empty, 1, 1));
+    }
+
+    private static void awaitFrame(ReplaySimulation replay, double x, int bodies) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((x(replay.currentFrame()) != x || replay.currentFrame().bodies().size() != bodies)
+            && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(x, x(replay.currentFrame()));
+        assertEquals(bodies, replay.currentFrame().bodies().size());
+    }
+
+    private static double x(SimulationFrame frame) {
+        return frame.bodies().get(0).getPosition().x();
+    }
+
+    private static HistoryFrameSource source(int frameCount) {
+        return level(frameCount, 0, 1);
+    }
+
+    /**
+     * A recording whose frame {@code f} has {@code bodies} bodies at {@code x = f}.
+     */
+    private static HistoryFrameSource level(int frameCount, double cellSize, int bodies) {
+        List<SimulationFrame> frames = new ArrayList<>();
+        for (int f = 0; f < frameCount; f++) {
+            List<Body> frame = new ArrayList<>();
+            for (int id = 0; id < bodies; id++) {
+                frame.add(Body.builder()
+                    .id(id)
+                    .position(new Vec2(f, 0))
+                    .velocity(Vec2.ZERO)
+                    .force(Vec2.ZERO)
+                    .radius(1)
+                    .mass(1)
+                    .build());
+            }
+            frames.add(new SimulationFrame(frame));
+        }
+        return new HistoryFrameSource(new SimulationHistory(frames, CONFIG)) {
+            @Override
+            public double getCellSize() {
+                return cellSize;
+            }
+        };
+    }
+}
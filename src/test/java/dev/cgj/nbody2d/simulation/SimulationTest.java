@@ -26,19 +26,19 @@ public class SimulationTest {
     @Test
     void nearestBody_returnsClosestBody_multipleBodies() {
         when(simulation.currentFrame()).thenReturn(new SimulationFrame(Arrays.asList(
-            createBody("1", new Vec2(5, 5), 1.0),
-            createBody("2", new Vec2(2, 2), 2.0),
-            createBody("3", new Vec2(10, 10), 3.0)
+            createBody(1, new Vec2(5, 5), 1.0),
+            createBody(2, new Vec2(2, 2), 2.0),
+            createBody(3, new Vec2(10, 10), 3.0)
         )));
 
         Body result = nearestBody(simulation, new Vec2(0, 0));
 
-        assertEquals("2", result.getId());
+        assertEquals(2, result.getId());
     }
 
     @Test
     void nearestBody_returnsOnlyBody_singleBody() {
-        Body body = createBody("1", new Vec2(3, 3), 1.0);
+        Body body = createBody(1, new Vec2(3, 3), 1.0);
         when(simulation.currentFrame()).thenReturn(new SimulationFrame(singletonList(body)));
 
         Body result = nearestBody(simulation, Vec2.ZERO);
@@ -53,7 +53,7 @@ public class SimulationTest {
         assertThrows(IllegalStateException.class, () -> nearestBody(simulation, Vec2.ZERO));
     }
 
-    private Body createBody(String id, Vec2 position, double mass) {
+    private Body createBody(int id, Vec2 position, double mass) {
         return Body.builder()
             .id(id)
             .position(position)
@@ -0,0 +1,170 @@
+package dev.cgj.nbody2d.simulation;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrailStoreTest {
+
+    @Test
+    void record_lengthNotSet_recordsNothing() {
+        TrailStore trails = new TrailStore();
+        trails.record(frame(1, 0, 1));
+        assertEquals(0, trails.copy(0, new double[10], new double[10]));
+    }
+
+    @Test
+    void record_keepsMostRecentPositions() {
+        TrailStore trails = new TrailStore();
+        trails.setLength(3);
+        for (int step = 0; step < 100; step++) {
+            trails.record(frame(step, 0, 2));
+        }
+
+        double[] x = new double[10];
+        double[] y = new double[10];
+        assertEquals(3, trails.copy(0, x, y));
+        assertArrayEquals(new double[] {97, 98, 99}, slice(x, 3));
+        assertArrayEquals(new double[] {-97, -98, -99}, slice(y, 3));
+        assertEquals(3, trails.copy(1, x, y));
+        assertArrayEquals(new double[] {97, 98, 99}, slice(x, 3));
+    }
+
+    @Test
+    void copy_limitedToArrayLength() {
+        TrailStore trails = new TrailStore();
+        trails.setLength(10);
+        for (int step = 0; step < 5; step++) {
+            trails.record(frame(step, 0, 1));
+        }
+
+        double[] x = new double[2];
+        assertEquals(2, trails.copy(0, x, new double[2]));
+        assertArrayEquals(new double[] {3, 4}, x);
+    }
+
+    @Test
+    void record_bodyMissingFromStep_restartsTrail() {
+        TrailStore trails = new TrailStore();
+        trails.setLength(10);
+        trails.record(frame(0, 0, 2));
+        trails.record(frame(1, 0, 1));
+        trails.record(frame(2, 0, 2));
+
+        double[] x = new double[10];
+        assertEquals(3, trails.copy(0, x, new double[10]));
+        assertEquals(1, trails.copy(1, x, new double[10]));
+        assertEquals(2, x[0]);
+        assertEquals(0, trails.copy(5, x, new double[10]));
+    }
+
+    @Test
+    void clear_discardsTrails() {
+        TrailStore trails = new TrailStore();
+        trails.setLength(10);
+        trails.record(frame(0, 0, 1));
+        trails.clear();
+        assertEquals(10, trails.getLength());
+        assertEquals(0, trails.copy(0, new double[10], new double[10]));
+
+        trails.record(frame(1, 0, 1));
+        assertEquals(1, trails.copy(0, new double[10], new double[10]));
+    }
+
+    @Test
+    void record_bodyStore_matchesFrame() {
+        TrailStore trails = new TrailStore();
+        trails.setLength(10);
+        trails.record(BodyStore.fromFrame(frame(0, 3, 2)));
+        trails.record(BodyStore.fromFrame(frame(1, 3, 2)));
+
+        double[] x = new double[10];
+        assertEquals(2, trails.copy(4, x, new double[10]));
+        assertArrayEquals(new double[] {0, 1}, slice(x, 2));
+    }
+
+    @Test
+    void setLength_negative_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new TrailStore().setLength(-1));
+    }
+
+    /**
+     * Body positions are the step number, so a reader which saw a position from the wrong step
+     * would see a trail which is not a run of consecutive numbers.
+     */
+    @Test
+    void copy_whileRecording_alwaysConsecutive() throws Exception {
+        int length = 64;
+        TrailStore trails = new TrailStore();
+        trails.setLength(length);
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            results.add(executor.submit(() -> {
+                double[] x = new double[length];
+                double[] y = new double[length];
+                do {
+                    for (int id = 0; id < 4; id++) {
+                        int n = trails.copy(id, x, y);
+                        assertTrue(n <= length);
+                        for (int i = 1; i < n; i++) {
+                            assertEquals(x[i - 1] + 1, x[i], "Positions not consecutive");
+                            assertEquals(-x[i], y[i], "Position partly written");
+                        }
+                    }
+                } while (!done.get());
+            }));
+        }
+
+        for (int step = 0; step < 200_000; step++) {
+            trails.record(frame(step, 0, 4));
+        }
+        done.set(true);
+
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * A frame with {@code n} bodies with IDs starting from {@code firstId}, all at
+     * {@code (step, -step)}.
+     */
+    private static SimulationFrame frame(double step, int firstId, int n) {
+        List<Body> bodies = new ArrayList<>();
+        for (int id = firstId; id < firstId + n; id++) {
+            bodies.add(Body.builder()
+                .id(id)
+                .position(new Vec2(step, -step))
+                .velocity(Vec2.ZERO)
+                .force(Vec2.ZERO)
+                .radius(1)
+                .mass(1)
+                .build());
+        }
+        return new SimulationFrame(bodies);
+    }
+
+    private static double[] slice(double[] values, int n) {
+        double[] slice = new double[n];
+        System.arraycopy(values, 0, slice, 0, n);
+        return slice;
+    }
+}
@@ -0,0 +1,169 @@
+package dev.cgj.nbody2d.simulation.collision;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static dev.cgj.nbody2d.data.TestBodies.store;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OverlapMergerTest {
+
+    @Test
+    void merge_noOverlap_unchanged() {
+        BodyStore bodies = store(
+            body(1, 0, 0),
+            body(2, 10, 0)
+        );
+
+        assertEquals(0, new OverlapMerger().merge(bodies));
+        assertEquals(2, bodies.getSize());
+    }
+
+    @Test
+    void merge_overlappingPair_conservesMassMomentumAndArea() {
+        BodyStore bodies = store(
+            body(1, 0, 0).withVelocity(new Vec2(1, 0)).withRadius(3),
+            body(2, 1, 0).withVelocity(new Vec2(0, 1)).withRadius(4),
+            body(3, 100, 0)
+        );
+
+        assertEquals(1, new OverlapMerger().merge(bodies));
+
+        Body merged = bodies.get(0);
+        assertEquals(1, merged.getId());
+        assertEquals(2, merged.getMass(), 1e-12);
+        assertEquals(5, merged.getRadius(), 1e-12);
+        assertEquals(new Vec2(0.5, 0), merged.getPosition());
+        assertEquals(new Vec2(0.5, 0.5), merged.getVelocity());
+        assertEquals(3, bodies.get(1).getId());
+    }
+
+    @Test
+    void merge_chain_mergesTransitively() {
+        // 1 and 3 do not overlap, but both overlap 2
+        BodyStore bodies = store(
+            body(1, 0, 0),
+            body(3, 3.5, 0),
+            body(2, 1.75, 0)
+        );
+
+        assertEquals(2, new OverlapMerger().merge(bodies));
+
+        Body merged = bodies.get(0);
+        assertEquals(1, merged.getId());
+        assertEquals(3, merged.getMass(), 1e-12);
+        assertEquals(Math.sqrt(3), merged.getRadius(), 1e-12);
+        assertEquals(1.75, merged.getPosition().x(), 1e-12);
+    }
+
+    @Test
+    void merge_matchesBruteForce() {
+        List<Body> list = randomBodies(2000, 8);
+        BodyStore expected = store(list.toArray(Body[]::new));
+        BodyStore actual = store(list.toArray(Body[]::new));
+
+        mergeBruteForce(expected);
+        new OverlapMerger().merge(actual);
+
+        assertEquals(expected.getSize(), actual.getSize());
+        for (int i = 0; i < expected.getSize(); i++) {
+            assertEquals(expected.getId()[i], actual.getId()[i]);
+            assertEquals(expected.getMass()[i], actual.getMass()[i], 1e-9);
+            assertEquals(expected.getX()[i], actual.getX()[i], 1e-9);
+            assertEquals(expected.getY()[i], actual.getY()[i], 1e-9);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8})
+    void merge_parallel_matchesSequential(int threads) {
+        List<Body> list = randomBodies(5000, 9);
+        BodyStore sequential = store(list.toArray(Body[]::new));
+        BodyStore parallel = store(list.toArray(Body[]::new));
+        ParallelExecutor executor = new ParallelExecutor(threads);
+
+        int expectedRemoved = new OverlapMerger().merge(sequential);
+        int actualRemoved = new OverlapMerger(executor).merge(parallel);
+        executor.shutdown();
+
+        assertEquals(expectedRemoved, actualRemoved);
+        assertEquals(sequential.toFrame(), parallel.toFrame());
+    }
+
+    private static List<Body> randomBodies(int n, long seed) {
+        Random random = new Random(seed);
+        List<Body> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Vec2 position = new Vec2(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            Vec2 velocity = new Vec2(random.nextGaussian(), random.nextGaussian());
+            double radius = i % 500 == 0 ? 50 : 1 + random.nextDouble() * 4;
+            list.add(body(i, position)
+                .withVelocity(velocity)
+                .withRadius(radius)
+                .withMass(1 + random.nextDouble()));
+        }
+        return list;
+    }
+
+    /**
+     * Reference implementation testing every pair, then merging each connected group of
+     * overlapping bodies into its first member.
+     */
+    private static void mergeBruteForce(BodyStore bodies) {
+        int n = bodies.getSize();
+        int[] group = new int[n];
+        for (int i = 0; i < n; i++) {
+            group[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (OverlapMerger.overlaps(bodies, i, j)) {
+                    int from = Math.max(group[i], group[j]);
+                    int to = Math.min(group[i], group[j]);
+                    for (int k = 0; k < n; k++) {
+                        if (group[k] == from) {
+                            group[k] = to;
+                        }
+                    }
+                }
+            }
+        }
+
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] mass = bodies.getMass();
+        double[] radius = bodies.getRadius();
+        double[] m = new double[n];
+        double[] area = new double[n];
+        double[] mx = new double[n];
+        double[] my = new double[n];
+        boolean[] removed = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int g = group[i];
+            m[g] += mass[i];
+            area[g] += radius[i] * radius[i];
+            mx[g] += x[i] * mass[i];
+            my[g] += y[i] * mass[i];
+            removed[i] = g != i;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!removed[i]) {
+                x[i] = mx[i] / m[i];
+                y[i] = my[i] / m[i];
+                mass[i] = m[i];
+                radius[i] = Math.sqrt(area[i]);
+            }
+        }
+        bodies.removeFlagged(removed);
+    }
+}
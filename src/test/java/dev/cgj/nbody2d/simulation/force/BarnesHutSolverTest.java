@@ -0,0 +1,94 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static dev.cgj.nbody2d.data.TestBodies.randomBodies;
+import static dev.cgj.nbody2d.data.TestBodies.store;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BarnesHutSolverTest {
+
+    @Test
+    void computeForces_zeroTheta_matchesDirectSum() {
+        BodyStore expected = randomBodies(200, 1);
+        BodyStore actual = randomBodies(200, 1);
+        new DirectSumSolver().computeForces(expected);
+        new BarnesHutSolver(0).computeForces(actual);
+
+        for (int i = 0; i < expected.getSize(); i++) {
+            Vec2 e = force(expected, i);
+            assertEquals(0, e.distanceFrom(force(actual, i)), e.magnitude() * 1e-9);
+        }
+    }
+
+    @Test
+    void computeForces_defaultTheta_closeToDirectSum() {
+        BodyStore expected = randomBodies(1000, 2);
+        BodyStore actual = randomBodies(1000, 2);
+        new DirectSumSolver().computeForces(expected);
+        new BarnesHutSolver(0.5).computeForces(actual);
+
+        double totalError = 0;
+        double totalForce = 0;
+        for (int i = 0; i < expected.getSize(); i++) {
+            totalError += force(expected, i).distanceFrom(force(actual, i));
+            totalForce += force(expected, i).magnitude();
+        }
+        assertTrue(totalError / totalForce < 0.01, "mean relative error too large");
+    }
+
+    @Test
+    void computeForces_coincidentBodies_terminates() {
+        List<Body> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add(body(i, 1, 1).withRadius(1e6).withMass(1e24));
+        }
+        list.add(body(10, 1e9, 1e9).withRadius(1e6).withMass(1e24));
+        BodyStore bodies = store(list);
+
+        new BarnesHutSolver(0.5).computeForces(bodies);
+
+        assertTrue(force(bodies, 10).magnitude() > 0);
+    }
+
+    @Test
+    void computeForces_singleBody_noForce() {
+        BodyStore bodies = store(body(1, 0, 0).withRadius(1e6).withMass(1e24));
+        new BarnesHutSolver(0.5).computeForces(bodies);
+        assertEquals(Vec2.ZERO, force(bodies, 0));
+    }
+
+    @Test
+    void computeForces_parallel_matchesSequential() {
+        BodyStore sequential = randomBodies(2000, 4);
+        BodyStore parallel = randomBodies(2000, 4);
+        ParallelExecutor executor = new ParallelExecutor(4);
+
+        new BarnesHutSolver(0.5).computeForces(sequential);
+        new BarnesHutSolver(0.5, executor).computeForces(parallel);
+        executor.shutdown();
+
+        assertArrayEquals(sequential.getFx(), parallel.getFx());
+        assertArrayEquals(sequential.getFy(), parallel.getFy());
+    }
+
+    @Test
+    void constructor_negativeTheta_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new BarnesHutSolver(-1));
+    }
+
+    private static Vec2 force(BodyStore bodies, int i) {
+        return new Vec2(bodies.getFx()[i], bodies.getFy()[i]);
+    }
+}
@@ -0,0 +1,46 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static dev.cgj.nbody2d.data.TestBodies.randomBodies;
+import static dev.cgj.nbody2d.data.TestBodies.store;
+import static dev.cgj.nbody2d.simulation.Simulation.EPS;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DirectSumSolverTest {
+
+    @Test
+    void computeForces_twoBodies_equalAndOpposite() {
+        BodyStore bodies = store(
+            body(1, 0, 0).withRadius(1e6).withMass(2e24),
+            body(2, 3e8, 4e8).withRadius(1e6).withMass(5e24)
+        );
+
+        new DirectSumSolver().computeForces(bodies);
+
+        double expected = G * 2e24 * 5e24 / (5e8 * 5e8 + EPS * EPS);
+        assertEquals(expected * 0.6, bodies.getFx()[0], expected * 1e-12);
+        assertEquals(expected * 0.8, bodies.getFy()[0], expected * 1e-12);
+        assertEquals(-bodies.getFx()[0], bodies.getFx()[1], expected * 1e-12);
+        assertEquals(-bodies.getFy()[0], bodies.getFy()[1], expected * 1e-12);
+    }
+
+    @Test
+    void computeForces_parallel_matchesSequential() {
+        BodyStore sequential = randomBodies(2000, 3);
+        BodyStore parallel = randomBodies(2000, 3);
+        ParallelExecutor executor = new ParallelExecutor(4);
+
+        new DirectSumSolver().computeForces(sequential);
+        new DirectSumSolver(executor).computeForces(parallel);
+        executor.shutdown();
+
+        assertArrayEquals(sequential.getFx(), parallel.getFx());
+        assertArrayEquals(sequential.getFy(), parallel.getFy());
+    }
+}
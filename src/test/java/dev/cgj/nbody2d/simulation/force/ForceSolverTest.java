@@ -0,0 +1,49 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.config.ForceSolverType;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static dev.cgj.nbody2d.data.TestBodies.randomBodies;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ForceSolverTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "DIRECT, 1", "DIRECT, 4",
+        "DIRECT_SYMMETRIC, 1", "DIRECT_SYMMETRIC, 4",
+        "DIRECT_VECTOR, 1",
+        "BARNES_HUT, 1", "BARNES_HUT, 4"
+    })
+    void computeForces_targets_onlyUpdatesTargets(ForceSolverType type, int threads) {
+        BodyStore expected = randomBodies(1000, 6);
+        BodyStore actual = randomBodies(1000, 6);
+        new DirectSumSolver().computeForces(expected);
+
+        int[] targets = new int[400];
+        for (int k = 0; k < targets.length; k++) {
+            targets[k] = k * 2 + 1;
+        }
+        Arrays.fill(actual.getFx(), -1);
+        Arrays.fill(actual.getFy(), -1);
+
+        // Zero theta makes Barnes-Hut equivalent to the direct sum
+        SimulationConfig config = SimulationConfig.builder().forceSolver(type).theta(0).build();
+        ParallelExecutor executor = new ParallelExecutor(threads);
+        ForceSolver.forConfig(config, executor).computeForces(actual, targets, 300);
+        executor.shutdown();
+
+        for (int i = 0; i < actual.getSize(); i++) {
+            boolean target = i % 2 == 1 && i < 600;
+            double scale = Math.abs(expected.getFx()[i]) * 1e-9;
+            assertEquals(target ? expected.getFx()[i] : -1, actual.getFx()[i], scale);
+            assertEquals(target ? expected.getFy()[i] : -1, actual.getFy()[i], Math.abs(expected.getFy()[i]) * 1e-9);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static dev.cgj.nbody2d.data.TestBodies.randomBodies;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SymmetricDirectSumSolverTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "1, 1, 10",
+        "1, 7, 100",
+        "1, 256, 1000",
+        "4, 64, 1000",
+        "4, 256, 3000"
+    })
+    void computeForces_matchesDirectSum(int threads, int tileSize, int n) {
+        BodyStore expected = randomBodies(n, 5);
+        BodyStore actual = randomBodies(n, 5);
+        ParallelExecutor executor = new ParallelExecutor(threads);
+
+        new DirectSumSolver().computeForces(expected);
+        new SymmetricDirectSumSolver(executor, tileSize).computeForces(actual);
+        executor.shutdown();
+
+        for (int i = 0; i < n; i++) {
+            double magnitude = Math.hypot(expected.getFx()[i], expected.getFy()[i]);
+            assertEquals(expected.getFx()[i], actual.getFx()[i], magnitude * 1e-9);
+            assertEquals(expected.getFy()[i], actual.getFy()[i], magnitude * 1e-9);
+        }
+    }
+
+    @Test
+    void computeForces_repeated_deterministic() {
+        BodyStore first = randomBodies(3000, 6);
+        BodyStore second = randomBodies(3000, 6);
+        ParallelExecutor executor = new ParallelExecutor(4);
+        SymmetricDirectSumSolver solver = new SymmetricDirectSumSolver(executor, 128);
+
+        solver.computeForces(first);
+        solver.computeForces(second);
+        executor.shutdown();
+
+        assertArrayEquals(first.getFx(), second.getFx());
+        assertArrayEquals(first.getFy(), second.getFy());
+    }
+
+    @Test
+    void constructor_invalidTileSize_throws() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SymmetricDirectSumSolver(ParallelExecutor.SEQUENTIAL, 0));
+    }
+}
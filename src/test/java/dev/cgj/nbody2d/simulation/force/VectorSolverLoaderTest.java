@@ -0,0 +1,30 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import static dev.cgj.nbody2d.data.TestBodies.randomBodies;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VectorSolverLoaderTest {
+
+    /**
+     * Passes whether the vector solver or the scalar fallback is loaded, depending on how the
+     * build was run.
+     */
+    @Test
+    void create_matchesDirectSum() {
+        BodyStore expected = randomBodies(1001, 7);
+        BodyStore actual = randomBodies(1001, 7);
+
+        new DirectSumSolver().computeForces(expected);
+        VectorSolverLoader.create(ParallelExecutor.SEQUENTIAL).computeForces(actual);
+
+        for (int i = 0; i < expected.getSize(); i++) {
+            double magnitude = Math.hypot(expected.getFx()[i], expected.getFy()[i]);
+            assertEquals(expected.getFx()[i], actual.getFx()[i], magnitude * 1e-9);
+            assertEquals(expected.getFy()[i], actual.getFy()[i], magnitude * 1e-9);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.simulation.force.DirectSumSolver;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockLeapfrogIntegratorTest {
+    private static final double STAR_MASS = 1e30;
+    private static final double CLOSE_ORBIT = 1e9;
+    private static final double FAR_ORBIT = 1e12;
+    private static final double DT = 2 * Math.PI * Math.sqrt(Math.pow(CLOSE_ORBIT, 3) / (G * STAR_MASS)) / 10;
+
+    @Test
+    void step_maxLevelZero_matchesLeapfrog() {
+        BodyStore leapfrog = system();
+        BodyStore block = system();
+        Integrator a = new LeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL);
+        Integrator b = new BlockLeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL, 0.025, 0);
+
+        for (int step = 0; step < 20; step++) {
+            a.step(leapfrog, DT);
+            b.step(block, DT);
+        }
+
+        assertArrayEquals(leapfrog.getX(), block.getX());
+        assertArrayEquals(leapfrog.getVy(), block.getVy());
+    }
+
+    @Test
+    void step_slowBodies_updatedLessOften() {
+        CountingSolver solver = new CountingSolver();
+        BlockLeapfrogIntegrator integrator =
+            new BlockLeapfrogIntegrator(solver, ParallelExecutor.SEQUENTIAL, 0.025, 6);
+        BodyStore bodies = system();
+
+        integrator.step(bodies, DT);
+        solver.reset();
+        integrator.step(bodies, DT);
+
+        // The close planet needs many sub-steps, but the star and far planets only the last
+        int n = bodies.getSize();
+        assertTrue(solver.targets > 1, "close planet should take sub-steps");
+        assertTrue(solver.targets + n < n * 64 / 4, "most bodies should not be updated every tick");
+        assertEquals(n, solver.lastCount, "every body should be updated at the end of a step");
+    }
+
+    /**
+     * Bodies spread around a heavy central body, like {@code uniform.yml}, are far enough apart that
+     * almost all of them can take the whole step at once.
+     */
+    @Test
+    void step_uniformSystem_mostBodiesOnLowLevels() {
+        CountingSolver solver = new CountingSolver();
+        BlockLeapfrogIntegrator integrator =
+            new BlockLeapfrogIntegrator(solver, ParallelExecutor.SEQUENTIAL, 0.025, 6);
+        BodyStore bodies = uniformSystem();
+
+        integrator.step(bodies, 3600);
+        solver.reset();
+        integrator.step(bodies, 3600);
+
+        // A body on level k is updated 2^k times per step
+        int n = bodies.getSize();
+        assertTrue(solver.targets < 2 * n, "bodies were updated " + solver.targets + " times");
+    }
+
+    @Test
+    void step_closeOrbit_moreAccurateThanLeapfrog() {
+        BodyStore reference = system();
+        BodyStore leapfrog = system();
+        BodyStore block = system();
+        Integrator fine = new LeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL);
+        Integrator coarse = new LeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL);
+        Integrator blocks = new BlockLeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL, 0.025, 6);
+
+        for (int step = 0; step < 10; step++) {
+            for (int sub = 0; sub < 64; sub++) {
+                fine.step(reference, DT / 64);
+            }
+            coarse.step(leapfrog, DT);
+            blocks.step(block, DT);
+        }
+
+        double leapfrogError = Math.hypot(leapfrog.getX()[1] - reference.getX()[1], leapfrog.getY()[1] - reference.getY()[1]);
+        double blockError = Math.hypot(block.getX()[1] - reference.getX()[1], block.getY()[1] - reference.getY()[1]);
+        assertTrue(blockError < leapfrogError / 10, "block time steps should resolve the close orbit");
+        assertTrue(blockError < CLOSE_ORBIT * 1e-2);
+    }
+
+    @Test
+    void step_parallel_matchesSequential() {
+        BodyStore sequential = randomBodies();
+        BodyStore parallel = randomBodies();
+        ParallelExecutor executor = new ParallelExecutor(4);
+        Integrator a = new BlockLeapfrogIntegrator(new DirectSumSolver(), ParallelExecutor.SEQUENTIAL, 0.025, 4);
+        Integrator b = new BlockLeapfrogIntegrator(new DirectSumSolver(executor), executor, 0.025, 4);
+
+        for (int step = 0; step < 3; step++) {
+            a.step(sequential, 86400);
+            b.step(parallel, 86400);
+        }
+        executor.shutdown();
+
+        assertArrayEquals(sequential.getX(), parallel.getX());
+        assertArrayEquals(sequential.getVy(), parallel.getVy());
+    }
+
+    @Test
+    void constructor_invalidArguments_throw() {
+        ForceSolver solver = new DirectSumSolver();
+        ParallelExecutor executor = ParallelExecutor.SEQUENTIAL;
+        assertThrows(IllegalArgumentException.class, () -> new BlockLeapfrogIntegrator(solver, executor, 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new BlockLeapfrogIntegrator(solver, executor, 0.1, -1));
+    }
+
+    /**
+     * A star with one planet on a close orbit and several on far orbits.
+     */
+    private static BodyStore system() {
+        List<Body> bodies = new ArrayList<>();
+        bodies.add(body(0, 0, 0).withRadius(1e6).withMass(STAR_MASS));
+        bodies.add(body(1, CLOSE_ORBIT, 0)
+            .withVelocity(new Vec2(0, Math.sqrt(G * STAR_MASS / CLOSE_ORBIT)))
+            .withRadius(1e6));
+        for (int i = 2; i < 50; i++) {
+            double angle = i * 0.1;
+            double radius = FAR_ORBIT * (1 + i / 50.0);
+            double speed = Math.sqrt(G * STAR_MASS / radius);
+            bodies.add(body(i, Math.cos(angle) * radius, Math.sin(angle) * radius)
+                .withVelocity(new Vec2(-Math.sin(angle) * speed, Math.cos(angle) * speed))
+                .withRadius(1e6));
+        }
+        return BodyStore.fromFrame(new SimulationFrame(bodies));
+    }
+
+    /**
+     * A heavy body with many light ones scattered around it, as in {@code uniform.yml}.
+     */
+    private static BodyStore uniformSystem() {
+        Random random = new Random(5);
+        List<Body> bodies = new ArrayList<>();
+        bodies.add(body(0, 0, 0).withRadius(7e7).withMass(1e28));
+        for (int i = 1; i < 500; i++) {
+            bodies.add(body(i, Vec2.ZERO.randomOffset(1e10, random))
+                .withVelocity(Vec2.ZERO.randomOffset(20000, random))
+                .withRadius(1e7)
+                .withMass(1e24));
+        }
+        return BodyStore.fromFrame(new SimulationFrame(bodies));
+    }
+
+    private static BodyStore randomBodies() {
+        Random random = new Random(7);
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Vec2 position = new Vec2(random.nextGaussian() * 1e10, random.nextGaussian() * 1e10);
+            Vec2 velocity = new Vec2(random.nextGaussian() * 1e3, random.nextGaussian() * 1e3);
+            bodies.add(body(i, position)
+                .withVelocity(velocity)
+                .withRadius(1e6)
+                .withMass(i == 0 ? STAR_MASS : 1e24));
+        }
+        return BodyStore.fromFrame(new SimulationFrame(bodies));
+    }
+
+    private static class CountingSolver implements ForceSolver {
+        private final ForceSolver delegate = new DirectSumSolver();
+        private int targets;
+        private int lastCount;
+
+        @Override
+        public void computeForces(BodyStore bodies) {
+            computeForces(bodies, null, bodies.getSize());
+        }
+
+        @Override
+        public void computeForces(BodyStore bodies, int[] targets, int count) {
+            this.targets += count;
+            this.lastCount = count;
+            if (targets == null) {
+                delegate.computeForces(bodies);
+            } else {
+                delegate.computeForces(bodies, targets, count);
+            }
+        }
+
+        void reset() {
+            targets = 0;
+        }
+    }
+}
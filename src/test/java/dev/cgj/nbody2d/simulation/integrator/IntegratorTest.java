@@ -0,0 +1,160 @@
+package dev.cgj.nbody2d.simulation.integrator;
+
+import dev.cgj.nbody2d.config.IntegratorType;
+import dev.cgj.nbody2d.config.SimulationConfig;
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.simulation.force.DirectSumSolver;
+import dev.cgj.nbody2d.simulation.force.ForceSolver;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntegratorTest {
+    private static final double SUN_MASS = 1.989e30;
+    private static final double ORBIT_RADIUS = 1.496e11;
+    private static final double PERIOD =
+        2 * Math.PI * Math.sqrt(Math.pow(ORBIT_RADIUS, 3) / (G * SUN_MASS));
+
+    /**
+     * Halving the time step should reduce the error after one orbit by 2^order.
+     */
+    @ParameterizedTest
+    @CsvSource({"EULER, 1", "LEAPFROG, 2", "VELOCITY_VERLET, 2", "YOSHIDA4, 4"})
+    void step_circularOrbit_convergesAtExpectedOrder(IntegratorType type, int order) {
+        double coarse = orbitError(type, 200);
+        double fine = orbitError(type, 400);
+        double measuredOrder = Math.log(coarse / fine) / Math.log(2);
+        assertEquals(order, measuredOrder, 0.3);
+    }
+
+    @Test
+    void step_largerTimeStep_higherOrderMoreAccurate() {
+        double euler = orbitError(IntegratorType.EULER, 1000);
+        double leapfrog = orbitError(IntegratorType.LEAPFROG, 100);
+        double yoshida = orbitError(IntegratorType.YOSHIDA4, 100);
+        assertTrue(leapfrog < euler, "leapfrog at 10x dt should beat Euler");
+        assertTrue(yoshida < leapfrog, "Yoshida should beat leapfrog at the same dt");
+    }
+
+    @Test
+    void leapfrogAndVelocityVerlet_sameTrajectory() {
+        BodyStore leapfrog = orbit();
+        BodyStore verlet = orbit();
+        Integrator a = integrator(IntegratorType.LEAPFROG, new DirectSumSolver());
+        Integrator b = integrator(IntegratorType.VELOCITY_VERLET, new DirectSumSolver());
+
+        for (int step = 0; step < 50; step++) {
+            a.step(leapfrog, PERIOD / 100);
+            b.step(verlet, PERIOD / 100);
+        }
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(leapfrog.getX()[i], verlet.getX()[i], ORBIT_RADIUS * 1e-9);
+            assertEquals(leapfrog.getY()[i], verlet.getY()[i], ORBIT_RADIUS * 1e-9);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"EULER, 10", "LEAPFROG, 11", "VELOCITY_VERLET, 11", "YOSHIDA4, 31"})
+    void step_reusesForcesBetweenSteps(IntegratorType type, int expectedForceCalculations) {
+        CountingSolver solver = new CountingSolver();
+        Integrator integrator = integrator(type, solver);
+        BodyStore bodies = orbit();
+
+        for (int step = 0; step < 10; step++) {
+            integrator.step(bodies, PERIOD / 100);
+        }
+        assertEquals(expectedForceCalculations, solver.count);
+
+        // Leapfrog-based integrators normally skip the first calculation of each step
+        int before = solver.count;
+        integrator.invalidateForces();
+        integrator.step(bodies, PERIOD / 100);
+        int perStep = type == IntegratorType.YOSHIDA4 ? 3 : 1;
+        assertEquals(perStep + (type == IntegratorType.EULER ? 0 : 1), solver.count - before);
+    }
+
+    @Test
+    void step_parallel_matchesSequential() {
+        BodyStore sequential = BodyStore.fromFrame(randomFrame());
+        BodyStore parallel = BodyStore.fromFrame(randomFrame());
+        ParallelExecutor executor = new ParallelExecutor(4);
+        Integrator a = integrator(IntegratorType.YOSHIDA4, new DirectSumSolver());
+        Integrator b = Integrator.forConfig(config(IntegratorType.YOSHIDA4), new DirectSumSolver(executor), executor);
+
+        for (int step = 0; step < 3; step++) {
+            a.step(sequential, 3600);
+            b.step(parallel, 3600);
+        }
+        executor.shutdown();
+
+        assertArrayEquals(sequential.getX(), parallel.getX());
+        assertArrayEquals(sequential.getVy(), parallel.getVy());
+    }
+
+    /**
+     * Distance between a planet's position after half of a circular orbit and the exact solution,
+     * opposite where it started. After a whole orbit some first-order errors cancel out.
+     */
+    private static double orbitError(IntegratorType type, int stepsPerOrbit) {
+        BodyStore bodies = orbit();
+        Integrator integrator = integrator(type, new DirectSumSolver());
+        for (int step = 0; step < stepsPerOrbit / 2; step++) {
+            integrator.step(bodies, PERIOD / stepsPerOrbit);
+        }
+        return Math.hypot(bodies.getX()[1] - bodies.getX()[0] + ORBIT_RADIUS, bodies.getY()[1] - bodies.getY()[0]);
+    }
+
+    /**
+     * A sun and a massless planet on a circular orbit, starting on the x-axis.
+     */
+    private static BodyStore orbit() {
+        double speed = Math.sqrt(G * SUN_MASS / ORBIT_RADIUS);
+        return BodyStore.fromFrame(new SimulationFrame(List.of(
+            body(0, 0, 0).withMass(SUN_MASS),
+            body(1, ORBIT_RADIUS, 0).withVelocity(new Vec2(0, speed))
+        )));
+    }
+
+    private static SimulationFrame randomFrame() {
+        java.util.Random random = new java.util.Random(5);
+        Body[] bodies = new Body[1000];
+        for (int i = 0; i < bodies.length; i++) {
+            Vec2 position = new Vec2(random.nextGaussian() * 1e10, random.nextGaussian() * 1e10);
+            Vec2 velocity = new Vec2(random.nextGaussian() * 1e3, random.nextGaussian() * 1e3);
+            bodies[i] = body(i, position).withVelocity(velocity).withMass(1e24);
+        }
+        return new SimulationFrame(List.of(bodies));
+    }
+
+    private static Integrator integrator(IntegratorType type, ForceSolver solver) {
+        return Integrator.forConfig(config(type), solver, ParallelExecutor.SEQUENTIAL);
+    }
+
+    private static SimulationConfig config(IntegratorType type) {
+        return SimulationConfig.builder().integrator(type).build();
+    }
+
+    private static class CountingSolver implements ForceSolver {
+        private final ForceSolver delegate = new DirectSumSolver();
+        private int count;
+
+        @Override
+        public void computeForces(BodyStore bodies) {
+            count++;
+            delegate.computeForces(bodies);
+        }
+    }
+}
@@ -3,6 +3,15 @@ package dev.cgj.nbody2d.util;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BoundedQueueTest {
@@ -27,4 +36,145 @@ class BoundedQueueTest {
         }
         queue.enumerate(Assertions::assertEquals);
     }
+
+    @Test
+    void add_full_dropsOldest() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(3);
+        for (int i = 0; i < 5; i++) {
+            queue.add(i);
+        }
+        assertEquals(3, queue.size());
+        assertEquals((Integer) 4, queue.peek());
+        assertEquals(List.of(2, 3, 4), queue.asList());
+        assertEquals(List.of(2, 3), queue.asList(2));
+    }
+
+    @Test
+    void clear() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(3);
+        queue.add(1);
+        queue.add(2);
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertNull(queue.peek());
+        assertEquals(List.of(), queue.asList());
+
+        queue.add(3);
+        assertEquals(List.of(3), queue.asList());
+    }
+
+    @Test
+    void replaceAll() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(3);
+        queue.add(1);
+        queue.add(2);
+        queue.replaceAll(3);
+        assertEquals((Integer) 3, queue.peek());
+        assertEquals(List.of(3), queue.asList());
+        assertEquals(3, queue.getVersion());
+    }
+
+    /**
+     * Readers must never see the queue empty while one thread repeatedly replaces its contents.
+     */
+    @Test
+    void replaceAll_concurrentReaders_neverEmpty() throws Exception {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(4);
+        queue.add(0);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger empty = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                if (queue.peek() == null || queue.asList().isEmpty()) {
+                    empty.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i < 200_000; i++) {
+            if (i % 3 == 0) {
+                queue.replaceAll(i);
+            } else {
+                queue.add(i);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertEquals(0, empty.get());
+    }
+
+    @Test
+    void getVersion_changesOnEveryAdd() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(2);
+        assertEquals(0, queue.getVersion());
+        for (int i = 1; i <= 5; i++) {
+            queue.add(i);
+            assertEquals(i, queue.getVersion());
+        }
+        queue.clear();
+        assertEquals(5, queue.getVersion());
+    }
+
+    /**
+     * One thread adds frames as fast as it can while others read them. Each frame is an array
+     * filled with its sequence number, so a reader which saw a partly written frame, frames out of
+     * order or a gap between frames would fail.
+     */
+    @Test
+    void concurrentReaders_alwaysSeeConsistentFrames() throws Exception {
+        int frames = 200_000;
+        int readers = 4;
+        BoundedQueue<long[]> queue = new BoundedQueue<>(8);
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            results.add(executor.submit(() -> {
+                long latest = -1;
+                int reads = 0;
+                do {
+                    long[] newest = queue.peek();
+                    if (newest != null) {
+                        assertFrame(newest);
+                        assertTrue(newest[0] >= latest, "Newest frame went backwards");
+                        latest = newest[0];
+                    }
+
+                    List<long[]> snapshot = queue.asList();
+                    assertTrue(snapshot.size() <= queue.getMaxSize());
+                    for (int i = 0; i < snapshot.size(); i++) {
+                        assertFrame(snapshot.get(i));
+                        if (i > 0) {
+                            assertEquals(snapshot.get(i - 1)[0] + 1, snapshot.get(i)[0], "Frames not contiguous");
+                        }
+                    }
+                    if (!snapshot.isEmpty()) {
+                        assertTrue(snapshot.get(snapshot.size() - 1)[0] >= latest, "Snapshot older than newest frame");
+                    }
+                    reads++;
+                } while (!done.get());
+                return reads;
+            }));
+        }
+
+        for (long i = 0; i < frames; i++) {
+            long[] frame = new long[16];
+            Arrays.fill(frame, i);
+            queue.add(frame);
+        }
+        done.set(true);
+
+        for (Future<Integer> result : results) {
+            assertTrue(result.get() > 0);
+        }
+        executor.shutdown();
+        assertEquals(frames - 1, queue.peek()[0]);
+    }
+
+    private static void assertFrame(long[] frame) {
+        for (long value : frame) {
+            assertEquals(frame[0], value, "Frame partly written");
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package dev.cgj.nbody2d.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentBitSetTest {
+
+    @Test
+    void set_onlyAffectsGivenBit() {
+        ConcurrentBitSet bits = new ConcurrentBitSet(130);
+        assertTrue(bits.isEmpty());
+
+        bits.set(64);
+        bits.set(129);
+
+        assertFalse(bits.isEmpty());
+        assertTrue(bits.get(64));
+        assertTrue(bits.get(129));
+        assertFalse(bits.get(0));
+        assertFalse(bits.get(63));
+        assertFalse(bits.get(65));
+    }
+
+    @Test
+    void clear_clearsAllBits() {
+        ConcurrentBitSet bits = new ConcurrentBitSet(10);
+        bits.set(3);
+        bits.clear();
+        assertTrue(bits.isEmpty());
+        assertFalse(bits.get(3));
+    }
+
+    @Test
+    void set_outOfBounds_throws() {
+        ConcurrentBitSet bits = new ConcurrentBitSet(10);
+        assertThrows(IndexOutOfBoundsException.class, () -> bits.set(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> bits.get(-1));
+    }
+
+    @Test
+    void set_concurrent_noBitsLost() {
+        int n = 1 << 16;
+        ConcurrentBitSet bits = new ConcurrentBitSet(n);
+        ParallelExecutor executor = new ParallelExecutor(8);
+
+        // Each contiguous range of i sets a few bits in every word, so threads contend for words
+        executor.forRange(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                bits.set((i & 1023) * 64 + (i >>> 10));
+            }
+        });
+        executor.shutdown();
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += bits.get(i) ? 1 : 0;
+        }
+        assertEquals(n, count);
+        assertEquals(n, bits.size());
+    }
+}
@@ -0,0 +1,69 @@
+package dev.cgj.nbody2d.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentUnionFindTest {
+
+    @Test
+    void union_rootIsSmallestMember() {
+        ConcurrentUnionFind sets = new ConcurrentUnionFind();
+        sets.reset(6);
+
+        assertTrue(sets.union(5, 3));
+        assertTrue(sets.union(3, 4));
+        assertTrue(sets.union(4, 1));
+        assertFalse(sets.union(5, 1));
+
+        assertEquals(0, sets.find(0));
+        assertEquals(1, sets.find(5));
+        assertEquals(1, sets.find(4));
+        assertEquals(2, sets.find(2));
+    }
+
+    @Test
+    void reset_separatesSets() {
+        ConcurrentUnionFind sets = new ConcurrentUnionFind();
+        sets.reset(2);
+        sets.union(0, 1);
+        sets.reset(2);
+        assertEquals(1, sets.find(1));
+    }
+
+    @Test
+    void union_concurrent_matchesSequential() {
+        int n = 100_000;
+        int[] a = new int[n];
+        int[] b = new int[n];
+        Random random = new Random(3);
+        for (int k = 0; k < n; k++) {
+            a[k] = random.nextInt(n);
+            b[k] = random.nextInt(n);
+        }
+
+        ConcurrentUnionFind sequential = new ConcurrentUnionFind();
+        sequential.reset(n);
+        for (int k = 0; k < n; k++) {
+            sequential.union(a[k], b[k]);
+        }
+
+        ConcurrentUnionFind concurrent = new ConcurrentUnionFind();
+        concurrent.reset(n);
+        ParallelExecutor executor = new ParallelExecutor(8);
+        executor.forRange(n, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                concurrent.union(a[k], b[k]);
+            }
+        });
+        executor.shutdown();
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(sequential.find(i), concurrent.find(i));
+        }
+    }
+}
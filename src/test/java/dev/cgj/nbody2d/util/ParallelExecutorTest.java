@@ -0,0 +1,61 @@
+package dev.cgj.nbody2d.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelExecutorTest {
+
+    @Test
+    void forRange_parallel_visitsEveryIndexOnce() {
+        ParallelExecutor executor = new ParallelExecutor(4);
+        AtomicIntegerArray visits = new AtomicIntegerArray(10_000);
+
+        executor.forRange(visits.length(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                visits.incrementAndGet(i);
+            }
+        });
+        executor.shutdown();
+
+        for (int i = 0; i < visits.length(); i++) {
+            assertEquals(1, visits.get(i));
+        }
+    }
+
+    @Test
+    void forRange_smallRange_runsOnCallingThread() {
+        ParallelExecutor executor = new ParallelExecutor(4);
+        Thread caller = Thread.currentThread();
+
+        executor.forRange(ParallelExecutor.MIN_PARALLEL_SIZE - 1, (from, to) -> {
+            assertEquals(0, from);
+            assertEquals(ParallelExecutor.MIN_PARALLEL_SIZE - 1, to);
+            assertEquals(caller, Thread.currentThread());
+        });
+        executor.shutdown();
+    }
+
+    @Test
+    void constructor_oneThread_isSequential() {
+        assertFalse(new ParallelExecutor(1).isParallel());
+        assertFalse(ParallelExecutor.SEQUENTIAL.isParallel());
+    }
+
+    @Test
+    void constructor_zeroThreads_usesAvailableProcessors() {
+        ParallelExecutor executor = new ParallelExecutor(0);
+        assertEquals(Runtime.getRuntime().availableProcessors(), executor.getParallelism());
+        executor.shutdown();
+    }
+
+    @Test
+    void constructor_negativeThreads_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelExecutor(-1));
+    }
+}
@@ -0,0 +1,72 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class DensityRendererTest {
+    private static final int BACKGROUND = 0x1E1E1E;
+
+    @Test
+    void render_heavierPixelsBrighter() {
+        DensityRenderer renderer = new DensityRenderer(ParallelExecutor.SEQUENTIAL);
+        SimulationFrame frame = new SimulationFrame(List.of(
+            body(0, 1, 1), body(0, 4, 4).withMass(10), body(0, 4, 4).withMass(90), body(0, 6, 2),
+            body(0, 20, 20).withMass(1000)));
+        BufferedImage image = renderer.render(new DensityRenderer.View(frame, 8, 8, 0, 0, 1));
+
+        int light = image.getRGB(1, 1) & 0xFFFFFF;
+        int heavy = image.getRGB(4, 4) & 0xFFFFFF;
+        assertNotEquals(BACKGROUND, light);
+        assertEquals(light, image.getRGB(6, 2) & 0xFFFFFF);
+        assertEquals(0xFFF0A0, heavy);
+        assertEquals(BACKGROUND, image.getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    void render_parallel_matchesSequential() {
+        Random random = new Random(5);
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            bodies.add(body(0, random.nextGaussian() * 20, random.nextGaussian() * 20).withMass(random.nextDouble(1, 10)));
+        }
+        DensityRenderer.View view = new DensityRenderer.View(new SimulationFrame(bodies), 64, 48, 32, 24, 1);
+
+        BufferedImage sequential = new DensityRenderer(ParallelExecutor.SEQUENTIAL).render(view);
+        ParallelExecutor executor = new ParallelExecutor(4);
+        BufferedImage parallel = new DensityRenderer(executor).render(view);
+        executor.shutdown();
+
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                assertEquals(sequential.getRGB(x, y), parallel.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void request_returnsHeatMapOnceFinished() throws InterruptedException {
+        DensityRenderer renderer = new DensityRenderer(ParallelExecutor.SEQUENTIAL);
+        SimulationFrame frame = new SimulationFrame(List.of(body(0, 1, 1)));
+
+        BufferedImage image = renderer.request(frame, 4, 4, 0, 0, 1);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (image == null && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            image = renderer.request(frame, 4, 4, 0, 0, 1);
+        }
+        assertNotNull(image);
+        assertNotEquals(BACKGROUND, image.getRGB(1, 1) & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,74 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.data.Body;
+import dev.cgj.nbody2d.data.SimulationFrame;
+import dev.cgj.nbody2d.data.Vec2;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dev.cgj.nbody2d.data.TestBodies.body;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RasterRendererTest {
+    private static final int BACKGROUND = 0x1E1E1E;
+
+    @Test
+    void render_pointsAddedAtTheirPixels() {
+        RasterRenderer renderer = new RasterRenderer(ParallelExecutor.SEQUENTIAL);
+        BufferedImage image = renderer.render(frame(body(0, 2, 3), body(0, 5, 1), body(0, 5, 1)), 8, 8, 0, 0, 1, 0);
+
+        int one = image.getRGB(2, 3) & 0xFFFFFF;
+        int two = image.getRGB(5, 1) & 0xFFFFFF;
+        assertNotEquals(BACKGROUND, one);
+        assertEquals(RasterRenderer.addSaturated(one, one - BACKGROUND), two);
+        assertEquals(BACKGROUND, image.getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    void render_largeAndOffScreenBodies_skipped() {
+        RasterRenderer renderer = new RasterRenderer(ParallelExecutor.SEQUENTIAL);
+        BufferedImage image = renderer.render(frame(body(0, 2, 2).withRadius(5), body(0, -1, 2), body(0, 2, 9)),
+            8, 8, 0, 0, 1, 0);
+
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                assertEquals(BACKGROUND, image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    void render_parallel_matchesSequential() {
+        List<Body> bodies = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            bodies.add(body(0, (i * 7) % 100 - 50, (i * 13) % 100 - 50).withVelocity(new Vec2(i, 0)));
+        }
+        SimulationFrame frame = new SimulationFrame(bodies);
+
+        BufferedImage sequential = new RasterRenderer(ParallelExecutor.SEQUENTIAL)
+            .render(frame, 64, 48, 32, 24, 1.5, 10_000);
+        ParallelExecutor executor = new ParallelExecutor(4);
+        BufferedImage parallel = new RasterRenderer(executor).render(frame, 64, 48, 32, 24, 1.5, 10_000);
+        executor.shutdown();
+
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                assertEquals(sequential.getRGB(x, y), parallel.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void addSaturated_limitsEachChannel() {
+        assertEquals(0xFF8030, RasterRenderer.addSaturated(0xF04010, 0x204020));
+    }
+
+    private static SimulationFrame frame(Body... bodies) {
+        return new SimulationFrame(List.of(bodies));
+    }
+}
@@ -0,0 +1,52 @@
+package dev.cgj.nbody2d.viewer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RenderStatsTest {
+
+    private static final long MILLISECOND = 1_000_000L;
+
+    @Test
+    void getPercentileNanos_noFrames_zero() {
+        assertEquals(0, new RenderStats().getPercentileNanos(0.5));
+    }
+
+    @Test
+    void getPercentileNanos_nearestRank() {
+        RenderStats stats = new RenderStats();
+        for (int i = 100; i >= 1; i--) {
+            stats.record(i * MILLISECOND, i);
+        }
+        assertEquals(1, stats.getPercentileNanos(0));
+        assertEquals(50, stats.getPercentileNanos(0.5));
+        assertEquals(95, stats.getPercentileNanos(0.95));
+        assertEquals(99, stats.getPercentileNanos(0.99));
+        assertEquals(100, stats.getPercentileNanos(1));
+    }
+
+    @Test
+    void getPercentileNanos_onlyRecentFrames() {
+        RenderStats stats = new RenderStats();
+        for (int i = 0; i < RenderStats.WINDOW; i++) {
+            stats.record(i, 1000);
+        }
+        for (int i = 0; i < RenderStats.WINDOW; i++) {
+            stats.record(i, 1);
+        }
+        assertEquals(1, stats.getPercentileNanos(1));
+    }
+
+    @Test
+    void getFramesPerSecond_countsFramesInLastSecond() {
+        RenderStats stats = new RenderStats();
+        for (int i = 0; i < 90; i++) {
+            stats.record(i * 20 * MILLISECOND, MILLISECOND);
+        }
+
+        // Frames finished at 20ms intervals from 0 to 1780ms, 49 of which are after 800ms
+        assertEquals(49, stats.getFramesPerSecond(1800 * MILLISECOND));
+        assertEquals(0, stats.getFramesPerSecond(5000 * MILLISECOND));
+    }
+}
@@ -0,0 +1,48 @@
+package dev.cgj.nbody2d.viewer;
+
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RowBandsTest {
+
+    @ParameterizedTest
+    @CsvSource({"1, 1000", "4, 10", "4, 10000", "7, 10000"})
+    void group_listsEachDrawnBodyInItsBandInOrder(int threads, int n) {
+        int width = 40;
+        int height = 30;
+        Random random = new Random(3);
+        int[] bodyPixel = new int[n];
+        for (int i = 0; i < n; i++) {
+            bodyPixel[i] = random.nextInt(4) == 0 ? -1 : random.nextInt(width * height);
+        }
+
+        ParallelExecutor executor = new ParallelExecutor(threads);
+        RowBands bands = new RowBands(executor);
+        bands.group(bodyPixel, n, width, height);
+        executor.shutdown();
+
+        assertEquals(Math.min(height, threads), bands.getCount());
+        assertEquals(0, bands.firstPixel(0));
+        assertEquals(width * height, bands.firstPixel(bands.getCount()));
+        for (int band = 0; band < bands.getCount(); band++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (bodyPixel[i] >= bands.firstPixel(band) && bodyPixel[i] < bands.firstPixel(band + 1)) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int k = bands.firstBody(band); k < bands.firstBody(band + 1); k++) {
+                actual.add(bands.getBodies()[k]);
+            }
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dev.cgj.nbody2d.simulation.force;
+
+import dev.cgj.nbody2d.data.BodyStore;
+import dev.cgj.nbody2d.util.ParallelExecutor;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static dev.cgj.nbody2d.simulation.Simulation.EPS;
+import static dev.cgj.nbody2d.simulation.Simulation.G;
+
+/**
+ * Variant of {@link DirectSumSolver} which uses the incubating
+ * <a href="https://openjdk.org/jeps/460">Vector API</a> to calculate the force exerted on a body by
+ * several other bodies per instruction, using the widest vectors supported by the host.
+ *
+ * <p>
+ *   This class is only compiled when the build is run with {@code -PvectorApi}, and must only be
+ *   loaded through {@link VectorSolverLoader}, which falls back to the scalar solver when the
+ *   {@code jdk.incubator.vector} module is not available at runtime.
+ * </p>
+ */
+public class VectorDirectSumSolver implements ForceSolver {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final ParallelExecutor executor;
+
+    public VectorDirectSumSolver(ParallelExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies) {
+        executor.forRange(bodies.getSize(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                computeForce(bodies, i);
+            }
+        });
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count) {
+        executor.forRange(count, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                computeForce(bodies, targets[k]);
+            }
+        });
+    }
+
+    private static void computeForce(BodyStore bodies, int i) {
+        double[] x = bodies.getX();
+        double[] y = bodies.getY();
+        double[] mass = bodies.getMass();
+        double[] radius = bodies.getRadius();
+        int n = bodies.getSize();
+
+        DoubleVector xi = DoubleVector.broadcast(SPECIES, x[i]);
+        DoubleVector yi = DoubleVector.broadcast(SPECIES, y[i]);
+        DoubleVector ri = DoubleVector.broadcast(SPECIES, radius[i]);
+        DoubleVector gmi = DoubleVector.broadcast(SPECIES, G * mass[i]);
+        DoubleVector epsSquared = DoubleVector.broadcast(SPECIES, EPS * EPS);
+        DoubleVector netX = DoubleVector.zero(SPECIES);
+        DoubleVector netY = DoubleVector.zero(SPECIES);
+
+        int j = 0;
+        for (int upper = SPECIES.loopBound(n); j < upper; j += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(xi);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(yi);
+            DoubleVector distSquared = dx.fma(dx, dy.mul(dy));
+
+            // The two bodies cannot be so close that they would overlap.
+            DoubleVector minDist = DoubleVector.fromArray(SPECIES, radius, j).add(ri);
+            DoubleVector dist = distSquared.sqrt().max(minDist);
+            DoubleVector f = gmi.mul(DoubleVector.fromArray(SPECIES, mass, j))
+                .div(dist.fma(dist, epsSquared).mul(dist));
+
+            // Zero displacement means this lane holds body i itself, which exerts no force.
+            VectorMask<Double> self = distSquared.compare(VectorOperators.EQ, 0);
+            f = f.blend(0, self);
+
+            netX = dx.fma(f, netX);
+            netY = dy.fma(f, netY);
+        }
+
+        double fx = netX.reduceLanes(VectorOperators.ADD);
+        double fy = netY.reduceLanes(VectorOperators.ADD);
+
+        for (; j < n; j++) {
+            if (j == i) {
+                continue;
+            }
+
+            double dx = x[j] - x[i];
+            double dy = y[j] - y[i];
+            double f = DirectSumSolver.pairForce(G * mass[i] * mass[j], radius[i] + radius[j], dx * dx + dy * dy);
+            fx += dx * f;
+            fy += dy * f;
+        }
+
+        bodies.getFx()[i] = fx;
+        bodies.getFy()[i] = fy;
+    }
+}